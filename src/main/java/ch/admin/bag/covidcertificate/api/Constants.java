@@ -22,6 +22,9 @@ public class Constants {
     public static final int MAX_STRING_LENGTH = 50;
     public static final int DAYS_UNTIL_RECOVERY_VALID = 10;
     public static final int RECOVERY_CERTIFICATE_VALIDITY_IN_DAYS = 179;
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    public static final int RETRY_AFTER_SECONDS = 2;
 
     // KPI Logs constants
     public static final String KPI_TYPE_VACCINATION = "v";
@@ -59,10 +62,21 @@ public class Constants {
     public static final CreateCertificateError NO_RECOVERY_DATA = new CreateCertificateError(465, "No recovery data specified", HttpStatus.BAD_REQUEST);
     public static final CreateCertificateError INVALID_DATE_OF_FIRST_POSITIVE_TEST_RESULT = new CreateCertificateError(466, "Invalid date of first positive test result", HttpStatus.BAD_REQUEST);
     public static final CreateCertificateError INVALID_COUNTRY_OF_TEST = new CreateCertificateError(467, "Invalid country of test", HttpStatus.BAD_REQUEST);
+    public static final CreateCertificateError NO_ARTEFACTS = new CreateCertificateError(468, "No artefacts were selected! Must select at least one of PAYLOAD, QR_CODE, PDF.", HttpStatus.BAD_REQUEST);
     public static final CreateCertificateError INVALID_LANGUAGE = new CreateCertificateError(469, "The given language does not match any of the supported languages: de, it, fr, rm!", HttpStatus.BAD_REQUEST);
     public static final RevocationError INVALID_UVCI = new RevocationError(470, "Invalid UVCI format.", HttpStatus.BAD_REQUEST);
+    public static final CreateCertificateError INVALID_IDEMPOTENCY_KEY = new CreateCertificateError(471, "Invalid Idempotency-Key! Must not be blank or exceed 255 chars", HttpStatus.BAD_REQUEST);
+    public static final CreateCertificateError IDEMPOTENCY_KEY_REUSED = new CreateCertificateError(472, "The Idempotency-Key was already used for a different request", HttpStatus.UNPROCESSABLE_ENTITY);
+    public static final CreateCertificateError RATE_LIMIT_EXCEEDED = new CreateCertificateError(473, "Too many requests, please retry later.", HttpStatus.TOO_MANY_REQUESTS);
+    public static final RevocationError INVALID_REVOCATION_LIST_BUCKET = new RevocationError(474, "Invalid revocation list bucket.", HttpStatus.BAD_REQUEST);
+    public static final RevocationError INVALID_REVOCATION_STATUS_REQUEST = new RevocationError(475, "Invalid revocation status request! Must contain at least one and at most the allowed number of UVCIs.", HttpStatus.BAD_REQUEST);
+    public static final CreateCertificateError INVALID_BATCH = new CreateCertificateError(476, "Invalid batch! Must contain at least one and at most the allowed number of items, each with exactly one certificate.", HttpStatus.BAD_REQUEST);
+    public static final CreateCertificateError BATCH_JOB_NOT_FOUND = new CreateCertificateError(477, "Batch job not found.", HttpStatus.NOT_FOUND);
+    public static final CreateCertificateError INVALID_CSV = new CreateCertificateError(478, "Invalid CSV! Must be UTF-8 with a header row naming at least the columns type, familyName, givenName, dateOfBirth and language.", HttpStatus.BAD_REQUEST);
+    public static final CreateCertificateError INVALID_CSV_ROW = new CreateCertificateError(479, "Invalid CSV row! Must have a value for every column of the header, a type of test or vaccination, ISO dates and whole numbers.", HttpStatus.BAD_REQUEST);
 
     public static final RevocationError DUPLICATE_UVCI = new RevocationError(480, "Duplicate UVCI.", HttpStatus.CONFLICT);
+    public static final CreateCertificateError IDEMPOTENCY_KEY_IN_PROGRESS = new CreateCertificateError(481, "A request with this Idempotency-Key is still being processed, please retry later.", HttpStatus.CONFLICT);
 
     public static final CreateCertificateError CREATE_COSE_PROTECTED_HEADER_FAILED = new CreateCertificateError(550, "Creating COSE protected header failed.", HttpStatus.INTERNAL_SERVER_ERROR);
     public static final CreateCertificateError CREATE_COSE_PAYLOAD_FAILED = new CreateCertificateError(551, "Creating COSE payload failed.", HttpStatus.INTERNAL_SERVER_ERROR);
@@ -70,4 +84,11 @@ public class Constants {
     public static final CreateCertificateError CREATE_SIGNATURE_FAILED = new CreateCertificateError(553, "Creating signature failed.", HttpStatus.INTERNAL_SERVER_ERROR);
     public static final CreateCertificateError CREATE_COSE_SIGN1_FAILED = new CreateCertificateError(554, "Creating COSE_Sign1 failed.", HttpStatus.INTERNAL_SERVER_ERROR);
     public static final CreateCertificateError CREATE_BARCODE_FAILED = new CreateCertificateError(555, "Creating barcode failed.", HttpStatus.INTERNAL_SERVER_ERROR);
+    public static final CreateCertificateError PDF_RENDERING_BUSY = new CreateCertificateError(556, "Too many certificate documents are being created, please retry later.", HttpStatus.SERVICE_UNAVAILABLE);
+    public static final RevocationError SIGNED_REVOCATION_LIST_UNAVAILABLE = new RevocationError(557, "The signed revocation list is not available yet, please retry later.", HttpStatus.SERVICE_UNAVAILABLE);
+    public static final CreateCertificateError BATCH_JOBS_BUSY = new CreateCertificateError(558, "Too many batch items are waiting to be processed, please retry later.", HttpStatus.SERVICE_UNAVAILABLE);
+    public static final CreateCertificateError CREATE_BATCH_JOB_FAILED = new CreateCertificateError(559, "Storing the batch job failed.", HttpStatus.INTERNAL_SERVER_ERROR);
+    public static final CreateCertificateError CREATE_BATCH_ITEM_FAILED = new CreateCertificateError(560, "Creating certificate failed.", HttpStatus.INTERNAL_SERVER_ERROR);
+    public static final CreateCertificateError CERTIFICATE_EXECUTION_BUSY = new CreateCertificateError(561, "Too many certificates are being created, please retry later.", HttpStatus.SERVICE_UNAVAILABLE);
+    public static final RevocationError REVOCATIONS_LOADING = new RevocationError(562, "The revocations are being loaded, please retry later.", HttpStatus.SERVICE_UNAVAILABLE);
 }
@@ -41,7 +41,10 @@ public class RecoveryCertificateQrCodeMapper {
                 DateHelper.calculateValidFrom(recoveryCertificateDataDto.getDateOfFirstPositiveTestResult()),
                 DateHelper.calculateValidUntil(recoveryCertificateDataDto.getDateOfFirstPositiveTestResult()),
                 ISSUER,
-                UVCI.generateUVCI(recoveryCertificateDataDto.toString())
+                UVCI.generateUVCI(
+                        recoveryCertificateDataDto.getDateOfFirstPositiveTestResult(),
+                        recoveryCertificateDataDto.getCountryOfTest()
+                )
         );
     }
 }
@@ -56,7 +56,13 @@ public class TestCertificateQrCodeMapper {
                 testCertificateDataDto.getTestingCentreOrFacility(),
                 testCertificateDataDto.getMemberStateOfTest(),
                 ISSUER,
-                UVCI.generateUVCI(testCertificateDataDto.toString())
+                UVCI.generateUVCI(
+                        testCertificateDataDto.getManufacturerCode(),
+                        testCertificateDataDto.getTypeCode(),
+                        testCertificateDataDto.getSampleDateTime(),
+                        testCertificateDataDto.getTestingCentreOrFacility(),
+                        testCertificateDataDto.getMemberStateOfTest()
+                )
         );
     }
 }
@@ -60,7 +60,13 @@ public class VaccinationCertificateQrCodeMapper {
                 vaccinationCertificateDataDto.getVaccinationDate(),
                 vaccinationCertificateDataDto.getCountryOfVaccination(),
                 ISSUER,
-                UVCI.generateUVCI(vaccinationCertificateDataDto.toString())
+                UVCI.generateUVCI(
+                        vaccinationCertificateDataDto.getMedicinalProductCode(),
+                        vaccinationCertificateDataDto.getNumberOfDoses(),
+                        vaccinationCertificateDataDto.getTotalNumberOfDoses(),
+                        vaccinationCertificateDataDto.getVaccinationDate(),
+                        vaccinationCertificateDataDto.getCountryOfVaccination()
+                )
         );
     }
 }
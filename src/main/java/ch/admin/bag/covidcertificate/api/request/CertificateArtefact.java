@@ -0,0 +1,26 @@
+package ch.admin.bag.covidcertificate.api.request;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Artefacts which can be requested when creating a certificate. Only the stages needed for the requested artefacts
+ * are executed, e.g. no PDF is rendered if {@link #PDF} is not requested.
+ */
+public enum CertificateArtefact {
+    /**
+     * The raw HC1 string encoded in the QR code.
+     */
+    PAYLOAD,
+    /**
+     * The QR code as PNG image.
+     */
+    QR_CODE,
+    /**
+     * The certificate as PDF document.
+     */
+    PDF;
+
+    public static final Set<CertificateArtefact> DEFAULT_ARTEFACTS = Collections.unmodifiableSet(EnumSet.of(QR_CODE, PDF));
+}
@@ -0,0 +1,28 @@
+package ch.admin.bag.covidcertificate.api.request;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_BATCH;
+
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@Slf4j
+public class CertificateBatchCreateDto {
+    private List<CertificateBatchItemDto> items;
+
+    /**
+     * Checks the size of the batch only, the certificates are validated one by one while the batch is processed.
+     */
+    public void validate(int maxItems) {
+        if (items == null || items.isEmpty() || items.size() > maxItems
+                || items.stream().anyMatch(item -> item == null || !item.hasExactlyOneCertificate())) {
+            log.info("Validate batch with {} items failed.", items == null ? 0 : items.size());
+            throw new CreateCertificateException(INVALID_BATCH);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ch.admin.bag.covidcertificate.api.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import java.util.stream.Stream;
+
+/**
+ * One certificate of a batch, exactly one of the certificates must be given.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class CertificateBatchItemDto {
+    private VaccinationCertificateCreateDto vaccination;
+    private TestCertificateCreateDto test;
+    private RecoveryCertificateCreateDto recovery;
+
+    @JsonIgnore
+    public CertificateCreateDto getCertificate() {
+        return vaccination != null ? vaccination : test != null ? test : recovery;
+    }
+
+    @JsonIgnore
+    public boolean hasExactlyOneCertificate() {
+        return Stream.of(vaccination, test, recovery).filter(certificate -> certificate != null).count() == 1;
+    }
+}
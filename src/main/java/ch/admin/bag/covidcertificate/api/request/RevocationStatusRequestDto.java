@@ -0,0 +1,28 @@
+package ch.admin.bag.covidcertificate.api.request;
+
+import ch.admin.bag.covidcertificate.api.exception.RevocationException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Objects;
+
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_REVOCATION_STATUS_REQUEST;
+
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@Slf4j
+public class RevocationStatusRequestDto {
+    private List<String> uvcis;
+
+    public void validate(int maxUvcis) {
+        if (uvcis == null || uvcis.isEmpty() || uvcis.size() > maxUvcis || uvcis.stream().anyMatch(Objects::isNull)) {
+            log.info("Validate revocation status request with {} UVCIs failed.", uvcis == null ? 0 : uvcis.size());
+            throw new RevocationException(INVALID_REVOCATION_STATUS_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ch.admin.bag.covidcertificate.api.response;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class CertificateBatchJobDto {
+    private UUID jobId;
+    private CertificateBatchJobStatus status;
+    private int total;
+    private int succeeded;
+    private int failed;
+}
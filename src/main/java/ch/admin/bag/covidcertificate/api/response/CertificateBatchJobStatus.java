@@ -0,0 +1,6 @@
+package ch.admin.bag.covidcertificate.api.response;
+
+public enum CertificateBatchJobStatus {
+    RUNNING,
+    COMPLETED
+}
@@ -1,5 +1,6 @@
 package ch.admin.bag.covidcertificate.api.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 @Getter
@@ -7,8 +8,10 @@ import lombok.*;
 @EqualsAndHashCode
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class CovidCertificateCreateResponseDto {
     private byte[] pdf;
     private byte[] qrCode;
     private String uvci;
+    private String payload;
 }
@@ -0,0 +1,16 @@
+package ch.admin.bag.covidcertificate.api.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class RevocationListBucketDto {
+    private int index;
+    private String version;
+    private List<String> uvcis;
+}
@@ -0,0 +1,14 @@
+package ch.admin.bag.covidcertificate.api.response;
+
+import lombok.*;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class RevocationListBucketVersionDto {
+    private int index;
+    private String version;
+    private int size;
+}
@@ -0,0 +1,16 @@
+package ch.admin.bag.covidcertificate.api.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class RevocationListManifestDto {
+    private int bucketBits;
+    private String version;
+    private List<RevocationListBucketVersionDto> buckets;
+}
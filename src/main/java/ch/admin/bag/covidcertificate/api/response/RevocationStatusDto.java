@@ -0,0 +1,13 @@
+package ch.admin.bag.covidcertificate.api.response;
+
+import lombok.*;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class RevocationStatusDto {
+    private String uvci;
+    private boolean revoked;
+}
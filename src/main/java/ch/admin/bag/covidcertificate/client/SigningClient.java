@@ -3,4 +3,10 @@ package ch.admin.bag.covidcertificate.client;
 public interface SigningClient {
 
      byte[] create(byte[] payload);
+
+     /**
+      * Opens the connection to the signing service ahead of the first real request. Does nothing by default.
+      */
+     default void warmup() {
+     }
 }
@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
@@ -15,7 +16,7 @@ import java.util.Collections;
 
 @Service
 @Slf4j
-@Profile("!" + ProfileRegistry.SIGNING_SERVICE_MOCK)
+@Profile("!" + ProfileRegistry.SIGNING_SERVICE_MOCK + " & !" + ProfileRegistry.SIGNING_SERVICE_LOCAL)
 public class DefaultSigningClient implements SigningClient {
 
 
@@ -43,4 +44,17 @@ public class DefaultSigningClient implements SigningClient {
             throw e;
         }
     }
+
+    @Override
+    public void warmup() {
+        log.info("Open connection to signing service with url {}", url);
+        try {
+            restTemplate.optionsForAllow(this.url);
+        } catch (HttpStatusCodeException e) {
+            // The connection is established at this point, the response itself does not matter.
+            log.debug("Signing service {} answered warmup request with status {}.", url, e.getStatusCode());
+        } catch (RestClientException e) {
+            log.warn("Connection with signing service {} could not be established during warmup.", url, e);
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package ch.admin.bag.covidcertificate.client.internal;
+
+import ch.admin.bag.covidcertificate.client.SigningClient;
+import ch.admin.bag.covidcertificate.config.ProfileRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.security.*;
+import java.security.cert.CertificateException;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+
+import static ch.admin.bag.covidcertificate.util.KeyStoreHelper.loadKeyStore;
+
+/**
+ * Signs in process with RSASSA-PSS/SHA-256, the algorithm declared in the protected header by the CBORService.
+ * Intended for load tests and as fallback, the key is read from a PKCS#12 keystore.
+ */
+@Slf4j
+@Service
+@Profile(ProfileRegistry.SIGNING_SERVICE_LOCAL)
+public class LocalSigningClient implements SigningClient {
+    private static final String SIGNATURE_ALGORITHM = "RSASSA-PSS";
+    // Salt length equals the hash length, as required by COSE for PS256.
+    private static final PSSParameterSpec PSS_PARAMETER_SPEC = new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1);
+
+    private final PrivateKey privateKey;
+    // Signature instances are not thread safe, each worker thread keeps its own initialised instance.
+    private final ThreadLocal<Signature> signature = ThreadLocal.withInitial(this::createSignature);
+
+    @Autowired
+    public LocalSigningClient(@Value("${cc-management-service.local-signing.key-store}") String keyStore,
+                              @Value("${cc-management-service.local-signing.key-store-password}") String keyStorePassword,
+                              @Value("${cc-management-service.local-signing.key-alias}") String keyAlias,
+                              @Value("${cc-management-service.local-signing.key-password}") String keyPassword)
+            throws IOException, CertificateException, NoSuchAlgorithmException, KeyStoreException, UnrecoverableKeyException {
+        this(loadPrivateKey(keyStore, keyStorePassword, keyAlias, keyPassword));
+    }
+
+    LocalSigningClient(PrivateKey privateKey) {
+        this.privateKey = privateKey;
+        // Fail at startup if the key can not be used for RSASSA-PSS.
+        createSignature();
+    }
+
+    private static PrivateKey loadPrivateKey(String keyStore, String keyStorePassword, String keyAlias, String keyPassword)
+            throws IOException, CertificateException, NoSuchAlgorithmException, KeyStoreException, UnrecoverableKeyException {
+        Key key = loadKeyStore(keyStore, keyStorePassword.toCharArray()).getKey(keyAlias, keyPassword.toCharArray());
+        if (!(key instanceof PrivateKey)) {
+            throw new IllegalStateException(String.format("Keystore does not contain a private key with alias %s", keyAlias));
+        }
+        return (PrivateKey) key;
+    }
+
+    private Signature createSignature() {
+        try {
+            Signature instance = Signature.getInstance(SIGNATURE_ALGORITHM);
+            instance.setParameter(PSS_PARAMETER_SPEC);
+            instance.initSign(privateKey);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Local signing could not be initialised", e);
+        }
+    }
+
+    @Override
+    public byte[] create(byte[] payload) {
+        log.debug("Sign payload locally");
+        try {
+            Signature instance = signature.get();
+            instance.update(payload);
+            return instance.sign();
+        } catch (SignatureException e) {
+            // A failed instance may be left in an undefined state, so it is not reused.
+            signature.remove();
+            throw new IllegalStateException("Local signing failed", e);
+        }
+    }
+}
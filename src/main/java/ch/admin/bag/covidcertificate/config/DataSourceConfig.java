@@ -0,0 +1,73 @@
+package ch.admin.bag.covidcertificate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * With a replica configured, read-only transactions use a pool of their own on the replica, so reading revocations
+ * does not take connections from the creation of certificates. Without one, the data source of Spring Boot is used.
+ * The health of the service only depends on the primary, the replica is reported as a detail.
+ */
+@Configuration
+@ConditionalOnExpression("!'${cc-management-service.datasource.replica.url:}'.isEmpty()")
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(autowireCandidate = false)
+    @ConfigurationProperties("cc-management-service.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("cc-management-service.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource() {
+        return replicaDataSourceProperties().initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 Clock clock,
+                                 @Value("${cc-management-service.datasource.replica.retry-delay-seconds:30}") long retryDelaySeconds) {
+        return new LazyConnectionDataSourceProxy(new ReadOnlyRoutingDataSource(primary, replica, Duration.ofSeconds(retryDelaySeconds), clock));
+    }
+
+    /**
+     * Replaces the health check of every data source bean, the service keeps working on the primary without replica.
+     */
+    @Bean
+    public HealthIndicator dbHealthIndicator(@Qualifier("primaryDataSource") DataSource primary,
+                                             @Qualifier("replicaDataSource") DataSource replica) {
+        HealthIndicator primaryHealth = new DataSourceHealthIndicator(primary);
+        HealthIndicator replicaHealth = new DataSourceHealthIndicator(replica);
+        return () -> {
+            Health health = primaryHealth.health();
+            return Health.status(health.getStatus())
+                    .withDetails(health.getDetails())
+                    .withDetail("replica", replicaHealth.health().getStatus().getCode())
+                    .build();
+        };
+    }
+}
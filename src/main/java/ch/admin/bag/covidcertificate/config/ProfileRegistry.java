@@ -7,4 +7,5 @@ import lombok.NoArgsConstructor;
 public class ProfileRegistry {
 
     public static final String SIGNING_SERVICE_MOCK = "mock-signing-service";
+    public static final String SIGNING_SERVICE_LOCAL = "local-signing-service";
 }
@@ -0,0 +1,58 @@
+package ch.admin.bag.covidcertificate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Hands out connections of the replica within read-only transactions, and of the primary otherwise. If the replica
+ * cannot be reached, the primary is used and the replica only tried again after the retry delay. Must be wrapped in a
+ * {@link LazyConnectionDataSourceProxy}, the transaction managers fetch the connection before the read-only flag of
+ * the transaction is set.
+ */
+@Slf4j
+public class ReadOnlyRoutingDataSource extends AbstractDataSource {
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Duration retryDelay;
+    private final Clock clock;
+
+    private volatile Instant replicaRetryAt = Instant.MIN;
+
+    public ReadOnlyRoutingDataSource(DataSource primary, DataSource replica, Duration retryDelay, Clock clock) {
+        this.primary = primary;
+        this.replica = replica;
+        this.retryDelay = retryDelay;
+        this.clock = clock;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || clock.instant().isBefore(replicaRetryAt)) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            replicaRetryAt = clock.instant().plus(retryDelay);
+            log.warn("Getting a connection of the replica failed, using the primary for {}.", retryDelay, e);
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * Always uses the primary, the credentials are those of the primary.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+}
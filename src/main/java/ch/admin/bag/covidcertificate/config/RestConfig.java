@@ -11,12 +11,12 @@ import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 import javax.net.ssl.SSLContext;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.time.Duration;
-import java.util.Base64;
+
+import static ch.admin.bag.covidcertificate.util.KeyStoreHelper.loadKeyStore;
 
 @Configuration
 public class RestConfig {
@@ -74,16 +74,4 @@ public class RestConfig {
 
         return new RestTemplate(requestFactory);
     }
-
-    private KeyStore loadKeyStore(String base64Keystore,
-                                  final char[] storePassword) throws KeyStoreException, IOException, CertificateException, NoSuchAlgorithmException {
-        KeyStore keyStoreInstance = KeyStore.getInstance(KeyStore.getDefaultType());
-
-        try (ByteArrayInputStream inStream = new ByteArrayInputStream(base64Keystore.getBytes())) {
-            var decodedKeystoreInputStream = Base64.getMimeDecoder().wrap(inStream);
-            keyStoreInstance.load(decodedKeystoreInputStream, storePassword);
-        }
-
-        return keyStoreInstance;
-    }
 }
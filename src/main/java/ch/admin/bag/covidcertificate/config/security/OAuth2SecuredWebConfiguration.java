@@ -1,18 +1,24 @@
 package ch.admin.bag.covidcertificate.config.security;
 
 import ch.admin.bag.covidcertificate.config.security.validation.AudienceJwtValidator;
+import ch.admin.bag.covidcertificate.config.security.validation.CachingJwtDecoder;
 import ch.admin.bag.covidcertificate.config.security.authentication.JeapAuthenticationContext;
 import ch.admin.bag.covidcertificate.config.security.authentication.JeapAuthenticationConverter;
 import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
 import ch.admin.bag.covidcertificate.config.security.validation.ContextIssuerJwtValidator;
 import ch.admin.bag.covidcertificate.config.security.validation.JeapJwtDecoderFactory;
+import ch.admin.bag.covidcertificate.config.security.validation.RefreshingJwkSource;
 import com.nimbusds.oauth2.sdk.util.StringUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -27,7 +33,9 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.web.client.RestTemplate;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
@@ -69,6 +77,23 @@ public class OAuth2SecuredWebConfiguration {
     public static class OAuth2SecuredWebMvcConfiguration extends WebSecurityConfigurerAdapter {
 
         private final OAuth2SecuredWebCommonConfigurationProperties commonConfiguration;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final Clock clock;
+
+        @Value("${cc-management-service.jwt-cache.max-size:1000}")
+        private long jwtCacheMaxSize;
+
+        @Value("${cc-management-service.jwt-cache.max-ttl-seconds:300}")
+        private long jwtCacheMaxTimeToLive;
+
+        @Value("${cc-management-service.jwk-set.refresh-interval-seconds:300}")
+        private long jwkSetRefreshInterval;
+
+        @Value("${cc-management-service.jwk-set.min-refetch-interval-seconds:30}")
+        private long jwkSetMinRefetchInterval;
+
+        @Value("${cc-management-service.jwk-set.timeout-seconds:5}")
+        private long jwkSetTimeout;
 
         @Override
         public void configure(HttpSecurity http) throws Exception {
@@ -100,9 +125,21 @@ public class OAuth2SecuredWebConfiguration {
             return new ServletJeapAuthorization();
         }
 
-        private JwtDecoder createJwtDecoder() {
+        @Bean(initMethod = "start", destroyMethod = "close")
+        public RefreshingJwkSource jwkSource() {
             final String authorizationJwkSetUri = commonConfiguration.getResourceServer().getAuthorizationServer().getJwkSetUri();
-            return JeapJwtDecoderFactory.createJwtDecoder(authorizationJwkSetUri, createTokenValidator(commonConfiguration));
+            RestTemplate restTemplate = new RestTemplateBuilder()
+                    .setConnectTimeout(Duration.ofSeconds(jwkSetTimeout))
+                    .setReadTimeout(Duration.ofSeconds(jwkSetTimeout))
+                    .build();
+            return new RefreshingJwkSource(restTemplate, authorizationJwkSetUri, Duration.ofSeconds(jwkSetRefreshInterval),
+                    Duration.ofSeconds(jwkSetMinRefetchInterval), clock);
+        }
+
+        private JwtDecoder createJwtDecoder() {
+            JwtDecoder jwtDecoder = JeapJwtDecoderFactory.createJwtDecoder(jwkSource(), createTokenValidator(commonConfiguration));
+            return new CachingJwtDecoder(jwtDecoder, jwtCacheMaxSize, Duration.ofSeconds(jwtCacheMaxTimeToLive),
+                    clock, meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
         }
     }
 
@@ -0,0 +1,78 @@
+package ch.admin.bag.covidcertificate.config.security.validation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps successfully decoded and validated tokens for a while, so a bearer token sent with many requests is
+ * verified only once. Entries are keyed by a hash of the token and never outlive the expiration of the token.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    static final String CACHE_METRIC = "jwt.cache.requests";
+
+    private final JwtDecoder delegate;
+    private final Clock clock;
+    private final Cache<String, Jwt> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, Duration maxTimeToLive, Clock clock, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxTimeToLive.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        this.hits = meterRegistry.counter(CACHE_METRIC, "result", "hit");
+        this.misses = meterRegistry.counter(CACHE_METRIC, "result", "miss");
+        meterRegistry.gauge("jwt.cache.size", cache, Cache::size);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+        Jwt jwt = cache.getIfPresent(key);
+        if (jwt != null) {
+            if (isValid(jwt)) {
+                hits.increment();
+                return jwt;
+            }
+            cache.invalidate(key);
+        }
+        misses.increment();
+        jwt = delegate.decode(token);
+        if (isValid(jwt)) {
+            cache.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    private boolean isValid(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        return expiresAt == null || clock.instant().isBefore(expiresAt);
+    }
+
+    private String hash(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,17 +1,35 @@
 package ch.admin.bag.covidcertificate.config.security.validation;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
 import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 
+import java.util.Set;
+
 public class JeapJwtDecoderFactory {
 
     public static JwtDecoder createJwtDecoder(String authorizationServerJwkSetUri, OAuth2TokenValidator<Jwt> jwtValidator) {
         return createDefaultJwtDecoder(authorizationServerJwkSetUri, jwtValidator);
     }
 
+    public static JwtDecoder createJwtDecoder(JWKSource<SecurityContext> jwkSource, OAuth2TokenValidator<Jwt> jwtValidator) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(Set.of(JWSAlgorithm.RS256, JWSAlgorithm.RS512), jwkSource));
+        // Claims are validated by the jwtValidator, like NimbusJwtDecoder.withJwkSetUri does
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        jwtDecoder.setJwtValidator(jwtValidator);
+        return jwtDecoder;
+    }
+
     private static JwtDecoder createDefaultJwtDecoder(String jwkSetUri, OAuth2TokenValidator<Jwt> jwtValidator) {
         NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.
                 withJwkSetUri(jwkSetUri).
@@ -0,0 +1,119 @@
+package ch.admin.bag.covidcertificate.config.security.validation;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestOperations;
+
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the JWK set of the authorization server, so tokens are verified without fetching keys on the request thread.
+ * The set is fetched when started and refreshed in the background; if a refresh fails, the previous keys are kept.
+ * A token with an unknown key id triggers a fetch on the request thread, at most once per minimal refetch interval.
+ */
+@Slf4j
+public class RefreshingJwkSource implements JWKSource<SecurityContext>, AutoCloseable {
+
+    private final RestOperations restOperations;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+    private final Duration minRefetchInterval;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jwk-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile JWKSet jwkSet;
+    // Guarded by this
+    private Instant lastFetch;
+
+    public RefreshingJwkSource(RestOperations restOperations, String jwkSetUri, Duration refreshInterval,
+                               Duration minRefetchInterval, Clock clock) {
+        this.restOperations = restOperations;
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = refreshInterval;
+        this.minRefetchInterval = minRefetchInterval;
+        this.clock = clock;
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::refreshInBackground, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        JWKSet current = jwkSet;
+        if (current != null) {
+            List<JWK> keys = jwkSelector.select(current);
+            if (!keys.isEmpty()) {
+                return keys;
+            }
+        }
+        // The authorization server might have rotated its keys
+        return jwkSelector.select(refetch(current));
+    }
+
+    private synchronized JWKSet refetch(JWKSet seen) throws KeySourceException {
+        if (jwkSet != seen) {
+            return jwkSet;
+        }
+        if (lastFetch == null || !clock.instant().isBefore(lastFetch.plus(minRefetchInterval))) {
+            try {
+                refresh();
+            } catch (KeySourceException e) {
+                log.warn("Could not refetch JWK set, keeping the previous keys", e);
+            }
+        }
+        if (jwkSet == null) {
+            throw new KeySourceException("No JWK set available from " + jwkSetUri);
+        }
+        return jwkSet;
+    }
+
+    synchronized void refresh() throws KeySourceException {
+        lastFetch = clock.instant();
+        String response;
+        try {
+            response = restOperations.getForObject(jwkSetUri, String.class);
+        } catch (RestClientException e) {
+            throw new KeySourceException("Could not fetch JWK set from " + jwkSetUri, e);
+        }
+        if (response == null) {
+            throw new KeySourceException("Empty JWK set response from " + jwkSetUri);
+        }
+        try {
+            jwkSet = JWKSet.parse(response);
+        } catch (ParseException e) {
+            throw new KeySourceException("Could not parse JWK set from " + jwkSetUri, e);
+        }
+        log.debug("Fetched JWK set with {} keys", jwkSet.getKeys().size());
+    }
+
+    private void refreshInBackground() {
+        try {
+            refresh();
+        } catch (KeySourceException e) {
+            log.warn("Could not refresh JWK set, keeping the previous keys", e);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package ch.admin.bag.covidcertificate.domain;
 
+import ch.admin.bag.covidcertificate.util.UVCI;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -16,10 +18,20 @@ public class Revocation {
     @GeneratedValue(strategy = GenerationType.AUTO)
     UUID id;
     String uvci;
+    byte[] uvciOpaque;
     @Column(insertable = false)
     LocalDateTime creationDateTime;
 
     public Revocation(String uvci) {
         this.uvci = uvci;
+        this.uvciOpaque = toUvciOpaque(uvci);
+    }
+
+    /**
+     * The indexed form of the UVCI: the 12 bytes of the opaque hash, or the UTF-8 bytes of a UVCI of another form.
+     */
+    public static byte[] toUvciOpaque(String uvci) {
+        byte[] opaque = UVCI.getOpaqueBytes(uvci);
+        return opaque != null ? opaque : uvci.getBytes(StandardCharsets.UTF_8);
     }
 }
@@ -2,15 +2,28 @@ package ch.admin.bag.covidcertificate.domain;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface RevocationRepository extends JpaRepository<Revocation, UUID> {
-    Revocation findByUvci(String uvci);
+    @Transactional(readOnly = true)
+    Revocation findByUvciOpaque(byte[] uvciOpaque);
 
+    default Revocation findByUvci(String uvci) {
+        return findByUvciOpaque(Revocation.toUvciOpaque(uvci));
+    }
+
+    @Transactional(readOnly = true)
     @Query("SELECT r.uvci FROM Revocation r")
     List<String> findAllUvcis();
+
+    @Transactional(readOnly = true)
+    @Query("SELECT r.uvci FROM Revocation r WHERE r.creationDateTime >= :since")
+    List<String> findUvcisCreatedSince(@Param("since") LocalDateTime since);
 }
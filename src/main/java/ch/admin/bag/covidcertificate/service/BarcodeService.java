@@ -30,4 +30,13 @@ public class BarcodeService {
             throw new CreateCertificateException(CREATE_BARCODE_FAILED);
         }
     }
+
+    public String createBarcodePayload(String dgcJSON) {
+        try {
+            // Parameter expiration is not used! We have to support it because of the interface signature.
+            return dgcBarcodeEncoder.encode(CBORObject.FromJSONString(dgcJSON).EncodeToBytes(), Instant.MIN);
+        } catch (IOException | SignatureException e) {
+            throw new CreateCertificateException(CREATE_BARCODE_FAILED);
+        }
+    }
 }
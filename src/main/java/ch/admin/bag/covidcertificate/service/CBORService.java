@@ -8,6 +8,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import se.digg.dgc.signatures.cwt.support.CBORInstantConverter;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class CBORService {
@@ -24,6 +28,9 @@ public class CBORService {
     private static final Integer HCERT_CLAIM_KEY = -260;
     private static final Integer HCERT_INNER_CLAIM_KEY = 1;
     private static final String ISSUER = "CH BAG";
+    private static final String REVOCATION_LIST_CLAIM_KEY = "revocation_list";
+    private static final String REVOCATION_LIST_VERSION_KEY = "version";
+    private static final String REVOCATION_LIST_UVCIS_KEY = "uvcis";
     // Signature Data (Sig_structure)
     private static final String CONTEXT = "Signature1";
     private static final byte[] EXTERNAL_AAD = new byte[0];
@@ -59,6 +66,28 @@ public class CBORService {
         return cborObject.EncodeToBytes();
     }
 
+    /**
+     * A CWT payload holding the revocation list in a claim of its own, valid for the given duration.
+     */
+    public byte[] getRevocationListPayload(String version, List<String> uvcis, Duration validity) {
+        if (version == null || version.isBlank()) {
+            throw new IllegalArgumentException("Version must not be empty.");
+        }
+        CBORInstantConverter instantConverter = new CBORInstantConverter();
+        Instant issuedAt = coseTime.getIssuedAt();
+        CBORObject cborObject = CBORObject.NewMap();
+        cborObject.Add(ISS_CLAIM_KEY, CBORObject.FromObject(ISSUER));
+        cborObject.set(IAT_CLAIM_KEY, instantConverter.ToCBORObject(issuedAt));
+        cborObject.set(EXP_CLAIM_KEY, instantConverter.ToCBORObject(issuedAt.plus(validity)));
+        CBORObject uvciArray = CBORObject.NewArray();
+        uvcis.forEach(uvciArray::Add);
+        CBORObject revocationList = CBORObject.NewMap();
+        revocationList.Add(REVOCATION_LIST_VERSION_KEY, version);
+        revocationList.Add(REVOCATION_LIST_UVCIS_KEY, uvciArray);
+        cborObject.Add(REVOCATION_LIST_CLAIM_KEY, revocationList);
+        return cborObject.EncodeToBytes();
+    }
+
     public byte[] getSignatureData(byte[] bodyProtected, byte[] payload) {
         if (bodyProtected == null || bodyProtected.length == 0) {
             throw new IllegalArgumentException("BodyProtected must not be empty.");
@@ -6,6 +6,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.List;
+
 import static ch.admin.bag.covidcertificate.api.Constants.*;
 
 @Service
@@ -18,6 +21,16 @@ public class COSEService {
     public byte[] getCOSESign1(byte[] dgcCBOR) {
         byte[] protectedHeader = getProtectedHeader();
         byte[] payload = getPayload(dgcCBOR);
+        return sign(protectedHeader, payload);
+    }
+
+    public byte[] getRevocationListCOSESign1(String version, List<String> uvcis, Duration validity) {
+        byte[] protectedHeader = getProtectedHeader();
+        byte[] payload = getRevocationListPayload(version, uvcis, validity);
+        return sign(protectedHeader, payload);
+    }
+
+    private byte[] sign(byte[] protectedHeader, byte[] payload) {
         byte[] signatureData = getSignatureData(protectedHeader, payload);
         byte[] signature = getSignature(signatureData);
         return getCOSESign1(protectedHeader, payload, signature);
@@ -39,6 +52,14 @@ public class COSEService {
         }
     }
 
+    private byte[] getRevocationListPayload(String version, List<String> uvcis, Duration validity) {
+        try {
+            return cborService.getRevocationListPayload(version, uvcis, validity);
+        } catch (Exception e) {
+            throw new CreateCertificateException(CREATE_COSE_PAYLOAD_FAILED);
+        }
+    }
+
     private byte[] getSignatureData(byte[] protectedHeader, byte[] payload) {
         try {
             return cborService.getSignatureData(protectedHeader, payload);
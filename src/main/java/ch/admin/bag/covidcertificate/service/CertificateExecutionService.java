@@ -0,0 +1,147 @@
+package ch.admin.bag.covidcertificate.service;
+
+import brave.propagation.CurrentTraceContext;
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ch.admin.bag.covidcertificate.api.Constants.CERTIFICATE_EXECUTION_BUSY;
+
+/**
+ * Runs certificate creations either directly on the request thread (default) or, with async execution enabled, on a
+ * worker pool of their own. The servlet thread is then released while the signing service and the database are
+ * waited for, so the number of requests in progress is bounded by the worker pool and its queue instead of the
+ * servlet container threads. The pool size should match the number of concurrent calls the signing service can take.
+ * A creation still queued when its request timed out is skipped, the client has already been answered. The MDC and
+ * the trace context of the request are carried over to the worker.
+ */
+@Service
+@Slf4j
+public class CertificateExecutionService implements DisposableBean {
+    static final String QUEUE_METRIC = "certificate.execution.queue";
+    static final String ACTIVE_METRIC = "certificate.execution.active";
+    static final String SKIPPED_METRIC = "certificate.execution.skipped";
+
+    private final ThreadPoolExecutor executor;
+    private final CurrentTraceContext currentTraceContext;
+    private final Duration requestTimeout;
+    private final Counter skipped;
+
+    @Autowired
+    public CertificateExecutionService(MeterRegistry meterRegistry,
+                                       ObjectProvider<CurrentTraceContext> currentTraceContext,
+                                       @Value("${cc-management-service.async-execution.enabled:false}") boolean enabled,
+                                       @Value("${cc-management-service.async-execution.threads:64}") int threads,
+                                       @Value("${cc-management-service.async-execution.queue-capacity:1000}") int queueCapacity,
+                                       @Value("${spring.mvc.async.request-timeout:30s}") Duration requestTimeout) {
+        this(meterRegistry, currentTraceContext.getIfAvailable(), enabled, threads, queueCapacity, requestTimeout);
+    }
+
+    /**
+     * @param currentTraceContext the trace context to carry over to the workers, may be null without tracing
+     */
+    public CertificateExecutionService(MeterRegistry meterRegistry,
+                                       CurrentTraceContext currentTraceContext,
+                                       boolean enabled,
+                                       int threads,
+                                       int queueCapacity,
+                                       Duration requestTimeout) {
+        this.currentTraceContext = currentTraceContext;
+        this.requestTimeout = requestTimeout;
+        this.skipped = meterRegistry.counter(SKIPPED_METRIC);
+        if (enabled) {
+            log.info("Async certificate execution with {} threads and a queue of {}", threads, queueCapacity);
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new NamedThreadFactory());
+            executor.allowCoreThreadTimeOut(true);
+            meterRegistry.gauge(QUEUE_METRIC, executor, e -> e.getQueue().size());
+            meterRegistry.gauge(ACTIVE_METRIC, executor, ThreadPoolExecutor::getActiveCount);
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Without async execution the creation runs before this method returns and its exceptions are thrown directly.
+     * With async execution they complete the returned future.
+     *
+     * @throws CreateCertificateException with {@code CERTIFICATE_EXECUTION_BUSY} if the queue is full
+     */
+    public CompletableFuture<CovidCertificateCreateResponseDto> execute(IdempotencyService.CertificateCreation creation) throws IOException {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(creation.create());
+        }
+        CompletableFuture<CovidCertificateCreateResponseDto> result = new CompletableFuture<>();
+        long deadline = System.nanoTime() + requestTimeout.toNanos();
+        Runnable task = () -> {
+            if (result.isDone() || System.nanoTime() - deadline >= 0) {
+                log.warn("Certificate creation skipped, its request timed out while it was queued");
+                skipped.increment();
+                result.completeExceptionally(new CreateCertificateException(CERTIFICATE_EXECUTION_BUSY));
+                return;
+            }
+            try {
+                result.complete(creation.create());
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+        try {
+            executor.execute(withRequestContext(task));
+        } catch (RejectedExecutionException e) {
+            log.warn("Certificate creation rejected, {} creations are queued", executor.getQueue().size());
+            throw new CreateCertificateException(CERTIFICATE_EXECUTION_BUSY);
+        }
+        return result;
+    }
+
+    private Runnable withRequestContext(Runnable task) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        Runnable traced = currentTraceContext == null ? task : currentTraceContext.wrap(task);
+        return () -> {
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try {
+                traced.run();
+            } finally {
+                MDC.clear();
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "certificate-" + count.incrementAndGet());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ch.admin.bag.covidcertificate.service;
 
+import ch.admin.bag.covidcertificate.api.request.CertificateArtefact;
 import ch.admin.bag.covidcertificate.api.request.RecoveryCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.TestCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateCreateDto;
@@ -14,6 +15,9 @@ import org.springframework.stereotype.Service;
 import se.digg.dgc.encoding.Barcode;
 
 import java.io.IOException;
+import java.util.Set;
+
+import static ch.admin.bag.covidcertificate.api.request.CertificateArtefact.*;
 
 @Service
 @Slf4j
@@ -25,29 +29,68 @@ public class CovidCertificateGenerationService {
     private final CovidCertificateDtoMapperService covidCertificateDtoMapperService;
 
     public CovidCertificateCreateResponseDto generateCovidCertificate(VaccinationCertificateCreateDto createDto) throws IOException {
+        return generateCovidCertificate(createDto, DEFAULT_ARTEFACTS);
+    }
+
+    public CovidCertificateCreateResponseDto generateCovidCertificate(VaccinationCertificateCreateDto createDto, Set<CertificateArtefact> artefacts) throws IOException {
+        return generateCovidCertificate(createDto, artefacts, false);
+    }
+
+    public CovidCertificateCreateResponseDto generateCovidCertificate(VaccinationCertificateCreateDto createDto, Set<CertificateArtefact> artefacts, boolean awaitRendering) throws IOException {
         VaccinationCertificateQrCode qrCodeData = covidCertificateDtoMapperService.toVaccinationCertificateQrCode(createDto);
         VaccinationCertificatePdf pdfData = covidCertificateDtoMapperService.toVaccinationCertificatePdf(createDto, qrCodeData);
-        return generateCovidCertificate(qrCodeData, pdfData, qrCodeData.getVaccinationInfo().get(0).getIdentifier());
+        return generateCovidCertificate(qrCodeData, pdfData, qrCodeData.getVaccinationInfo().get(0).getIdentifier(), artefacts, awaitRendering);
     }
 
     public CovidCertificateCreateResponseDto generateCovidCertificate(TestCertificateCreateDto createDto) throws IOException {
+        return generateCovidCertificate(createDto, DEFAULT_ARTEFACTS);
+    }
+
+    public CovidCertificateCreateResponseDto generateCovidCertificate(TestCertificateCreateDto createDto, Set<CertificateArtefact> artefacts) throws IOException {
+        return generateCovidCertificate(createDto, artefacts, false);
+    }
+
+    public CovidCertificateCreateResponseDto generateCovidCertificate(TestCertificateCreateDto createDto, Set<CertificateArtefact> artefacts, boolean awaitRendering) throws IOException {
         TestCertificateQrCode qrCodeData = covidCertificateDtoMapperService.toTestCertificateQrCode(createDto);
         TestCertificatePdf pdfData = covidCertificateDtoMapperService.toTestCertificatePdf(createDto, qrCodeData);
-        return generateCovidCertificate(qrCodeData, pdfData, qrCodeData.getTestInfo().get(0).getIdentifier());
+        return generateCovidCertificate(qrCodeData, pdfData, qrCodeData.getTestInfo().get(0).getIdentifier(), artefacts, awaitRendering);
     }
 
     public CovidCertificateCreateResponseDto generateCovidCertificate(RecoveryCertificateCreateDto createDto) throws JsonProcessingException {
+        return generateCovidCertificate(createDto, DEFAULT_ARTEFACTS);
+    }
+
+    public CovidCertificateCreateResponseDto generateCovidCertificate(RecoveryCertificateCreateDto createDto, Set<CertificateArtefact> artefacts) throws JsonProcessingException {
+        return generateCovidCertificate(createDto, artefacts, false);
+    }
+
+    public CovidCertificateCreateResponseDto generateCovidCertificate(RecoveryCertificateCreateDto createDto, Set<CertificateArtefact> artefacts, boolean awaitRendering) throws JsonProcessingException {
         RecoveryCertificateQrCode qrCodeData = covidCertificateDtoMapperService.toRecoveryCertificateQrCode(createDto);
         RecoveryCertificatePdf pdfData = covidCertificateDtoMapperService.toRecoveryCertificatePdf(createDto, qrCodeData);
-        return generateCovidCertificate(qrCodeData, pdfData, qrCodeData.getRecoveryInfo().get(0).getIdentifier());
+        return generateCovidCertificate(qrCodeData, pdfData, qrCodeData.getRecoveryInfo().get(0).getIdentifier(), artefacts, awaitRendering);
     }
 
-    private CovidCertificateCreateResponseDto generateCovidCertificate(AbstractCertificateQrCode qrCodeData, AbstractCertificatePdf pdfData, String uvci) throws JsonProcessingException {
+    /**
+     * @param awaitRendering whether to wait for a free pdf rendering place instead of failing while all are taken
+     */
+    private CovidCertificateCreateResponseDto generateCovidCertificate(AbstractCertificateQrCode qrCodeData, AbstractCertificatePdf pdfData, String uvci, Set<CertificateArtefact> artefacts, boolean awaitRendering) throws JsonProcessingException {
         String contents = objectMapper.writer().writeValueAsString(qrCodeData);
-        log.info("Create barcode");
-        Barcode code = barcodeService.createBarcode(contents);
-        log.info("Create certificate pdf");
-        byte[] pdf = covidPdfCertificateGenerationService.generateCovidCertificate(pdfData, code);
-        return new CovidCertificateCreateResponseDto(pdf, code.getImage(), uvci);
+        String payload;
+        byte[] qrCode = null;
+        if (artefacts.contains(QR_CODE)) {
+            log.info("Create barcode");
+            Barcode code = barcodeService.createBarcode(contents);
+            payload = code.getPayload();
+            qrCode = code.getImage();
+        } else {
+            log.info("Create barcode payload");
+            payload = barcodeService.createBarcodePayload(contents);
+        }
+        byte[] pdf = null;
+        if (artefacts.contains(PDF)) {
+            log.info("Create certificate pdf");
+            pdf = covidPdfCertificateGenerationService.generateCovidCertificate(pdfData, payload, awaitRendering);
+        }
+        return new CovidCertificateCreateResponseDto(pdf, qrCode, uvci, artefacts.contains(PAYLOAD) ? payload : null);
     }
 }
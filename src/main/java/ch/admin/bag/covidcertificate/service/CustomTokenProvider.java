@@ -10,9 +10,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
 import java.security.Key;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.Date;
@@ -30,6 +32,9 @@ public class CustomTokenProvider {
     private static final String TYP_CLAIM_KEY = "typ";
     private static final String AUTH_MACHINE_JWT = "authmachine+jwt";
 
+    // UUID.randomUUID() shares one SecureRandom between all threads
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(CustomTokenProvider::createRandom);
+
     @Value("${cc-management-service.jwt.token-validity}")
     private long tokenValidity;
 
@@ -39,16 +44,30 @@ public class CustomTokenProvider {
     @Value("${cc-management-service.jwt.privateKey}")
     private String privateKey;
 
+    /**
+     * RS256 (default), RS384, RS512 with an RSA key or ES256, ES384, ES512 with an EC key. ECDSA signatures are
+     * considerably cheaper to create than RSA signatures, the consumers of the token must accept the algorithm.
+     */
+    @Value("${cc-management-service.jwt.algorithm:RS256}")
+    private SignatureAlgorithm algorithm;
+
     private Key signingKey;
 
     @PostConstruct
     public void init() throws NoSuchAlgorithmException {
-        final KeyFactory rsa = KeyFactory.getInstance("RSA");
+        final KeyFactory keyFactory;
+        if (algorithm.isRsa()) {
+            keyFactory = KeyFactory.getInstance("RSA");
+        } else if (algorithm.isEllipticCurve()) {
+            keyFactory = KeyFactory.getInstance("EC");
+        } else {
+            throw new IllegalStateException("Unsupported signature algorithm " + algorithm);
+        }
 
         final PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(Decoders.BASE64.decode(privateKey));
 
         try {
-            signingKey = rsa.generatePrivate(spec);
+            signingKey = keyFactory.generatePrivate(spec);
         } catch (InvalidKeySpecException e) {
             log.error("Error during generate private key", e);
             throw new IllegalStateException(e);
@@ -66,7 +85,7 @@ public class CustomTokenProvider {
         final Date now = new Date(nowMillis);
 
         final JwtBuilder builder = Jwts.builder()
-                .setId(UUID.randomUUID().toString())
+                .setId(createTokenId())
                 .setIssuer(issuer)
                 .setIssuedAt(now)
                 .setNotBefore(now)
@@ -75,10 +94,29 @@ public class CustomTokenProvider {
                 .claim(USER_EXT_ID_CLAIM_KEY, userExtId)
                 .claim(IDP_SOURCE_CLAIM_KEY, idpSource)
                 .claim(TYP_CLAIM_KEY, AUTH_MACHINE_JWT)
-                .signWith(signingKey, SignatureAlgorithm.RS256);
+                .signWith(signingKey, algorithm);
 
         builder.setExpiration(new Date(nowMillis + tokenValidity));
         return builder.compact();
     }
 
+    /**
+     * A random (version 4) UUID like {@link UUID#randomUUID()}, but drawn from a random source of the current thread.
+     */
+    private static String createTokenId() {
+        byte[] bytes = new byte[16];
+        RANDOM.get().nextBytes(bytes);
+        bytes[6] = (byte) ((bytes[6] & 0x0f) | 0x40);
+        bytes[8] = (byte) ((bytes[8] & 0x3f) | 0x80);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+
+    private static SecureRandom createRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,231 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static ch.admin.bag.covidcertificate.api.Constants.*;
+
+/**
+ * Remembers the created certificates per Idempotency-Key for a short time, so a client retrying a request gets the
+ * certificate of its first attempt instead of a new one. Concurrent requests with the same key wait for the first.
+ * The store is held in memory and bounded; failed creations are not stored, so they can be retried. The number of
+ * entries is derived from the time to live and the expected rate of requests with a key, so entries are not evicted
+ * before they expire, and the size of the stored certificates, pdfs included, is bounded in bytes. If a bound is
+ * reached anyway, the eldest completed entries are evicted, never one still being created.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    @FunctionalInterface
+    public interface CertificateCreation {
+        CovidCertificateCreateResponseDto create() throws IOException;
+    }
+
+    private final Clock clock;
+    private final ObjectMapper objectMapper;
+    private final Duration timeToLive;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Duration awaitTimeout;
+    // Insertion ordered, so with a fixed time to live the eldest entry is always the next one to expire.
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    // The size of the completed entries, guarded by entries
+    private long storedBytes;
+
+    /**
+     * @param maxEntries the bound of the store, 0 to derive it from the time to live and the expected requests per
+     *                   second
+     * @param maxBytes   the bound of the size of the stored certificates
+     */
+    public IdempotencyService(Clock clock,
+                              ObjectMapper objectMapper,
+                              @Value("${cc-management-service.idempotency.ttl-seconds:300}") long timeToLiveSeconds,
+                              @Value("${cc-management-service.idempotency.expected-requests-per-second:5}") int expectedRequestsPerSecond,
+                              @Value("${cc-management-service.idempotency.max-entries:0}") int maxEntries,
+                              @Value("${cc-management-service.idempotency.max-bytes:67108864}") long maxBytes,
+                              @Value("${cc-management-service.idempotency.await-timeout-seconds:30}") long awaitTimeoutSeconds) {
+        this.clock = clock;
+        this.objectMapper = objectMapper;
+        this.timeToLive = Duration.ofSeconds(timeToLiveSeconds);
+        this.maxEntries = maxEntries > 0 ? maxEntries : (int) Math.min(Integer.MAX_VALUE, timeToLiveSeconds * expectedRequestsPerSecond);
+        this.maxBytes = maxBytes;
+        this.awaitTimeout = Duration.ofSeconds(awaitTimeoutSeconds);
+    }
+
+    /**
+     * @param idempotencyKey the key sent by the client, may be null if the client sent none
+     * @param scope          separates the keys of different callers
+     * @param request        the request the key was sent with, compared by its JSON representation, as a key must
+     *                       not be reused for another request
+     */
+    public CovidCertificateCreateResponseDto execute(String idempotencyKey, String scope, Object request, CertificateCreation creation) throws IOException {
+        if (idempotencyKey == null) {
+            return creation.create();
+        }
+        if (!StringUtils.hasText(idempotencyKey) || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new CreateCertificateException(INVALID_IDEMPOTENCY_KEY);
+        }
+
+        String key = scope + ":" + idempotencyKey;
+        byte[] fingerprint = fingerprint(request);
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            Instant now = clock.instant();
+            removeExpired(now);
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(fingerprint, now.plus(timeToLive));
+                entries.put(key, entry);
+                owner = true;
+                if (entries.size() > maxEntries && evictEldestCompleted()) {
+                    log.warn("Idempotency store is full with {} entries, evicted an entry before it expired", maxEntries);
+                }
+            }
+        }
+
+        if (!MessageDigest.isEqual(entry.fingerprint, fingerprint)) {
+            throw new CreateCertificateException(IDEMPOTENCY_KEY_REUSED);
+        }
+        if (owner) {
+            return create(key, entry, creation);
+        }
+        log.info("Certificate for Idempotency-Key was already requested, returning the result of the first request");
+        return await(entry);
+    }
+
+    private CovidCertificateCreateResponseDto create(String key, Entry entry, CertificateCreation creation) throws IOException {
+        try {
+            CovidCertificateCreateResponseDto responseDto = creation.create();
+            entry.result.complete(responseDto);
+            synchronized (entries) {
+                if (entries.get(key) == entry) {
+                    entry.bytes = sizeOf(responseDto);
+                    storedBytes += entry.bytes;
+                    while (storedBytes > maxBytes && evictEldestCompleted()) {
+                        log.warn("Idempotency store is full with {} bytes, evicted an entry before it expired", storedBytes);
+                    }
+                }
+            }
+            return responseDto;
+        } catch (IOException | RuntimeException e) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @throws CreateCertificateException with {@code IDEMPOTENCY_KEY_IN_PROGRESS} if the first request does not
+     *                                    complete within the await timeout
+     */
+    private CovidCertificateCreateResponseDto await(Entry entry) throws IOException {
+        try {
+            return entry.result.get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.info("Certificate for Idempotency-Key is still being created after {}", awaitTimeout);
+            throw new CreateCertificateException(IDEMPOTENCY_KEY_IN_PROGRESS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return false if no entry is completed
+     */
+    private boolean evictEldestCompleted() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.result.isDone()) {
+                iterator.remove();
+                storedBytes -= entry.bytes;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeExpired(Instant now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.expiresAt.isBefore(now)) {
+                return;
+            }
+            iterator.remove();
+            storedBytes -= entry.bytes;
+        }
+    }
+
+    private byte[] fingerprint(Object request) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return md.digest(objectMapper.writeValueAsBytes(request));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long sizeOf(CovidCertificateCreateResponseDto responseDto) {
+        return (responseDto.getPdf() != null ? responseDto.getPdf().length : 0)
+                + (responseDto.getQrCode() != null ? responseDto.getQrCode().length : 0)
+                + (responseDto.getPayload() != null ? responseDto.getPayload().length() : 0);
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    long storedBytes() {
+        synchronized (entries) {
+            return storedBytes;
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] fingerprint;
+        private final Instant expiresAt;
+        private final CompletableFuture<CovidCertificateCreateResponseDto> result = new CompletableFuture<>();
+        // Set once the result is stored, guarded by entries
+        private long bytes;
+
+        private Entry(byte[] fingerprint, Instant expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
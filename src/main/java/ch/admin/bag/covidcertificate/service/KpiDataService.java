@@ -2,19 +2,46 @@ package ch.admin.bag.covidcertificate.service;
 
 import ch.admin.bag.covidcertificate.domain.KpiData;
 import ch.admin.bag.covidcertificate.domain.KpiDataRepository;
+import ch.admin.bag.covidcertificate.service.outbox.OutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
+import static ch.admin.bag.covidcertificate.api.Constants.KPI_OTP_SYSTEM_KEY;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KpiDataService {
     private final KpiDataRepository logRepository;
+    private final OutboxService outboxService;
 
     @Transactional
     public void log(KpiData kpiLog) {
         logRepository.save(kpiLog);
     }
+
+    /**
+     * Writes the KPI row and the creation event in one transaction, so the event is stored exactly when the KPI row
+     * is. Without a user only the event is written.
+     */
+    @Transactional
+    public void logCertificateCreated(LocalDateTime timestamp, String type, String uvci, String userExtId) {
+        if (userExtId != null) {
+            logRepository.save(new KpiData(timestamp, type, userExtId));
+        }
+        outboxService.certificateCreated(type, uvci, userExtId);
+    }
+
+    /**
+     * Writes the KPI row and the event of the one time password in one transaction.
+     */
+    @Transactional
+    public void logOtpCreated(LocalDateTime timestamp, String userExtId) {
+        logRepository.save(new KpiData(timestamp, KPI_OTP_SYSTEM_KEY, userExtId));
+        outboxService.otpCreated(userExtId);
+    }
 }
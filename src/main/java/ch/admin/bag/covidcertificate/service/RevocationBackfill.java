@@ -0,0 +1,83 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.domain.Revocation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Fills the compact UVCI column of the revocations created before it existed. Selects the revocations still missing
+ * it in batches in the order of the primary key, every batch in a short statement of its own, so revocations can be
+ * created meanwhile. A filled revocation is not selected again, so after a restart the backfill is done with the
+ * first batch that comes back short. Several nodes may run it at the same time, they write the same values.
+ */
+@Component
+@Slf4j
+public class RevocationBackfill {
+    private static final String SELECT = "SELECT id, uvci FROM revocation WHERE uvci_opaque IS NULL ORDER BY id LIMIT ?";
+    private static final String UPDATE = "UPDATE revocation SET uvci_opaque = ? WHERE id = ? AND uvci_opaque IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    private long filled;
+    private volatile boolean done;
+
+    public RevocationBackfill(JdbcTemplate jdbcTemplate,
+                              @Value("${cc-management-service.revocation-backfill.enabled:false}") boolean enabled,
+                              @Value("${cc-management-service.revocation-backfill.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    @Scheduled(initialDelayString = "#{${cc-management-service.revocation-backfill.interval-millis:1000}}",
+            fixedDelayString = "#{${cc-management-service.revocation-backfill.interval-millis:1000}}")
+    public synchronized void fillBatch() {
+        if (!enabled || done) {
+            return;
+        }
+        List<Row> rows = jdbcTemplate.query(SELECT, RevocationBackfill::toRow, batchSize);
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            updates.add(new Object[]{Revocation.toUvciOpaque(row.uvci), row.id});
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE, updates);
+            filled += updates.size();
+        }
+        if (rows.size() < batchSize) {
+            done = true;
+            log.info("Revocation backfill done, filled {} revocations.", filled);
+        } else {
+            log.debug("Revocation backfill filled {} revocations up to {}.", filled, rows.get(rows.size() - 1).id);
+        }
+    }
+
+    private static Row toRow(ResultSet resultSet, int rowNum) throws SQLException {
+        return new Row(resultSet.getObject(1, UUID.class), resultSet.getString(2));
+    }
+
+    private static class Row {
+        private final UUID id;
+        private final String uvci;
+
+        private Row(UUID id, String uvci) {
+            this.id = id;
+            this.uvci = uvci;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.util.UVCI;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The revoked UVCIs split into 2^bits buckets by the leading bits of their opaque part, which is a uniformly
+ * distributed hash in hex. Opaque parts not starting with two hex digits are placed by the leading bits of their
+ * SHA-256 hash instead. Every bucket has a version derived from its content only, so all nodes holding the same
+ * UVCIs report the same versions, and a revocation changes the version of a single bucket.
+ */
+class RevocationBuckets {
+    static final int MAX_BITS = 8;
+    private static final HashFunction VERSION_HASH = Hashing.murmur3_128();
+
+    @Getter
+    private final int bits;
+    private final Bucket[] buckets;
+
+    RevocationBuckets(int bits) {
+        if (bits < 0 || bits > MAX_BITS) {
+            throw new IllegalArgumentException("Bucket bits must be between 0 and " + MAX_BITS + ": " + bits);
+        }
+        this.bits = bits;
+        this.buckets = new Bucket[1 << bits];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    static int indexOf(String uvci, int bits) {
+        String opaque = UVCI.getOpaqueString(uvci);
+        int high = opaque.length() >= 2 ? Character.digit(opaque.charAt(0), 16) : -1;
+        int low = opaque.length() >= 2 ? Character.digit(opaque.charAt(1), 16) : -1;
+        int prefix = high >= 0 && low >= 0
+                ? high << 4 | low
+                : Hashing.sha256().hashString(opaque, StandardCharsets.UTF_8).asBytes()[0] & 0xFF;
+        return prefix >>> (MAX_BITS - bits);
+    }
+
+    /**
+     * Returns whether the UVCI was not contained yet.
+     */
+    boolean add(String uvci) {
+        return buckets[indexOf(uvci, bits)].add(uvci);
+    }
+
+    boolean contains(String uvci) {
+        return buckets[indexOf(uvci, bits)].contains(uvci);
+    }
+
+    int count() {
+        return buckets.length;
+    }
+
+    Bucket get(int index) {
+        return buckets[index];
+    }
+
+    int size() {
+        int size = 0;
+        for (Bucket bucket : buckets) {
+            size += bucket.getVersion().getSize();
+        }
+        return size;
+    }
+
+    List<String> getAll() {
+        List<String> all = new ArrayList<>(size());
+        for (Bucket bucket : buckets) {
+            bucket.copyTo(all);
+        }
+        return all;
+    }
+
+    List<Version> getVersions() {
+        List<Version> versions = new ArrayList<>(buckets.length);
+        for (Bucket bucket : buckets) {
+            versions.add(bucket.getVersion());
+        }
+        return versions;
+    }
+
+    static class Bucket {
+        private final Set<String> uvcis = new HashSet<>();
+        private volatile Version version = new Version(0, 0);
+
+        synchronized boolean add(String uvci) {
+            if (!uvcis.add(uvci)) {
+                return false;
+            }
+            // A sum of the hashes does not depend on the order the UVCIs were added in
+            version = new Version(uvcis.size(), version.getDigest() + VERSION_HASH.hashString(uvci, StandardCharsets.UTF_8).asLong());
+            return true;
+        }
+
+        Version getVersion() {
+            return version;
+        }
+
+        synchronized boolean contains(String uvci) {
+            return uvcis.contains(uvci);
+        }
+
+        synchronized Content getContent() {
+            return new Content(version, new ArrayList<>(uvcis));
+        }
+
+        private synchronized void copyTo(List<String> target) {
+            target.addAll(uvcis);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    static class Version {
+        private final int size;
+        private final long digest;
+
+        /**
+         * The version over the given bucket versions, changes whenever any of them changes.
+         */
+        static Version total(List<Version> versions) {
+            int size = 0;
+            long digest = 0;
+            for (Version version : versions) {
+                size += version.getSize();
+                digest += version.getDigest();
+            }
+            return new Version(size, digest);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%x-%016x", size, digest);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    static class Content {
+        private final Version version;
+        private final List<String> uvcis;
+    }
+}
@@ -0,0 +1,166 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.api.exception.RevocationException;
+import ch.admin.bag.covidcertificate.domain.RevocationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static ch.admin.bag.covidcertificate.api.Constants.REVOCATIONS_LOADING;
+
+/**
+ * The revoked UVCIs held in memory, so that revocation reads do not query the database. Revocations of this node are
+ * added on commit, those of the other nodes when their notification arrives, see {@link RevocationNotifications}.
+ * A periodic reconciliation reads the revocations created since the last one, to catch missed notifications.
+ * With a {@link RevocationSnapshot} configured, the cache is written to disk periodically and on shutdown, and a
+ * starting node reads the snapshot and only the revocations created after its watermark. The UVCIs are kept in
+ * {@link RevocationBuckets}, so verifiers can download the parts of the list that changed. The revocations are loaded
+ * when the application is ready, reads fail with {@code REVOCATIONS_LOADING} until then.
+ */
+@Component
+@Slf4j
+public class RevocationCache implements DisposableBean {
+    static final String SIZE_METRIC = "revocation.cache.size";
+
+    private final RevocationRepository revocationRepository;
+    private final RevocationSnapshot snapshot;
+    private final Duration overlap;
+    private final Clock clock;
+    private final RevocationBuckets buckets;
+    // Start of the last reconciliation, null until the revocations are loaded
+    private volatile LocalDateTime watermark;
+
+    @Autowired
+    public RevocationCache(RevocationRepository revocationRepository,
+                           RevocationSnapshot snapshot,
+                           MeterRegistry meterRegistry,
+                           Clock clock,
+                           @Value("${cc-management-service.revocation-cache.reconcile-overlap-seconds:300}") long overlapSeconds,
+                           @Value("${cc-management-service.revocation-list.bucket-bits:4}") int bucketBits) {
+        this(revocationRepository, snapshot, meterRegistry, Duration.ofSeconds(overlapSeconds), clock, bucketBits);
+    }
+
+    RevocationCache(RevocationRepository revocationRepository, RevocationSnapshot snapshot, MeterRegistry meterRegistry, Duration overlap, Clock clock, int bucketBits) {
+        this.revocationRepository = revocationRepository;
+        this.snapshot = snapshot;
+        this.overlap = overlap;
+        this.clock = clock;
+        this.buckets = new RevocationBuckets(bucketBits);
+        meterRegistry.gauge(SIZE_METRIC, List.of(), buckets, RevocationBuckets::size);
+    }
+
+    public List<String> getUvcis() {
+        return getBuckets().getAll();
+    }
+
+    public boolean contains(String uvci) {
+        return getBuckets().contains(uvci);
+    }
+
+    /**
+     * @throws RevocationException with {@code REVOCATIONS_LOADING} until the revocations are loaded
+     */
+    RevocationBuckets getBuckets() {
+        if (!isLoaded()) {
+            throw new RevocationException(REVOCATIONS_LOADING);
+        }
+        return buckets;
+    }
+
+    public boolean isLoaded() {
+        return watermark != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            reconcile();
+            log.info("Loaded {} revocations.", buckets.size());
+        } catch (RuntimeException e) {
+            log.warn("Loading the revocations failed, the next reconciliation retries.", e);
+        }
+    }
+
+    public void add(String uvci) {
+        buckets.add(uvci);
+    }
+
+    /**
+     * Adds the UVCI once the current transaction commits, or right away without a transaction.
+     */
+    public void addOnCommit(String uvci) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(uvci);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                add(uvci);
+            }
+        });
+    }
+
+    /**
+     * Loads all revocations the first time, afterwards the ones created since the previous reconciliation. The creation
+     * time is set when the inserting transaction starts, so transactions committing late and differences between the
+     * clocks are covered by reading an overlap before the watermark.
+     */
+    @Scheduled(fixedDelayString = "#{${cc-management-service.revocation-cache.reconcile-interval-seconds:60} * 1000}")
+    public synchronized void reconcile() {
+        if (watermark == null) {
+            snapshot.read().ifPresent(content -> {
+                content.getUvcis().forEach(buckets::add);
+                watermark = content.getWatermark();
+                log.info("Loaded {} revocations from the snapshot with watermark {}.", content.getUvcis().size(), watermark);
+            });
+        }
+        // In the zone JDBC reads the creation times in, which is not necessarily the zone of the clock
+        LocalDateTime start = LocalDateTime.ofInstant(clock.instant(), ZoneId.systemDefault());
+        List<String> created = watermark == null
+                ? revocationRepository.findAllUvcis()
+                : revocationRepository.findUvcisCreatedSince(watermark.minus(overlap));
+        long added = created.stream().filter(buckets::add).count();
+        if (watermark != null && added > 0) {
+            log.info("Reconciliation added {} revocations.", added);
+        }
+        watermark = start;
+    }
+
+    @Scheduled(initialDelayString = "#{${cc-management-service.revocation-cache.snapshot.interval-seconds:300} * 1000}",
+            fixedDelayString = "#{${cc-management-service.revocation-cache.snapshot.interval-seconds:300} * 1000}")
+    public void writeSnapshot() {
+        LocalDateTime current = watermark;
+        if (!snapshot.isEnabled() || current == null) {
+            return;
+        }
+        // The cache only grows, so it holds at least everything up to the watermark read before
+        List<String> currentUvcis = buckets.getAll();
+        try {
+            snapshot.write(current, currentUvcis);
+            log.debug("Wrote a snapshot of {} revocations with watermark {}.", currentUvcis.size(), current);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Writing the revocation snapshot failed.", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        writeSnapshot();
+    }
+}
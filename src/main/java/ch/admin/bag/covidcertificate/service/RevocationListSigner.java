@@ -0,0 +1,117 @@
+package ch.admin.bag.covidcertificate.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the revocation list signed as a COSE_Sign1 document in memory, so it can be downloaded and redistributed
+ * through CDNs without a call to the signing service per request. A changed list is signed once its version has been
+ * stable for the debounce delay, at the latest after the maximum delay. An unchanged list is signed again when half
+ * of the validity has passed.
+ */
+@Component
+@Slf4j
+public class RevocationListSigner {
+    private final RevocationCache revocationCache;
+    private final COSEService coseService;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration debounce;
+    private final Duration maxDelay;
+    private final Duration validity;
+
+    private volatile SignedRevocationList signed;
+    // Version seen changing last and not signed yet, with the times of its first and last change
+    private String pendingVersion;
+    private Instant firstChange;
+    private Instant lastChange;
+    private Instant retryAt = Instant.MIN;
+
+    public RevocationListSigner(RevocationCache revocationCache,
+                                COSEService coseService,
+                                Clock clock,
+                                @Value("${cc-management-service.revocation-list.signed.enabled:false}") boolean enabled,
+                                @Value("${cc-management-service.revocation-list.signed.debounce-seconds:10}") long debounceSeconds,
+                                @Value("${cc-management-service.revocation-list.signed.max-delay-seconds:60}") long maxDelaySeconds,
+                                @Value("${cc-management-service.revocation-list.signed.validity-hours:48}") long validityHours) {
+        this.revocationCache = revocationCache;
+        this.coseService = coseService;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.debounce = Duration.ofSeconds(debounceSeconds);
+        this.maxDelay = Duration.ofSeconds(maxDelaySeconds);
+        this.validity = Duration.ofHours(validityHours);
+    }
+
+    public Optional<SignedRevocationList> getSigned() {
+        return Optional.ofNullable(signed);
+    }
+
+    @Scheduled(fixedDelayString = "#{${cc-management-service.revocation-list.signed.check-interval-seconds:1} * 1000}")
+    public synchronized void refresh() {
+        Instant now = clock.instant();
+        if (!enabled || !revocationCache.isLoaded() || now.isBefore(retryAt)) {
+            return;
+        }
+        RevocationBuckets buckets = revocationCache.getBuckets();
+        String version = RevocationBuckets.Version.total(buckets.getVersions()).toString();
+        SignedRevocationList current = signed;
+        if (current != null && current.getVersion().equals(version)) {
+            pendingVersion = null;
+            if (now.isBefore(current.getRefreshAt())) {
+                return;
+            }
+        } else if (current != null) {
+            if (!version.equals(pendingVersion)) {
+                if (pendingVersion == null) {
+                    firstChange = now;
+                }
+                pendingVersion = version;
+                lastChange = now;
+            }
+            if (now.isBefore(lastChange.plus(debounce)) && now.isBefore(firstChange.plus(maxDelay))) {
+                return;
+            }
+        }
+        sign(buckets, version, now);
+    }
+
+    private void sign(RevocationBuckets buckets, String version, Instant now) {
+        List<String> uvcis = buckets.getAll();
+        if (!version.equals(RevocationBuckets.Version.total(buckets.getVersions()).toString())) {
+            // Changed while copying, the next run signs the new version
+            return;
+        }
+        // Sorted, so all nodes sign the same content for a version
+        Collections.sort(uvcis);
+        try {
+            byte[] document = coseService.getRevocationListCOSESign1(version, uvcis, validity);
+            signed = new SignedRevocationList(version, document, now.plus(validity.dividedBy(2)));
+            pendingVersion = null;
+            log.info("Signed revocation list version {} with {} revocations.", version, uvcis.size());
+        } catch (RuntimeException e) {
+            retryAt = now.plus(debounce);
+            log.warn("Signing revocation list version {} failed, retrying in {}.", version, debounce, e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class SignedRevocationList {
+        private final String version;
+        private final byte[] document;
+        private final Instant refreshAt;
+    }
+}
@@ -0,0 +1,122 @@
+package ch.admin.bag.covidcertificate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Keeps the {@link RevocationCache} of all nodes up to date with Postgres LISTEN/NOTIFY. A revocation publishes its
+ * UVCI within the inserting transaction, Postgres delivers it to the listeners on commit only. Every node listens on
+ * a connection of its own, opened outside of the pool, and adds the received UVCIs to its cache. After (re)connecting
+ * the cache is reconciled, since notifications sent while not listening are lost.
+ */
+@Component
+@Slf4j
+public class RevocationNotifications implements DisposableBean {
+    static final String CHANNEL = "revocation";
+    private static final int POLL_TIMEOUT_MILLIS = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final RevocationCache revocationCache;
+    private final boolean enabled;
+    private final long retryDelayMillis;
+
+    private volatile boolean running;
+
+    public RevocationNotifications(JdbcTemplate jdbcTemplate,
+                                   DataSourceProperties dataSourceProperties,
+                                   RevocationCache revocationCache,
+                                   @Value("${cc-management-service.revocation-cache.notifications.enabled:false}") boolean enabled,
+                                   @Value("${cc-management-service.revocation-cache.notifications.retry-delay-seconds:5}") long retryDelaySeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.revocationCache = revocationCache;
+        this.enabled = enabled;
+        this.retryDelayMillis = retryDelaySeconds * 1000;
+    }
+
+    /**
+     * Notifies all nodes of the revocation when the current transaction commits.
+     */
+    public void publish(String uvci) {
+        if (enabled) {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", (ResultSetExtractor<Void>) resultSet -> null, CHANNEL, uvci);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startListening() {
+        if (enabled) {
+            running = true;
+            Thread thread = new Thread(this::listen, "revocation-listener");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = connect()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                log.info("Listening for revocations on channel {}.", CHANNEL);
+                revocationCache.reconcile();
+                while (running) {
+                    receive(pgConnection.getNotifications(POLL_TIMEOUT_MILLIS));
+                }
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Listening for revocations failed, retrying in {} ms.", retryDelayMillis, e);
+                sleep();
+            }
+        }
+    }
+
+    /**
+     * Opens a connection of the primary database outside of the pool, the listener holds it as long as it runs.
+     */
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+    }
+
+    void receive(PGNotification[] notifications) {
+        if (notifications == null) {
+            return;
+        }
+        for (PGNotification notification : notifications) {
+            if (CHANNEL.equals(notification.getName())) {
+                revocationCache.add(notification.getParameter());
+            }
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(retryDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+    }
+}
@@ -3,21 +3,34 @@ package ch.admin.bag.covidcertificate.service;
 import ch.admin.bag.covidcertificate.api.exception.RevocationException;
 import ch.admin.bag.covidcertificate.api.mapper.RevocationMapper;
 import ch.admin.bag.covidcertificate.api.request.RevocationDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationListBucketDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationListBucketVersionDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationListManifestDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationStatusDto;
 import ch.admin.bag.covidcertificate.domain.RevocationRepository;
+import ch.admin.bag.covidcertificate.service.outbox.OutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static ch.admin.bag.covidcertificate.api.Constants.DUPLICATE_UVCI;
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_REVOCATION_LIST_BUCKET;
+import static ch.admin.bag.covidcertificate.api.Constants.SIGNED_REVOCATION_LIST_UNAVAILABLE;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RevocationService {
     private final RevocationRepository revocationRepository;
+    private final RevocationCache revocationCache;
+    private final RevocationNotifications revocationNotifications;
+    private final RevocationListSigner revocationListSigner;
+    private final OutboxService outboxService;
 
     @Transactional
     public void createRevocation(RevocationDto revocationDto) {
@@ -27,22 +40,63 @@ public class RevocationService {
                 throw new RevocationException(DUPLICATE_UVCI);
             }
             revocationRepository.saveAndFlush(RevocationMapper.toRevocation(revocationDto));
+            revocationNotifications.publish(revocationDto.getUvci());
+            outboxService.certificateRevoked(revocationDto.getUvci());
+            revocationCache.addOnCommit(revocationDto.getUvci());
             log.info("Revocation for {} created.", revocationDto.getUvci());
         } catch (RevocationException e) {
             throw e;
+        } catch (DataIntegrityViolationException e) {
+            // Inserted concurrently, or a revocation the backfill has not reached yet
+            log.info("Revocation for {} already exists.", revocationDto.getUvci());
+            throw new RevocationException(DUPLICATE_UVCI);
         } catch (Exception e) {
             log.error(String.format("Create revocation for %s failed.", revocationDto.getUvci()), e);
             throw e;
         }
     }
 
-    @Transactional(readOnly = true)
     public List<String> getRevocations() {
         try {
-            return revocationRepository.findAllUvcis();
+            return revocationCache.getUvcis();
         } catch (Exception e) {
             log.error("Get revocations failed.", e);
             throw e;
         }
     }
+
+    /**
+     * Looks the UVCIs up in the revocation cache, without a database query per UVCI.
+     */
+    public List<RevocationStatusDto> getRevocationStatus(List<String> uvcis) {
+        List<RevocationStatusDto> statuses = new ArrayList<>(uvcis.size());
+        for (String uvci : uvcis) {
+            statuses.add(new RevocationStatusDto(uvci, revocationCache.contains(uvci)));
+        }
+        return statuses;
+    }
+
+    public RevocationListManifestDto getRevocationListManifest() {
+        RevocationBuckets buckets = revocationCache.getBuckets();
+        List<RevocationBuckets.Version> versions = buckets.getVersions();
+        List<RevocationListBucketVersionDto> bucketVersions = new ArrayList<>(versions.size());
+        for (int i = 0; i < versions.size(); i++) {
+            bucketVersions.add(new RevocationListBucketVersionDto(i, versions.get(i).toString(), versions.get(i).getSize()));
+        }
+        return new RevocationListManifestDto(buckets.getBits(), RevocationBuckets.Version.total(versions).toString(), bucketVersions);
+    }
+
+    public RevocationListBucketDto getRevocationListBucket(int index) {
+        RevocationBuckets buckets = revocationCache.getBuckets();
+        if (index < 0 || index >= buckets.count()) {
+            throw new RevocationException(INVALID_REVOCATION_LIST_BUCKET);
+        }
+        RevocationBuckets.Content content = buckets.get(index).getContent();
+        return new RevocationListBucketDto(index, content.getVersion().toString(), content.getUvcis());
+    }
+
+    public RevocationListSigner.SignedRevocationList getSignedRevocationList() {
+        return revocationListSigner.getSigned()
+                .orElseThrow(() -> new RevocationException(SIGNED_REVOCATION_LIST_UNAVAILABLE));
+    }
 }
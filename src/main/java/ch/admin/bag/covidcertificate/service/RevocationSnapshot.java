@@ -0,0 +1,132 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.util.UVCI;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The revoked UVCIs on disk, so a starting node only reads the revocations created after the watermark of the
+ * snapshot. The opaque part of a UVCI is a 96 bit hash in hex, it is stored as 12 bytes, sorted. UVCIs of another
+ * form are stored as strings after the hashes. The file is replaced atomically and memory-mapped for reading. Without
+ * a configured path there is no snapshot and a starting node reads all revocations.
+ */
+@Component
+@Slf4j
+public class RevocationSnapshot {
+    private static final int MAGIC = 0x43435253;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HASH_BYTES = 12;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 4;
+
+    private final Path path;
+
+    public RevocationSnapshot(@Value("${cc-management-service.revocation-cache.snapshot.path:}") String path) {
+        this.path = StringUtils.hasText(path) ? Paths.get(path) : null;
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    public Optional<Content> read() {
+        if (path == null || !Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                log.warn("Revocation snapshot {} has an unknown format, ignoring it.", path);
+                return Optional.empty();
+            }
+            LocalDateTime watermark = LocalDateTime.ofEpochSecond(buffer.getLong(), 0, ZoneOffset.UTC).withNano(buffer.getInt());
+            int hashes = buffer.getInt();
+            int others = buffer.getInt();
+            List<String> uvcis = new ArrayList<>(hashes + others);
+            byte[] hash = new byte[HASH_BYTES];
+            for (int i = 0; i < hashes; i++) {
+                buffer.get(hash);
+                uvcis.add(UVCI.fromOpaqueBytes(hash));
+            }
+            for (int i = 0; i < others; i++) {
+                byte[] uvci = new byte[buffer.getShort()];
+                buffer.get(uvci);
+                uvcis.add(new String(uvci, StandardCharsets.UTF_8));
+            }
+            return Optional.of(new Content(watermark, uvcis));
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Revocation snapshot {} could not be read, ignoring it.", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file next to it and moves that into place, so readers see either the old or
+     * the new snapshot.
+     */
+    public void write(LocalDateTime watermark, Collection<String> uvcis) throws IOException {
+        List<byte[]> hashes = new ArrayList<>(uvcis.size());
+        List<byte[]> others = new ArrayList<>();
+        int othersBytes = 0;
+        for (String uvci : uvcis) {
+            byte[] hash = UVCI.getOpaqueBytes(uvci);
+            if (hash != null) {
+                hashes.add(hash);
+            } else {
+                byte[] other = uvci.getBytes(StandardCharsets.UTF_8);
+                others.add(other);
+                othersBytes += 2 + other.length;
+            }
+        }
+        hashes.sort(Arrays::compareUnsigned);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + hashes.size() * HASH_BYTES + othersBytes);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION)
+                .putLong(watermark.toEpochSecond(ZoneOffset.UTC)).putInt(watermark.getNano())
+                .putInt(hashes.size()).putInt(others.size());
+        hashes.forEach(buffer::put);
+        for (byte[] other : others) {
+            buffer.putShort((short) other.length).put(other);
+        }
+        buffer.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class Content {
+        private final LocalDateTime watermark;
+        private final List<String> uvcis;
+    }
+}
@@ -8,8 +8,9 @@ import org.springframework.stereotype.Service;
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
+import java.io.UncheckedIOException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -18,12 +19,25 @@ public class ValueSetsLoader {
     private ValueSetsDto valueSetsDto;
 
     @PostConstruct
-    private void loadValueSets() throws IOException {
+    private void loadValueSets() {
         if (valueSetsDto == null) {
+            // The files are independent of each other, so they are parsed in parallel.
+            CompletableFuture<CountryJson> deJson = readAsync("country-alpha-2-de", CountryJson.class);
+            CompletableFuture<CountryJson> frJson = readAsync("country-alpha-2-fr", CountryJson.class);
+            CompletableFuture<CountryJson> itJson = readAsync("country-alpha-2-it", CountryJson.class);
+            CompletableFuture<CountryJson> enJson = readAsync("country-alpha-2-en", CountryJson.class);
+            CompletableFuture<VaccinationSetJson> vaccinationJson = readAsync("covid-19-vaccines", VaccinationSetJson.class);
+            CompletableFuture<TestSetJson> testSetJson = readAsync("covid-19-tests", TestSetJson.class);
+
             valueSetsDto = new ValueSetsDto(
-                    getCountryCodes(),
-                    getVaccinationValueSet(),
-                    getTestValueSet()
+                    new CountryCodes(
+                            deJson.join().getValueSetValues(),
+                            enJson.join().getValueSetValues(),
+                            frJson.join().getValueSetValues(),
+                            itJson.join().getValueSetValues()
+                    ),
+                    vaccinationJson.join().getEntries(),
+                    testSetJson.join().getEntries()
             );
         }
     }
@@ -32,43 +46,17 @@ public class ValueSetsLoader {
         return valueSetsDto;
     }
 
-    private CountryCodes getCountryCodes() throws IOException {
-        CountryJson deJson = getCountryJson("country-alpha-2-de");
-        CountryJson frJson = getCountryJson("country-alpha-2-fr");
-        CountryJson itJson = getCountryJson("country-alpha-2-it");
-        CountryJson enJson = getCountryJson("country-alpha-2-en");
-        return new CountryCodes(
-                deJson.getValueSetValues(),
-                enJson.getValueSetValues(),
-                frJson.getValueSetValues(),
-                itJson.getValueSetValues()
-        );
-    }
-
-    private List<VaccinationValueSet> getVaccinationValueSet() throws IOException {
-        return getVaccinationJson().getEntries();
-    }
-
-    private List<TestValueSet> getTestValueSet() throws IOException {
-        return getTestSetJson().getEntries();
+    private <T> CompletableFuture<T> readAsync(String fileName, Class<T> type) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (InputStream is = getInputStream(fileName)) {
+                return objectMapper.readValue(is, type);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
     private InputStream getInputStream(String fileName) {
         return Objects.requireNonNull(ValueSetsLoader.class.getResourceAsStream(String.format("/valuesets/%s.json", fileName)));
     }
-
-    private CountryJson getCountryJson(String fileName) throws IOException {
-        InputStream is = getInputStream(fileName);
-        return objectMapper.readValue(is, CountryJson.class);
-    }
-
-    private VaccinationSetJson getVaccinationJson() throws IOException {
-        InputStream is = getInputStream("covid-19-vaccines");
-        return objectMapper.readValue(is, VaccinationSetJson.class);
-    }
-
-    private TestSetJson getTestSetJson() throws IOException {
-        InputStream is = getInputStream("covid-19-tests");
-        return objectMapper.readValue(is, TestSetJson.class);
-    }
 }
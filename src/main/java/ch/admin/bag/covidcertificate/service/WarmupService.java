@@ -0,0 +1,137 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.api.request.*;
+import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import ch.admin.bag.covidcertificate.client.SigningClient;
+import ch.admin.bag.covidcertificate.service.document.CovidPdfCertificateGenerationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import se.digg.dgc.encoding.impl.DefaultBarcodeCreator;
+import se.digg.dgc.service.impl.DefaultDGCBarcodeEncoder;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ch.admin.bag.covidcertificate.api.Constants.PCR_TYPE_CODE;
+import static ch.admin.bag.covidcertificate.api.valueset.AcceptedLanguages.*;
+
+/**
+ * Runs synthetic certificates through the generation pipeline after startup, so that the lazily initialised parts
+ * (fonts, message bundles, serializers, CBOR and QR code encoding) are ready before the first real request.
+ * The signing service is not called for these certificates, only the connection to it is opened.
+ */
+@Service
+@Slf4j
+public class WarmupService {
+    static final String WARMUP_DURATION_METRIC = "warmup.duration";
+    private static final List<String> LANGUAGES = List.of(DE, FR, IT, RM);
+    private static final String COUNTRY = "CH";
+    private static final byte[] NO_OP_SIGNATURE = new byte[256];
+
+    private final CBORService cborService;
+    private final ObjectMapper objectMapper;
+    private final CovidPdfCertificateGenerationService covidPdfCertificateGenerationService;
+    private final CovidCertificateDtoMapperService covidCertificateDtoMapperService;
+    private final ValueSetsService valueSetsService;
+    private final SigningClient signingClient;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int iterations;
+
+    private volatile boolean completed;
+
+    public WarmupService(CBORService cborService,
+                         ObjectMapper objectMapper,
+                         CovidPdfCertificateGenerationService covidPdfCertificateGenerationService,
+                         CovidCertificateDtoMapperService covidCertificateDtoMapperService,
+                         ValueSetsService valueSetsService,
+                         SigningClient signingClient,
+                         MeterRegistry meterRegistry,
+                         @Value("${cc-management-service.warmup.enabled:false}") boolean enabled,
+                         @Value("${cc-management-service.warmup.iterations:1}") int iterations) {
+        this.cborService = cborService;
+        this.objectMapper = objectMapper;
+        this.covidPdfCertificateGenerationService = covidPdfCertificateGenerationService;
+        this.covidCertificateDtoMapperService = covidCertificateDtoMapperService;
+        this.valueSetsService = valueSetsService;
+        this.signingClient = signingClient;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.completed = !enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmup() {
+        if (enabled) {
+            Thread thread = new Thread(this::warmup, "warmup");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    void warmup() {
+        log.info("Start warmup with {} iteration(s) per certificate type and language", iterations);
+        long start = System.nanoTime();
+        try {
+            signingClient.warmup();
+            CovidCertificateGenerationService generationService = createNoOpSigningGenerationService();
+            for (int i = 0; i < iterations; i++) {
+                for (String language : LANGUAGES) {
+                    serialize(generationService.generateCovidCertificate(createVaccinationCertificate(language)));
+                    serialize(generationService.generateCovidCertificate(createTestCertificate(language)));
+                    serialize(generationService.generateCovidCertificate(createRecoveryCertificate(language)));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Warmup failed, continuing without it.", e);
+        } finally {
+            long duration = System.nanoTime() - start;
+            meterRegistry.timer(WARMUP_DURATION_METRIC).record(duration, TimeUnit.NANOSECONDS);
+            completed = true;
+            log.info("Warmup finished after {} ms", TimeUnit.NANOSECONDS.toMillis(duration));
+        }
+    }
+
+    private CovidCertificateGenerationService createNoOpSigningGenerationService() {
+        COSEService coseService = new COSEService(cborService, payload -> NO_OP_SIGNATURE);
+        SwissDGCSigner signer = SwissDGCSigner.builder().coseService(coseService).build();
+        BarcodeService barcodeService = new BarcodeService(new DefaultDGCBarcodeEncoder(signer, new DefaultBarcodeCreator()));
+        return new CovidCertificateGenerationService(barcodeService, objectMapper, covidPdfCertificateGenerationService, covidCertificateDtoMapperService);
+    }
+
+    private void serialize(CovidCertificateCreateResponseDto responseDto) throws Exception {
+        objectMapper.writeValueAsBytes(responseDto);
+    }
+
+    private VaccinationCertificateCreateDto createVaccinationCertificate(String language) {
+        String medicinalProductCode = valueSetsService.getValueSets().getVaccinationSets().get(0).getMedicinalProductCode();
+        VaccinationCertificateDataDto vaccinationInfo = new VaccinationCertificateDataDto(medicinalProductCode, 2, 2, LocalDate.now().minusDays(1), COUNTRY);
+        return new VaccinationCertificateCreateDto(createPersonData(), List.of(vaccinationInfo), language);
+    }
+
+    private TestCertificateCreateDto createTestCertificate(String language) {
+        TestCertificateDataDto testInfo = new TestCertificateDataDto(null, PCR_TYPE_CODE, ZonedDateTime.now().minusHours(1), "Warmup", COUNTRY);
+        return new TestCertificateCreateDto(createPersonData(), List.of(testInfo), language);
+    }
+
+    private RecoveryCertificateCreateDto createRecoveryCertificate(String language) {
+        RecoveryCertificateDataDto recoveryInfo = new RecoveryCertificateDataDto(LocalDate.now().minusDays(20), COUNTRY);
+        return new RecoveryCertificateCreateDto(createPersonData(), List.of(recoveryInfo), language);
+    }
+
+    private CovidCertificatePersonDto createPersonData() {
+        return new CovidCertificatePersonDto(new CovidCertificatePersonNameDto("Warmup", "Warmup"), LocalDate.of(1980, 1, 1));
+    }
+}
@@ -0,0 +1,179 @@
+package ch.admin.bag.covidcertificate.service.batch;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchItemDto;
+import ch.admin.bag.covidcertificate.api.request.CovidCertificatePersonDto;
+import ch.admin.bag.covidcertificate.api.request.CovidCertificatePersonNameDto;
+import ch.admin.bag.covidcertificate.api.request.TestCertificateCreateDto;
+import ch.admin.bag.covidcertificate.api.request.TestCertificateDataDto;
+import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateCreateDto;
+import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateDataDto;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_CSV;
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_CSV_ROW;
+
+/**
+ * Reads the items of a batch from a CSV (RFC 4180) one row at a time, so uploads of any size are never held in
+ * memory. The columns are named by the header row, columns of the other certificate type may be left out. The rows
+ * are only converted here, the certificates are validated when they are created.
+ */
+class CertificateBatchCsvReader {
+    static final String TYPE = "type";
+    static final String FAMILY_NAME = "familyName";
+    static final String GIVEN_NAME = "givenName";
+    static final String DATE_OF_BIRTH = "dateOfBirth";
+    static final String LANGUAGE = "language";
+    static final String TYPE_CODE = "typeCode";
+    static final String MANUFACTURER_CODE = "manufacturerCode";
+    static final String SAMPLE_DATE_TIME = "sampleDateTime";
+    static final String TESTING_CENTRE_OR_FACILITY = "testingCentreOrFacility";
+    static final String MEMBER_STATE_OF_TEST = "memberStateOfTest";
+    static final String MEDICINAL_PRODUCT_CODE = "medicinalProductCode";
+    static final String NUMBER_OF_DOSES = "numberOfDoses";
+    static final String TOTAL_NUMBER_OF_DOSES = "totalNumberOfDoses";
+    static final String VACCINATION_DATE = "vaccinationDate";
+    static final String COUNTRY_OF_VACCINATION = "countryOfVaccination";
+    static final String TYPE_TEST = "test";
+    static final String TYPE_VACCINATION = "vaccination";
+    static final int MAX_ROW_LENGTH = 8192;
+
+    private static final List<String> REQUIRED_COLUMNS = List.of(TYPE, FAMILY_NAME, GIVEN_NAME, DATE_OF_BIRTH, LANGUAGE);
+    private static final int END_OF_INPUT = -1;
+
+    private final Reader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private int next;
+
+    /**
+     * @param reader a buffered reader, it is read one character at a time
+     */
+    CertificateBatchCsvReader(Reader reader) throws IOException {
+        this.reader = reader;
+        next = reader.read();
+        if (next == '\uFEFF') {
+            next = reader.read();
+        }
+        List<String> header = readRow();
+        if (header == null) {
+            throw new CreateCertificateException(INVALID_CSV);
+        }
+        for (int index = 0; index < header.size(); index++) {
+            columns.put(header.get(index).trim(), index);
+        }
+        if (!columns.keySet().containsAll(REQUIRED_COLUMNS) || columns.size() != header.size()) {
+            throw new CreateCertificateException(INVALID_CSV);
+        }
+    }
+
+    /**
+     * @return the fields of the next row that is not blank, null at the end of the input
+     * @throws CreateCertificateException with {@code INVALID_CSV} if a quote is not closed or a row is too long
+     */
+    List<String> readRow() throws IOException {
+        List<String> row;
+        do {
+            if (next == END_OF_INPUT) {
+                return null;
+            }
+            row = readFields();
+        } while (row.size() == 1 && row.get(0).isEmpty());
+        return row;
+    }
+
+    private List<String> readFields() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        while (true) {
+            int c = next;
+            if (c == END_OF_INPUT) {
+                if (quoted) {
+                    throw new CreateCertificateException(INVALID_CSV);
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            if (++length > MAX_ROW_LENGTH) {
+                throw new CreateCertificateException(INVALID_CSV);
+            }
+            next = reader.read();
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                } else if (next == '"') {
+                    field.append('"');
+                    next = reader.read();
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' && next == '\n') {
+                // the line feed ends the row
+            } else if (c == '\n' || c == '\r') {
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * @throws CreateCertificateException with {@code INVALID_CSV_ROW} if the row does not match the header, its type
+     *                                    is unknown or a date or number can not be parsed
+     */
+    CertificateBatchItemDto toItem(List<String> row) {
+        if (row.size() != columns.size()) {
+            throw new CreateCertificateException(INVALID_CSV_ROW);
+        }
+        try {
+            var personData = new CovidCertificatePersonDto(
+                    new CovidCertificatePersonNameDto(get(row, FAMILY_NAME), get(row, GIVEN_NAME)),
+                    get(row, DATE_OF_BIRTH, LocalDate::parse));
+            String type = get(row, TYPE);
+            if (TYPE_TEST.equalsIgnoreCase(type)) {
+                var test = new TestCertificateDataDto(get(row, MANUFACTURER_CODE), get(row, TYPE_CODE),
+                        get(row, SAMPLE_DATE_TIME, ZonedDateTime::parse), get(row, TESTING_CENTRE_OR_FACILITY), get(row, MEMBER_STATE_OF_TEST));
+                return new CertificateBatchItemDto(null, new TestCertificateCreateDto(personData, List.of(test), get(row, LANGUAGE)), null);
+            } else if (TYPE_VACCINATION.equalsIgnoreCase(type)) {
+                var vaccination = new VaccinationCertificateDataDto(get(row, MEDICINAL_PRODUCT_CODE),
+                        get(row, NUMBER_OF_DOSES, Integer::valueOf), get(row, TOTAL_NUMBER_OF_DOSES, Integer::valueOf),
+                        get(row, VACCINATION_DATE, LocalDate::parse), get(row, COUNTRY_OF_VACCINATION));
+                return new CertificateBatchItemDto(new VaccinationCertificateCreateDto(personData, List.of(vaccination), get(row, LANGUAGE)), null, null);
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            // reported as invalid row
+        }
+        throw new CreateCertificateException(INVALID_CSV_ROW);
+    }
+
+    private String get(List<String> row, String column) {
+        Integer index = columns.get(column);
+        if (index == null) {
+            return null;
+        }
+        String value = row.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private <T> T get(List<String> row, String column, Function<String, T> parser) {
+        String value = get(row, column);
+        return value == null ? null : parser.apply(value);
+    }
+}
@@ -0,0 +1,37 @@
+package ch.admin.bag.covidcertificate.service.batch;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateError;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcome of one item of a batch, either the created certificate or the error it failed with. The PDF is stored
+ * in a file of its own.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CertificateBatchItemResult {
+    private int index;
+    private String uvci;
+    @JsonIgnore
+    private byte[] pdf;
+    private Integer errorCode;
+    private String errorMessage;
+
+    static CertificateBatchItemResult succeeded(int index, String uvci, byte[] pdf) {
+        return new CertificateBatchItemResult(index, uvci, pdf, null, null);
+    }
+
+    static CertificateBatchItemResult failed(int index, CreateCertificateError error) {
+        return new CertificateBatchItemResult(index, null, null, error.getErrorCode(), error.getErrorMessage());
+    }
+
+    @JsonIgnore
+    public boolean isSucceeded() {
+        return errorCode == null;
+    }
+}
@@ -0,0 +1,24 @@
+package ch.admin.bag.covidcertificate.service.batch;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A submitted batch as stored on disk, with what is needed to process it again after a restart. The items are stored
+ * apart, one file each.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class CertificateBatchJob {
+    private UUID id;
+    private String owner;
+    private String userExtId;
+    private Instant createdAt;
+    private int size;
+}
@@ -0,0 +1,387 @@
+package ch.admin.bag.covidcertificate.service.batch;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchCreateDto;
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchItemDto;
+import ch.admin.bag.covidcertificate.api.response.CertificateBatchJobDto;
+import ch.admin.bag.covidcertificate.api.response.CertificateBatchJobStatus;
+import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import ch.admin.bag.covidcertificate.service.CovidCertificateGenerationService;
+import ch.admin.bag.covidcertificate.service.KpiDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static ch.admin.bag.covidcertificate.api.Constants.*;
+import static ch.admin.bag.covidcertificate.api.request.CertificateArtefact.DEFAULT_ARTEFACTS;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Creates the certificates of a batch on a worker pool of its own, so large batches neither hold a request open nor
+ * take the workers of single certificate requests. The job and the result of every item are stored on local disk as
+ * soon as they exist; after a restart the jobs are resumed with the items that have no result. On shutdown the items
+ * in progress are given time to complete and the queued items are left for the restart. An item whose certificate was
+ * signed but whose result was not stored when the node stopped is signed again. The jobs are kept on the node that
+ * received them, polling and downloading must reach the same node or a shared directory. Neither the submitted items
+ * nor the results are held in memory, they are read from disk one at a time. The jobs hold personal data, so batches
+ * are only offered with a directory configured for them. The workers wait for a free pdf rendering place, a busy
+ * renderer delays the items instead of failing them.
+ */
+@Service
+@ConditionalOnExpression("!'${cc-management-service.batch-jobs.directory:}'.isEmpty()")
+@Slf4j
+public class CertificateBatchJobService implements DisposableBean {
+    static final String RESULTS_FILE = "results.csv";
+
+    private final CovidCertificateGenerationService covidCertificateGenerationService;
+    private final KpiDataService kpiLogService;
+    private final CertificateBatchJobStore store;
+    private final ExecutorService executor;
+    private final Clock clock;
+    private final int maxItems;
+    private final int maxPendingItems;
+    private final Duration retention;
+    private final Duration shutdownTimeout;
+    private final AtomicInteger pendingItems = new AtomicInteger();
+    private volatile boolean stopping;
+
+    @Autowired
+    public CertificateBatchJobService(CovidCertificateGenerationService covidCertificateGenerationService,
+                                      KpiDataService kpiLogService,
+                                      ObjectMapper objectMapper,
+                                      Clock clock,
+                                      @Value("${cc-management-service.batch-jobs.directory}") Path directory,
+                                      @Value("${cc-management-service.batch-jobs.threads:4}") int threads,
+                                      @Value("${cc-management-service.batch-jobs.max-items:5000}") int maxItems,
+                                      @Value("${cc-management-service.batch-jobs.max-pending-items:20000}") int maxPendingItems,
+                                      @Value("${cc-management-service.batch-jobs.retention-hours:24}") long retentionHours,
+                                      @Value("${cc-management-service.batch-jobs.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds) throws IOException {
+        this(covidCertificateGenerationService, kpiLogService, new CertificateBatchJobStore(objectMapper, directory),
+                newExecutor(threads), clock, maxItems, maxPendingItems, Duration.ofHours(retentionHours), Duration.ofSeconds(shutdownTimeoutSeconds));
+    }
+
+    CertificateBatchJobService(CovidCertificateGenerationService covidCertificateGenerationService,
+                               KpiDataService kpiLogService,
+                               CertificateBatchJobStore store,
+                               ExecutorService executor,
+                               Clock clock,
+                               int maxItems,
+                               int maxPendingItems,
+                               Duration retention,
+                               Duration shutdownTimeout) {
+        this.covidCertificateGenerationService = covidCertificateGenerationService;
+        this.kpiLogService = kpiLogService;
+        this.store = store;
+        this.executor = executor;
+        this.clock = clock;
+        this.maxItems = maxItems;
+        this.maxPendingItems = maxPendingItems;
+        this.retention = retention;
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "certificate-batch-" + count.incrementAndGet()));
+    }
+
+    /**
+     * @param owner     the caller, only it can read the job afterwards
+     * @param userExtId the user the KPI of the created certificates are logged for, may be null
+     */
+    public CertificateBatchJobDto submit(CertificateBatchCreateDto batchDto, String owner, String userExtId) {
+        batchDto.validate(maxItems);
+        int size = batchDto.getItems().size();
+        reservePendingItems(size);
+        CertificateBatchJob job = new CertificateBatchJob(UUID.randomUUID(), owner, userExtId, clock.instant(), size);
+        try {
+            CertificateBatchJobStore.Draft draft = store.create(job.getId());
+            for (int index = 0; index < size; index++) {
+                draft.writeItem(index, batchDto.getItems().get(index));
+            }
+            draft.commit(job);
+        } catch (IOException e) {
+            pendingItems.addAndGet(-size);
+            log.error("Storing batch job with {} items failed.", size, e);
+            throw new CreateCertificateException(CREATE_BATCH_JOB_FAILED);
+        }
+        log.info("Batch job {} with {} items submitted.", job.getId(), size);
+        for (int index = 0; index < size; index++) {
+            enqueue(job, index);
+        }
+        return new CertificateBatchJobDto(job.getId(), CertificateBatchJobStatus.RUNNING, size, 0, 0);
+    }
+
+    /**
+     * Submits the rows of a CSV as a batch, see {@link CertificateBatchCsvReader} for the columns. The rows are written
+     * to disk as they are read; rows that can not be read are failed right away, the others are validated when their
+     * certificate is created. The job is only started once the whole upload is stored.
+     */
+    public CertificateBatchJobDto submitCsv(InputStream csv, String owner, String userExtId) {
+        if (pendingItems.get() >= maxPendingItems) {
+            throw new CreateCertificateException(BATCH_JOBS_BUSY);
+        }
+        CertificateBatchJob job;
+        int failed = 0;
+        CertificateBatchJobStore.Draft draft = null;
+        try {
+            draft = store.create(UUID.randomUUID());
+            CertificateBatchCsvReader reader = new CertificateBatchCsvReader(new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)));
+            int size = 0;
+            for (List<String> row = reader.readRow(); row != null; row = reader.readRow()) {
+                if (size == maxItems) {
+                    throw new CreateCertificateException(INVALID_BATCH);
+                }
+                try {
+                    draft.writeItem(size, reader.toItem(row));
+                } catch (CreateCertificateException e) {
+                    draft.writeResult(CertificateBatchItemResult.failed(size, e.getError()));
+                    failed++;
+                }
+                size++;
+            }
+            if (size == 0) {
+                throw new CreateCertificateException(INVALID_BATCH);
+            }
+            job = new CertificateBatchJob(draft.getId(), owner, userExtId, clock.instant(), size);
+            reservePendingItems(size - failed);
+            try {
+                draft.commit(job);
+            } catch (IOException e) {
+                pendingItems.addAndGet(failed - size);
+                throw e;
+            }
+        } catch (IOException e) {
+            discard(draft);
+            log.error("Storing CSV batch job failed.", e);
+            throw new CreateCertificateException(CREATE_BATCH_JOB_FAILED);
+        } catch (CreateCertificateException e) {
+            discard(draft);
+            log.info("Submit CSV batch job failed with errorCode {}.", e.getError().getErrorCode());
+            throw e;
+        }
+        log.info("Batch job {} with {} items submitted from CSV, {} rows invalid.", job.getId(), job.getSize(), failed);
+        for (int index = 0; index < job.getSize(); index++) {
+            if (!store.hasResult(job.getId(), index)) {
+                enqueue(job, index);
+            }
+        }
+        return new CertificateBatchJobDto(job.getId(), CertificateBatchJobStatus.RUNNING, job.getSize(), 0, failed);
+    }
+
+    private void reservePendingItems(int size) {
+        if (pendingItems.addAndGet(size) > maxPendingItems) {
+            pendingItems.addAndGet(-size);
+            throw new CreateCertificateException(BATCH_JOBS_BUSY);
+        }
+    }
+
+    private void discard(CertificateBatchJobStore.Draft draft) {
+        if (draft == null) {
+            return;
+        }
+        try {
+            draft.discard();
+        } catch (IOException e) {
+            log.warn("Deleting incomplete batch job {} failed.", draft.getId(), e);
+        }
+    }
+
+    public CertificateBatchJobDto getJob(UUID id, String owner) throws IOException {
+        CertificateBatchJob job = findJob(id, owner);
+        return toDto(job, store.getProgress(id));
+    }
+
+    /**
+     * Writes a ZIP with a CSV with the outcome of every item, items still in progress included, followed by the PDF of
+     * every created certificate. The results are read one at a time and streamed, so the whole job is never held in
+     * memory. An item completing while the ZIP is written has a PDF but is pending in the CSV.
+     */
+    public void writeResults(UUID id, String owner, OutputStream outputStream) throws IOException {
+        CertificateBatchJob job = findJob(id, owner);
+        int size = job.getSize();
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        zip.putNextEntry(new ZipEntry(RESULTS_FILE));
+        Writer csv = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        csv.write("index,status,uvci,errorCode,errorMessage\n");
+        for (int index = 0; index < size; index++) {
+            Optional<CertificateBatchItemResult> result = store.readResult(id, index);
+            if (result.isEmpty()) {
+                csv.write(index + ",PENDING,,,\n");
+            } else if (result.get().isSucceeded()) {
+                csv.write(index + ",SUCCEEDED," + result.get().getUvci() + ",,\n");
+            } else {
+                csv.write(index + ",FAILED,," + result.get().getErrorCode() + ",\"" + result.get().getErrorMessage().replace("\"", "\"\"") + "\"\n");
+            }
+        }
+        csv.flush();
+        zip.closeEntry();
+        String pdfName = "%0" + String.valueOf(size - 1).length() + "d.pdf";
+        for (int index = 0; index < size; index++) {
+            if (store.hasPdf(id, index)) {
+                zip.putNextEntry(new ZipEntry(String.format(pdfName, index)));
+                store.copyPdf(id, index, zip);
+                zip.closeEntry();
+            }
+        }
+        zip.finish();
+    }
+
+    private CertificateBatchJob findJob(UUID id, String owner) throws IOException {
+        return store.find(id)
+                .filter(job -> job.getOwner().equals(owner))
+                .orElseThrow(() -> new CreateCertificateException(BATCH_JOB_NOT_FOUND));
+    }
+
+    private CertificateBatchJobDto toDto(CertificateBatchJob job, CertificateBatchJobStore.Progress progress) {
+        int size = job.getSize();
+        CertificateBatchJobStatus status = progress.getCompleted() < size ? CertificateBatchJobStatus.RUNNING : CertificateBatchJobStatus.COMPLETED;
+        return new CertificateBatchJobDto(job.getId(), status, size, progress.getSucceeded(), progress.getFailed());
+    }
+
+    /**
+     * Continues the jobs interrupted by a restart with the items that have no result yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() throws IOException {
+        for (UUID id : store.findAllIds()) {
+            Optional<CertificateBatchJob> job = store.find(id);
+            if (job.isPresent() && store.getProgress(id).getCompleted() < job.get().getSize()) {
+                int resumed = 0;
+                for (int index = 0; index < job.get().getSize(); index++) {
+                    if (!store.hasResult(id, index)) {
+                        pendingItems.incrementAndGet();
+                        enqueue(job.get(), index);
+                        resumed++;
+                    }
+                }
+                log.info("Batch job {} resumed with {} items.", id, resumed);
+            }
+        }
+    }
+
+    private void enqueue(CertificateBatchJob job, int index) {
+        executor.execute(() -> {
+            try {
+                if (stopping || store.hasResult(job.getId(), index)) {
+                    return;
+                }
+                CertificateBatchItemResult result = create(job, index, store.readItem(job.getId(), index));
+                if (!result.isSucceeded() && Thread.currentThread().isInterrupted()) {
+                    log.info("Item {} of batch job {} interrupted, it is resumed after the restart.", index, job.getId());
+                    return;
+                }
+                store.writeResult(job.getId(), result);
+            } catch (IOException e) {
+                log.error("Storing result {} of batch job {} failed.", index, job.getId(), e);
+            } finally {
+                pendingItems.decrementAndGet();
+            }
+        });
+    }
+
+    private CertificateBatchItemResult create(CertificateBatchJob job, int index, CertificateBatchItemDto item) {
+        try {
+            item.getCertificate().validate();
+            String type;
+            CovidCertificateCreateResponseDto responseDto;
+            if (item.getVaccination() != null) {
+                type = KPI_TYPE_VACCINATION;
+                responseDto = covidCertificateGenerationService.generateCovidCertificate(item.getVaccination(), DEFAULT_ARTEFACTS, true);
+            } else if (item.getTest() != null) {
+                type = KPI_TYPE_TEST;
+                responseDto = covidCertificateGenerationService.generateCovidCertificate(item.getTest(), DEFAULT_ARTEFACTS, true);
+            } else {
+                type = KPI_TYPE_RECOVERY;
+                responseDto = covidCertificateGenerationService.generateCovidCertificate(item.getRecovery(), DEFAULT_ARTEFACTS, true);
+            }
+            logCreated(type, responseDto.getUvci(), job.getUserExtId());
+            return CertificateBatchItemResult.succeeded(index, responseDto.getUvci(), responseDto.getPdf());
+        } catch (CreateCertificateException e) {
+            log.info("Item {} of batch job {} failed with errorCode {}.", index, job.getId(), e.getError().getErrorCode());
+            return CertificateBatchItemResult.failed(index, e.getError());
+        } catch (Exception e) {
+            log.error("Creating item {} of batch job {} failed.", index, job.getId(), e);
+            return CertificateBatchItemResult.failed(index, CREATE_BATCH_ITEM_FAILED);
+        }
+    }
+
+    private void logCreated(String type, String uvci, String userExtId) {
+        LocalDateTime kpiTimestamp = LocalDateTime.now(clock);
+        if (userExtId != null) {
+            log.info("kpi: {} {} {} {}", kv(KPI_TIMESTAMP_KEY, kpiTimestamp.format(LOG_FORMAT)), kv(KPI_CREATE_CERTIFICATE_SYSTEM_KEY, KPI_SYSTEM_UI), kv(KPI_TYPE_KEY, type), kv(KPI_UUID_KEY, userExtId));
+        }
+        kpiLogService.logCertificateCreated(kpiTimestamp, type, uvci, userExtId);
+    }
+
+    @Scheduled(fixedDelayString = "#{${cc-management-service.batch-jobs.cleanup-interval-millis:3600000}}")
+    public void deleteExpiredJobs() {
+        Instant expiredBefore = clock.instant().minus(retention);
+        try {
+            for (UUID id : store.findAllIds()) {
+                Optional<CertificateBatchJob> job = store.find(id);
+                if (job.isPresent() && job.get().getCreatedAt().isBefore(expiredBefore)) {
+                    store.delete(id);
+                    log.info("Batch job {} deleted.", id);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Deleting expired batch jobs failed.", e);
+        }
+    }
+
+    int getPendingItems() {
+        return pendingItems.get();
+    }
+
+    /**
+     * Waits up to the shutdown timeout for the items in progress, the queued items are resumed after the restart. The
+     * items still running after the timeout are interrupted and their failures are not stored.
+     */
+    @Override
+    public void destroy() {
+        stopping = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Batch items still running after {}, they are interrupted.", shutdownTimeout);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
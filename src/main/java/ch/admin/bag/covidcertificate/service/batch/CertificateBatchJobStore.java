@@ -0,0 +1,253 @@
+package ch.admin.bag.covidcertificate.service.batch;
+
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchItemDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the batch jobs on local disk, one directory per job with a file per submitted item and per completed item.
+ * Every file is written to a temporary name and moved into place, so a crash never leaves a partial job or result
+ * behind. Whether an item succeeded is part of the file name, so the progress of a job is known from listing its
+ * results. The PDFs are kept apart from the results, so the results can be listed without reading them. The files
+ * hold personal data, on POSIX file systems the directories are only accessible by the owner (0700) and the files only
+ * readable by the owner (0600).
+ */
+class CertificateBatchJobStore {
+    private static final String JOB_FILE = "job.json";
+    private static final String ITEMS_DIRECTORY = "items";
+    private static final String RESULTS_DIRECTORY = "results";
+    private static final String ITEM_SUFFIX = ".json";
+    private static final String PDF_SUFFIX = ".pdf";
+    private static final String SUCCEEDED_SUFFIX = ".succeeded.json";
+    private static final String FAILED_SUFFIX = ".failed.json";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final boolean posix;
+
+    /**
+     * Creates the directory, or restricts an existing one to its owner.
+     */
+    CertificateBatchJobStore(ObjectMapper objectMapper, Path directory) throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (Files.isDirectory(directory) && posix) {
+            Files.setPosixFilePermissions(directory, DIRECTORY_PERMISSIONS);
+        } else {
+            Files.createDirectories(directory, attributes(DIRECTORY_PERMISSIONS));
+        }
+    }
+
+    /**
+     * Starts a job in a temporary directory, it is not found until it is committed.
+     */
+    Draft create(UUID id) throws IOException {
+        Path temporary = directory.resolve(id + TEMPORARY_SUFFIX);
+        Files.createDirectories(temporary.resolve(ITEMS_DIRECTORY), attributes(DIRECTORY_PERMISSIONS));
+        Files.createDirectories(temporary.resolve(RESULTS_DIRECTORY), attributes(DIRECTORY_PERMISSIONS));
+        return new Draft(id, temporary);
+    }
+
+    Optional<CertificateBatchJob> find(UUID id) throws IOException {
+        Path job = jobDirectory(id).resolve(JOB_FILE);
+        if (!Files.exists(job)) {
+            return Optional.empty();
+        }
+        return Optional.of(objectMapper.readValue(job.toFile(), CertificateBatchJob.class));
+    }
+
+    List<UUID> findAllIds() throws IOException {
+        List<UUID> ids = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return ids;
+        }
+        try (Stream<Path> jobDirectories = Files.list(directory)) {
+            jobDirectories.map(path -> path.getFileName().toString())
+                    .filter(name -> !name.endsWith(TEMPORARY_SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            ids.add(UUID.fromString(name));
+                        } catch (IllegalArgumentException e) {
+                            // not a job
+                        }
+                    });
+        }
+        return ids;
+    }
+
+    CertificateBatchItemDto readItem(UUID id, int index) throws IOException {
+        return objectMapper.readValue(jobDirectory(id).resolve(ITEMS_DIRECTORY).resolve(index + ITEM_SUFFIX).toFile(), CertificateBatchItemDto.class);
+    }
+
+    void writeResult(UUID id, CertificateBatchItemResult result) throws IOException {
+        writeResult(jobDirectory(id), result);
+    }
+
+    /**
+     * The PDF is moved into place before the result, an item with a result always has its PDF.
+     */
+    private void writeResult(Path jobDirectory, CertificateBatchItemResult result) throws IOException {
+        Path results = jobDirectory.resolve(RESULTS_DIRECTORY);
+        Path temporary = results.resolve(result.getIndex() + TEMPORARY_SUFFIX);
+        if (result.getPdf() != null) {
+            try (OutputStream outputStream = newFile(temporary)) {
+                outputStream.write(result.getPdf());
+            }
+            Files.move(temporary, results.resolve(result.getIndex() + PDF_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        }
+        writeJson(temporary, result);
+        Files.move(temporary, results.resolve(result.getIndex() + (result.isSucceeded() ? SUCCEEDED_SUFFIX : FAILED_SUFFIX)), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    boolean hasResult(UUID id, int index) {
+        Path results = jobDirectory(id).resolve(RESULTS_DIRECTORY);
+        return Files.exists(results.resolve(index + SUCCEEDED_SUFFIX)) || Files.exists(results.resolve(index + FAILED_SUFFIX));
+    }
+
+    Optional<CertificateBatchItemResult> readResult(UUID id, int index) throws IOException {
+        Path results = jobDirectory(id).resolve(RESULTS_DIRECTORY);
+        for (Path path : List.of(results.resolve(index + SUCCEEDED_SUFFIX), results.resolve(index + FAILED_SUFFIX))) {
+            if (Files.exists(path)) {
+                return Optional.of(objectMapper.readValue(path.toFile(), CertificateBatchItemResult.class));
+            }
+        }
+        return Optional.empty();
+    }
+
+    boolean hasPdf(UUID id, int index) {
+        return Files.exists(pdf(id, index));
+    }
+
+    void copyPdf(UUID id, int index, OutputStream outputStream) throws IOException {
+        Files.copy(pdf(id, index), outputStream);
+    }
+
+    private Path pdf(UUID id, int index) {
+        return jobDirectory(id).resolve(RESULTS_DIRECTORY).resolve(index + PDF_SUFFIX);
+    }
+
+    Progress getProgress(UUID id) throws IOException {
+        int succeeded = 0;
+        int failed = 0;
+        try (Stream<Path> results = Files.list(jobDirectory(id).resolve(RESULTS_DIRECTORY))) {
+            for (Path path : (Iterable<Path>) results::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(SUCCEEDED_SUFFIX)) {
+                    succeeded++;
+                } else if (name.endsWith(FAILED_SUFFIX)) {
+                    failed++;
+                }
+            }
+        }
+        return new Progress(succeeded, failed);
+    }
+
+    void delete(UUID id) throws IOException {
+        deleteDirectory(jobDirectory(id));
+    }
+
+    private static void deleteDirectory(Path jobDirectory) throws IOException {
+        if (!Files.exists(jobDirectory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(jobDirectory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private void writeJson(Path path, Object value) throws IOException {
+        try (OutputStream outputStream = newFile(path)) {
+            objectMapper.writeValue(outputStream, value);
+        }
+    }
+
+    /**
+     * Replaces a temporary file left behind by a crash, the permissions only apply to new files.
+     */
+    private OutputStream newFile(Path path) throws IOException {
+        Files.deleteIfExists(path);
+        return Files.newOutputStream(Files.createFile(path, attributes(FILE_PERMISSIONS)));
+    }
+
+    private FileAttribute<?>[] attributes(Set<PosixFilePermission> permissions) {
+        return posix ? new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(permissions)} : new FileAttribute<?>[0];
+    }
+
+    private Path jobDirectory(UUID id) {
+        return directory.resolve(id.toString());
+    }
+
+    /**
+     * A job that is still being submitted, its items are written one at a time as they are read.
+     */
+    class Draft {
+        private final UUID id;
+        private final Path temporary;
+
+        private Draft(UUID id, Path temporary) {
+            this.id = id;
+            this.temporary = temporary;
+        }
+
+        UUID getId() {
+            return id;
+        }
+
+        void writeItem(int index, CertificateBatchItemDto item) throws IOException {
+            writeJson(temporary.resolve(ITEMS_DIRECTORY).resolve(index + ITEM_SUFFIX), item);
+        }
+
+        /**
+         * For items that are rejected while the job is submitted.
+         */
+        void writeResult(CertificateBatchItemResult result) throws IOException {
+            CertificateBatchJobStore.this.writeResult(temporary, result);
+        }
+
+        void commit(CertificateBatchJob job) throws IOException {
+            if (!job.getId().equals(id)) {
+                throw new IllegalArgumentException("Job " + job.getId() + " does not match draft " + id);
+            }
+            writeJson(temporary.resolve(JOB_FILE), job);
+            Files.move(temporary, jobDirectory(id), StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        void discard() throws IOException {
+            deleteDirectory(temporary);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Progress {
+        private final int succeeded;
+        private final int failed;
+
+        int getCompleted() {
+            return succeeded + failed;
+        }
+    }
+}
@@ -10,21 +10,19 @@ import com.itextpdf.text.pdf.qrcode.EncodeHintType;
 import com.itextpdf.text.pdf.qrcode.ErrorCorrectionLevel;
 import com.nimbusds.oauth2.sdk.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.MessageSource;
-import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import se.digg.dgc.encoding.Barcode;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static ch.admin.bag.covidcertificate.api.Constants.LOCAL_DATE_FORMAT;
 import static ch.admin.bag.covidcertificate.api.Constants.SWISS_TIMEZONE;
@@ -43,80 +41,129 @@ public class CovidPdfCertificateGenerationService {
     private static final String VACCINATION_DISEASE_MESSAGE_CODE = "vaccination.disease";
     private static final String VACCINATION_DISEASE_LABEL_KEY = "vaccination.disease.label";
     public static final int PADDING_LEFT = 30;
+    private static final Locale ROMANSH = Locale.forLanguageTag("rm");
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy, HH:mm");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
 
-    private final Font fontRow;
+    // The fonts and logos are loaded in the background and published by assetsLoaded, see loadAssets.
+    private Font fontRow;
 
-    private final Font font8Row;
+    private Font font8Row;
 
-    private final Font fontRowBold;
+    private Font fontRowBold;
 
-    private final Font fontEnglish;
+    private Font fontEnglish;
 
-    private final Font font8English;
+    private Font font8English;
 
-    private final Font fontHeaderRed;
+    private Font fontHeaderRed;
 
-    private final Font fontHeaderBlack;
+    private Font fontHeaderBlack;
 
-    private final Font fontWatermark;
+    private Font fontWatermark;
 
-    private final MessageSource messageSource;
+    private final DocumentMessages messages;
 
-    private final Chunk logoBund;
-    private final Chunk logoApple;
-    private final Chunk logoGoogle;
-    private final Chunk logoApp;
+    private Chunk logoBund;
+    private Chunk logoApple;
+    private Chunk logoGoogle;
+    private Chunk logoApp;
 
+    private final CompletableFuture<Void> assetsLoaded;
 
     private final boolean addDraftWatermark;
 
-    public CovidPdfCertificateGenerationService(ConfigurableEnvironment env) throws URISyntaxException, IOException, DocumentException {
+    // Renders on the calling thread if null
+    private final PdfRenderingExecutor renderingExecutor;
 
-        final BaseFont baseFont = BaseFont.createFont("arial.ttf", BaseFont.IDENTITY_H, BaseFont.EMBEDDED, true,
-                    Files.readAllBytes(Path.of(Objects.requireNonNull(this.getClass().getClassLoader().getResource("templates/fonts/arial.ttf")).toURI())),
-                    null);
-
-        final BaseFont baseFontBold = BaseFont.createFont("arialbd.ttf", BaseFont.IDENTITY_H, BaseFont.EMBEDDED, true,
-                    Files.readAllBytes(Path.of(Objects.requireNonNull(this.getClass().getClassLoader().getResource("templates/fonts/arialbd.ttf")).toURI())),
-                    null);
+    public CovidPdfCertificateGenerationService(ConfigurableEnvironment env) {
+        this(env, null);
+    }
 
-        final BaseFont baseFontItalic = BaseFont.createFont("ariali.ttf", BaseFont.IDENTITY_H, BaseFont.EMBEDDED, true,
-                    Files.readAllBytes(Path.of(Objects.requireNonNull(this.getClass().getClassLoader().getResource("templates/fonts/ariali.ttf")).toURI())),
-                    null);
+    @Autowired
+    CovidPdfCertificateGenerationService(ConfigurableEnvironment env, PdfRenderingExecutor renderingExecutor) {
+        this.renderingExecutor = renderingExecutor;
 
+        messages = DocumentMessages.load(Set.of(Locale.GERMAN, Locale.FRENCH, Locale.ITALIAN, ROMANSH, Locale.ENGLISH));
 
-        fontRow = new Font(baseFont, 10, Font.NORMAL, BaseColor.BLACK);
-        font8Row = new Font(baseFont, 8, Font.NORMAL, BaseColor.BLACK);
-        fontRowBold = new Font(baseFontBold, 10, Font.NORMAL, BaseColor.BLACK);
-        fontEnglish = new Font(baseFontItalic, 9, Font.NORMAL, BaseColor.BLACK);
-        font8English = new Font(baseFontItalic, 8, Font.NORMAL, BaseColor.BLACK);
-        fontHeaderRed = new Font(baseFont, 26, Font.NORMAL, new BaseColor(220, 0, 24));
-        fontHeaderBlack = new Font(baseFontItalic, 16, Font.NORMAL, BaseColor.BLACK);
+        addDraftWatermark = Arrays.stream(env.getActiveProfiles()).noneMatch("prod"::equals);
 
-        fontWatermark = new Font(baseFontBold, 80, Font.NORMAL, new BaseColor(234, 234, 234));
+        assetsLoaded = loadAssets();
+    }
 
-        messageSource = messageSource();
+    /**
+     * Loads fonts and logos in parallel without blocking the startup. They are only needed once the first document
+     * is rendered, which waits for this future.
+     */
+    private CompletableFuture<Void> loadAssets() {
+        CompletableFuture<BaseFont> baseFont = CompletableFuture.supplyAsync(() -> getBaseFont("arial.ttf"));
+        CompletableFuture<BaseFont> baseFontBold = CompletableFuture.supplyAsync(() -> getBaseFont("arialbd.ttf"));
+        CompletableFuture<BaseFont> baseFontItalic = CompletableFuture.supplyAsync(() -> getBaseFont("ariali.ttf"));
+        CompletableFuture<Chunk> bund = CompletableFuture.supplyAsync(() -> getLogo("bund.png", 60));
+        CompletableFuture<Chunk> apple = CompletableFuture.supplyAsync(() -> getLogo("appstore.png", 49));
+        CompletableFuture<Chunk> google = CompletableFuture.supplyAsync(() -> getLogo("googleplay.png", 50));
+        CompletableFuture<Chunk> app = CompletableFuture.supplyAsync(() -> getLogo("appicon.png", 100));
+
+        return CompletableFuture.allOf(baseFont, baseFontBold, baseFontItalic, bund, apple, google, app)
+                .thenRun(() -> {
+                    fontRow = new Font(baseFont.join(), 10, Font.NORMAL, BaseColor.BLACK);
+                    font8Row = new Font(baseFont.join(), 8, Font.NORMAL, BaseColor.BLACK);
+                    fontRowBold = new Font(baseFontBold.join(), 10, Font.NORMAL, BaseColor.BLACK);
+                    fontEnglish = new Font(baseFontItalic.join(), 9, Font.NORMAL, BaseColor.BLACK);
+                    font8English = new Font(baseFontItalic.join(), 8, Font.NORMAL, BaseColor.BLACK);
+                    fontHeaderRed = new Font(baseFont.join(), 26, Font.NORMAL, new BaseColor(220, 0, 24));
+                    fontHeaderBlack = new Font(baseFontItalic.join(), 16, Font.NORMAL, BaseColor.BLACK);
+
+                    fontWatermark = new Font(baseFontBold.join(), 80, Font.NORMAL, new BaseColor(234, 234, 234));
+
+                    logoBund = bund.join();
+                    logoApple = apple.join();
+                    logoGoogle = google.join();
+                    logoApp = app.join();
+                })
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        log.error("Loading the fonts and logos for the pdf documents failed.", e);
+                    }
+                });
+    }
 
-        logoBund = getLogo("bund.png", 60);
-        logoApple = getLogo("appstore.png", 49);
-        logoGoogle = getLogo("googleplay.png", 50);
-        logoApp = getLogo("appicon.png", 100);
+    private BaseFont getBaseFont(String name) {
+        try {
+            return BaseFont.createFont(name, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, true, readResource("templates/fonts/" + name), null);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-        addDraftWatermark = Arrays.stream(env.getActiveProfiles()).noneMatch("prod"::equals);
+    private byte[] readResource(String path) throws IOException {
+        try (InputStream inputStream = new ClassPathResource(path, getClass().getClassLoader()).getInputStream()) {
+            return inputStream.readAllBytes();
+        }
+    }
 
+    public byte[] generateCovidCertificate(AbstractCertificatePdf data, Barcode barcode) {
+        return generateCovidCertificate(data, barcode.getPayload());
     }
 
-    private ResourceBundleMessageSource messageSource() {
-        var source = new ResourceBundleMessageSource();
-        source.setBasenames("templates/messages/document-messages");
-        source.setUseCodeAsDefaultMessage(true);
-        source.setDefaultEncoding("UTF-8");
-        return source;
+    public byte[] generateCovidCertificate(AbstractCertificatePdf data, String barcodePayload) {
+        return generateCovidCertificate(data, barcodePayload, false);
     }
 
+    /**
+     * @param awaitRendering whether to wait while all rendering places are taken instead of failing right away
+     */
+    public byte[] generateCovidCertificate(AbstractCertificatePdf data, String barcodePayload, boolean awaitRendering) {
+        if (renderingExecutor == null) {
+            return render(data, barcodePayload);
+        }
+        return renderingExecutor.render(() -> render(data, barcodePayload), awaitRendering);
+    }
 
-    public byte[] generateCovidCertificate(AbstractCertificatePdf data, Barcode barcode) {
+    private byte[] render(AbstractCertificatePdf data, String barcodePayload) {
         try {
+            assetsLoaded.join();
+
             ByteArrayOutputStream stream = new ByteArrayOutputStream();
 
             Document document = new Document();
@@ -133,7 +180,7 @@ public class CovidPdfCertificateGenerationService {
 
             document.add(headerTable(locale));
 
-            Image qrCode = renderQRCode(writer, barcode.getPayload());
+            Image qrCode = renderQRCode(writer, barcodePayload);
 
             document.add(mainTable(locale, data, qrCode));
 
@@ -162,7 +209,7 @@ public class CovidPdfCertificateGenerationService {
             case "it":
                 return Locale.ITALIAN;
             case "rm":
-                return Locale.forLanguageTag("rm");
+                return ROMANSH;
             default:
                 return Locale.GERMAN;
         }
@@ -191,13 +238,13 @@ public class CovidPdfCertificateGenerationService {
         cell.setVerticalAlignment(Rectangle.TOP);
         table.addCell(cell);
 
-        PdfPCell valueCell = new PdfPCell(new Phrase(messageSource.getMessage("document.title", null, locale), fontHeaderRed));
+        PdfPCell valueCell = new PdfPCell(new Phrase(messages.get("document.title", locale), fontHeaderRed));
         valueCell.setBorder(Rectangle.NO_BORDER);
         valueCell.setVerticalAlignment(Rectangle.TOP);
         valueCell.setPaddingTop(0);
         table.addCell(valueCell);
 
-        PdfPCell valueCell2 = new PdfPCell(new Phrase(messageSource.getMessage("document.title", null, Locale.ENGLISH), fontHeaderBlack));
+        PdfPCell valueCell2 = new PdfPCell(new Phrase(messages.get("document.title", Locale.ENGLISH), fontHeaderBlack));
         valueCell2.setBorder(Rectangle.NO_BORDER);
         valueCell2.setVerticalAlignment(Rectangle.TOP);
         valueCell2.setPaddingTop(0);
@@ -230,7 +277,7 @@ public class CovidPdfCertificateGenerationService {
 
     private void addVaccineData(Locale locale, VaccinationCertificatePdf data, PdfPTable table) {
         addIssuerRow(table, locale, "vaccination.title", 0, true, 0);
-        addRow(table, locale, VACCINATION_DISEASE_LABEL_KEY, messageSource.getMessage(VACCINATION_DISEASE_MESSAGE_CODE, null, locale));
+        addRow(table, locale, VACCINATION_DISEASE_LABEL_KEY, messages.get(VACCINATION_DISEASE_MESSAGE_CODE, locale));
         addRow(table, locale, "vaccination.dosis.label", data.getNumberOfDoses() + "/" + data.getTotalNumberOfDoses());
         addRow(table, locale, "vaccination.type.label", data.getVaccineProphylaxis());
         addRow(table, locale, "vaccination.product.label", data.getMedicinalProduct());
@@ -241,7 +288,7 @@ public class CovidPdfCertificateGenerationService {
 
     private void addRecoveryData(Locale locale, RecoveryCertificatePdf data, PdfPTable table) {
         addIssuerRow(table, locale, "recovery.title", 0, true, 0);
-        addRow(table, locale, VACCINATION_DISEASE_LABEL_KEY, messageSource.getMessage(VACCINATION_DISEASE_MESSAGE_CODE, null, locale));
+        addRow(table, locale, VACCINATION_DISEASE_LABEL_KEY, messages.get(VACCINATION_DISEASE_MESSAGE_CODE, locale));
         addRow(table, locale, "recovery.firstPositiveTestResult.label", data.getDateOfFirstPositiveTestResult().format(LOCAL_DATE_FORMAT));
         addRow(table, locale, "recovery.validFrom", data.getValidFrom().format(LOCAL_DATE_FORMAT));
         addRow(table, locale, "recovery.validUntil", data.getValidUntil().format(LOCAL_DATE_FORMAT));
@@ -250,14 +297,14 @@ public class CovidPdfCertificateGenerationService {
 
     private void addTestData(Locale locale, TestCertificatePdf data, PdfPTable table) {
         addIssuerRow(table, locale, "test.title", 0, true, 0);
-        addRow(table, locale, VACCINATION_DISEASE_LABEL_KEY, messageSource.getMessage(VACCINATION_DISEASE_MESSAGE_CODE, null, locale));
-        addLocaleAndEnglishRow(table, locale, "test.result.label", messageSource.getMessage("test.result.value", null, locale), messageSource.getMessage("test.result.value", null, Locale.ENGLISH));
+        addRow(table, locale, VACCINATION_DISEASE_LABEL_KEY, messages.get(VACCINATION_DISEASE_MESSAGE_CODE, locale));
+        addLocaleAndEnglishRow(table, locale, "test.result.label", messages.get("test.result.value", locale), messages.get("test.result.value", Locale.ENGLISH));
         addRow(table, locale, "test.type.label", data.getTypeOfTest());
         addRow(table, locale, "test.name.label", data.getTestName());
         if (StringUtils.isNotBlank(data.getTestManufacturer())) {
             addRow(table, locale, "test.manufacturer.label", data.getTestManufacturer());
         }
-        addRow(table, locale, "test.date.label", data.getSampleDateTime().withZoneSameInstant(SWISS_TIMEZONE).format(DateTimeFormatter.ofPattern("dd.MM.yyyy, HH:mm")));
+        addRow(table, locale, "test.date.label", data.getSampleDateTime().withZoneSameInstant(SWISS_TIMEZONE).format(DATE_TIME_FORMAT));
         addRow(table, locale, "test.conducted.label", data.getTestingCentreOrFacility());
         addLocaleAndEnglishRow(table, locale, "test.country.label", data.getMemberStateOfTest(), data.getMemberStateOfTestEn());
     }
@@ -297,7 +344,7 @@ public class CovidPdfCertificateGenerationService {
     }
 
     private void addRow(PdfPTable table, Locale locale, String key, String value, float paddingLeft) {
-        PdfPCell titleCell = new PdfPCell(new Phrase(messageSource.getMessage(key, null, locale), fontRow));
+        PdfPCell titleCell = new PdfPCell(new Phrase(messages.get(key, locale), fontRow));
         titleCell.setBorder(Rectangle.NO_BORDER);
         titleCell.setPaddingTop(15);
         titleCell.setPaddingLeft(paddingLeft);
@@ -309,7 +356,7 @@ public class CovidPdfCertificateGenerationService {
         valueCell.setRowspan(2);
         table.addCell(valueCell);
 
-        PdfPCell titleEnglishCell = new PdfPCell(new Phrase(messageSource.getMessage(key, null, Locale.ENGLISH), fontEnglish));
+        PdfPCell titleEnglishCell = new PdfPCell(new Phrase(messages.get(key, Locale.ENGLISH), fontEnglish));
         titleEnglishCell.setBorder(Rectangle.NO_BORDER);
         titleEnglishCell.setPaddingTop(0);
         titleEnglishCell.setHorizontalAlignment(Rectangle.LEFT);
@@ -319,7 +366,7 @@ public class CovidPdfCertificateGenerationService {
     }
 
     private void addLocaleAndEnglishRow(PdfPTable table, Locale locale, String key, String value, String valueEn) {
-        PdfPCell titleCell = new PdfPCell(new Phrase(messageSource.getMessage(key, null, locale), fontRow));
+        PdfPCell titleCell = new PdfPCell(new Phrase(messages.get(key, locale), fontRow));
         titleCell.setBorder(Rectangle.NO_BORDER);
         titleCell.setPaddingTop(15);
         table.addCell(titleCell);
@@ -329,7 +376,7 @@ public class CovidPdfCertificateGenerationService {
         valueCell.setPaddingTop(15);
         table.addCell(valueCell);
 
-        PdfPCell titleEnglishCell = new PdfPCell(new Phrase(messageSource.getMessage(key, null, Locale.ENGLISH), fontEnglish));
+        PdfPCell titleEnglishCell = new PdfPCell(new Phrase(messages.get(key, Locale.ENGLISH), fontEnglish));
         titleEnglishCell.setBorder(Rectangle.NO_BORDER);
         titleEnglishCell.setPaddingTop(0);
         titleEnglishCell.setHorizontalAlignment(Rectangle.LEFT);
@@ -347,14 +394,14 @@ public class CovidPdfCertificateGenerationService {
 
     private void addIssuerRow(PdfPTable table, Locale locale, String key, int padding, boolean title, float paddingLeft) {
 
-        PdfPCell titleCell = new PdfPCell(new Phrase(messageSource.getMessage(key, null, locale), title ? fontRowBold : fontRow));
+        PdfPCell titleCell = new PdfPCell(new Phrase(messages.get(key, locale), title ? fontRowBold : fontRow));
         titleCell.setBorder(Rectangle.NO_BORDER);
         titleCell.setPaddingTop(padding);
         titleCell.setColspan(2);
         titleCell.setPaddingLeft(paddingLeft);
         table.addCell(titleCell);
 
-        PdfPCell issuerCell = new PdfPCell(new Phrase(messageSource.getMessage(key, null, Locale.ENGLISH), fontEnglish));
+        PdfPCell issuerCell = new PdfPCell(new Phrase(messages.get(key, Locale.ENGLISH), fontEnglish));
         issuerCell.setBorder(Rectangle.NO_BORDER);
         issuerCell.setPaddingTop(0);
         issuerCell.setColspan(2);
@@ -364,14 +411,14 @@ public class CovidPdfCertificateGenerationService {
 
     private void addQrLabelCell(PdfPTable table, Locale locale, LocalDateTime dateTime) {
         String date = dateTime.format(LOCAL_DATE_FORMAT);
-        String time = dateTime.format(DateTimeFormatter.ofPattern("HH:mm"));
-        PdfPCell titleCell = new PdfPCell(new Phrase(messageSource.getMessage("qrCode.label", new String[]{date, time}, locale), font8Row));
+        String time = dateTime.format(TIME_FORMAT);
+        PdfPCell titleCell = new PdfPCell(new Phrase(messages.format("qrCode.label", locale, date, time), font8Row));
         titleCell.setBorder(Rectangle.NO_BORDER);
         titleCell.setColspan(2);
         titleCell.setPaddingLeft(PADDING_LEFT);
         table.addCell(titleCell);
 
-        PdfPCell issuerCell = new PdfPCell(new Phrase(messageSource.getMessage("qrCode.label", new String[]{date, time}, Locale.ENGLISH), font8English));
+        PdfPCell issuerCell = new PdfPCell(new Phrase(messages.format("qrCode.label", Locale.ENGLISH, date, time), font8English));
         issuerCell.setBorder(Rectangle.NO_BORDER);
         issuerCell.setPaddingTop(0);
         issuerCell.setColspan(2);
@@ -381,12 +428,9 @@ public class CovidPdfCertificateGenerationService {
 
 
     private Chunk getLogo(String name, int scale) {
-
-        URL imageUrl = this.getClass().getClassLoader().getResource("templates/" + name);
-
         Image logo;
         try {
-            logo = Image.getInstance(Objects.requireNonNull(imageUrl));
+            logo = Image.getInstance(readResource("templates/" + name));
             logo.scalePercent(scale);
         } catch (Exception e) {
             throw new IllegalStateException(e);
@@ -412,10 +456,10 @@ public class CovidPdfCertificateGenerationService {
         table.setSpacingBefore((float) 20);
 
         PdfPCell cell = new PdfPCell();
-        addInfoCell(cell, messageSource.getMessage("info.info1", null, locale), fontRow, 0);
-        addInfoCell(cell, messageSource.getMessage("info.info1", null, Locale.ENGLISH), fontEnglish, 0);
-        addInfoCell(cell, messageSource.getMessage("info.info2", null, locale), fontRow, 10);
-        addInfoCell(cell, messageSource.getMessage("info.info2", null, Locale.ENGLISH), fontEnglish, 0);
+        addInfoCell(cell, messages.get("info.info1", locale), fontRow, 0);
+        addInfoCell(cell, messages.get("info.info1", Locale.ENGLISH), fontEnglish, 0);
+        addInfoCell(cell, messages.get("info.info2", locale), fontRow, 10);
+        addInfoCell(cell, messages.get("info.info2", Locale.ENGLISH), fontEnglish, 0);
         cell.setBackgroundColor(new BaseColor(252, 231, 232));
         cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
         cell.setBorder(Rectangle.NO_BORDER);
@@ -440,8 +484,8 @@ public class CovidPdfCertificateGenerationService {
         table.setSpacingBefore((float) 15);
 
         PdfPCell cell = new PdfPCell();
-        cell.addElement(new Paragraph(new Phrase(messageSource.getMessage("footer.app", null, locale), fontRow)));
-        cell.addElement(new Phrase(messageSource.getMessage("footer.app", null, Locale.ENGLISH), fontEnglish));
+        cell.addElement(new Paragraph(new Phrase(messages.get("footer.app", locale), fontRow)));
+        cell.addElement(new Phrase(messages.get("footer.app", Locale.ENGLISH), fontEnglish));
         cell.setBorder(Rectangle.NO_BORDER);
         cell.setPaddingLeft(PADDING_LEFT);
         table.addCell(cell);
@@ -468,7 +512,7 @@ public class CovidPdfCertificateGenerationService {
         storeCell.setPaddingTop(5);
         table.addCell(storeCell);
 
-        PdfPCell infoCell = new PdfPCell(new Phrase(messageSource.getMessage("footer.infoline", null, locale), fontRowBold));
+        PdfPCell infoCell = new PdfPCell(new Phrase(messages.get("footer.infoline", locale), fontRowBold));
         infoCell.setBorder(Rectangle.NO_BORDER);
         infoCell.setPaddingLeft(PADDING_LEFT);
         infoCell.setPaddingTop(10);
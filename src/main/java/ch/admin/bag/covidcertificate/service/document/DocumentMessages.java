@@ -0,0 +1,71 @@
+package ch.admin.bag.covidcertificate.service.document;
+
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.*;
+
+/**
+ * Immutable table of all document labels per supported locale, read once from the document message bundles.
+ * Behaves like a {@link org.springframework.context.support.ResourceBundleMessageSource} using the code as default
+ * message, without resolving bundles on every lookup.
+ */
+final class DocumentMessages {
+    private static final String BASENAME = "templates/messages/document-messages";
+
+    private final Map<Locale, Map<String, String>> messages;
+    private final Map<Locale, Map<String, MessageFormat>> messageFormats;
+
+    private DocumentMessages(Map<Locale, Map<String, String>> messages) {
+        this.messages = messages;
+        Map<Locale, Map<String, MessageFormat>> formats = new HashMap<>();
+        messages.forEach((locale, localeMessages) -> {
+            Map<String, MessageFormat> localeFormats = new HashMap<>();
+            localeMessages.forEach((key, message) -> {
+                if (message.indexOf('{') >= 0) {
+                    localeFormats.put(key, new MessageFormat(message, locale));
+                }
+            });
+            formats.put(locale, Map.copyOf(localeFormats));
+        });
+        this.messageFormats = Map.copyOf(formats);
+    }
+
+    static DocumentMessages load(Collection<Locale> locales) {
+        Map<Locale, Map<String, String>> messages = new HashMap<>();
+        for (Locale locale : locales) {
+            messages.put(locale, loadMessages(locale));
+        }
+        return new DocumentMessages(Map.copyOf(messages));
+    }
+
+    private static Map<String, String> loadMessages(Locale locale) {
+        String path = BASENAME + "_" + locale.getLanguage() + ".properties";
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new ClassPathResource(path, DocumentMessages.class.getClassLoader()).getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load document messages " + path, e);
+        }
+        Map<String, String> localeMessages = new HashMap<>();
+        properties.stringPropertyNames().forEach(key -> localeMessages.put(key, properties.getProperty(key)));
+        return Map.copyOf(localeMessages);
+    }
+
+    String get(String key, Locale locale) {
+        return messages.getOrDefault(locale, Map.of()).getOrDefault(key, key);
+    }
+
+    String format(String key, Locale locale, Object... args) {
+        MessageFormat messageFormat = messageFormats.getOrDefault(locale, Map.of()).get(key);
+        if (messageFormat == null) {
+            return get(key, locale);
+        }
+        // MessageFormat is not thread safe, a clone is still much cheaper than parsing the pattern again.
+        return ((MessageFormat) messageFormat.clone()).format(args);
+    }
+}
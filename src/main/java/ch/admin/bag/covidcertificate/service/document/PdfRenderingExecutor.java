@@ -0,0 +1,114 @@
+package ch.admin.bag.covidcertificate.service.document;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static ch.admin.bag.covidcertificate.api.Constants.PDF_RENDERING_BUSY;
+
+/**
+ * Renders the pdf documents on a pool sized to the available cores, so a burst of certificate requests cannot take
+ * all cores from the other requests. The calling thread waits for its document. If the bounded queue is full, the
+ * request fails right away with {@link ch.admin.bag.covidcertificate.api.Constants#PDF_RENDERING_BUSY}, unless the
+ * caller chooses to wait for a place, as the batch workers do.
+ */
+@Component
+@Slf4j
+class PdfRenderingExecutor implements DisposableBean {
+    static final String QUEUE_METRIC = "pdf.rendering.queue";
+    static final String WAIT_METRIC = "pdf.rendering.wait";
+    static final String REJECTED_METRIC = "pdf.rendering.rejected";
+
+    private final ThreadPoolExecutor executor;
+    // A place in the pool or the queue, taken before submitting and returned once the document is rendered
+    private final Semaphore places;
+    private final Timer waitTimer;
+    private final Counter rejections;
+
+    PdfRenderingExecutor(MeterRegistry meterRegistry,
+                         @Value("${cc-management-service.pdf-rendering.threads:0}") int threads,
+                         @Value("${cc-management-service.pdf-rendering.queue-capacity:20}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        log.info("Pdf rendering with {} threads and a queue of {}", poolSize, queueCapacity);
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "pdf-rendering-" + count.incrementAndGet()));
+        places = new Semaphore(poolSize + queueCapacity);
+        meterRegistry.gauge(QUEUE_METRIC, executor, e -> e.getQueue().size());
+        waitTimer = meterRegistry.timer(WAIT_METRIC);
+        rejections = meterRegistry.counter(REJECTED_METRIC);
+    }
+
+    byte[] render(Supplier<byte[]> rendering) {
+        return render(rendering, false);
+    }
+
+    /**
+     * @param awaitPlace whether to wait for a place in the pool or the queue instead of failing with
+     *                   {@link ch.admin.bag.covidcertificate.api.Constants#PDF_RENDERING_BUSY}
+     */
+    byte[] render(Supplier<byte[]> rendering, boolean awaitPlace) {
+        if (awaitPlace) {
+            try {
+                places.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        } else if (!places.tryAcquire()) {
+            rejections.increment();
+            throw new CreateCertificateException(PDF_RENDERING_BUSY);
+        }
+        try {
+            return submit(rendering);
+        } finally {
+            places.release();
+        }
+    }
+
+    private byte[] submit(Supplier<byte[]> rendering) {
+        long submitted = System.nanoTime();
+        Future<byte[]> document;
+        try {
+            document = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                return rendering.get();
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new CreateCertificateException(PDF_RENDERING_BUSY);
+        }
+        try {
+            return document.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            document.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
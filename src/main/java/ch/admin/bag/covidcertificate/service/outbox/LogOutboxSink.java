@@ -0,0 +1,25 @@
+package ch.admin.bag.covidcertificate.service.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Writes the events as structured log lines, a stand-in for a broker until consumers have one.
+ */
+@Component
+@ConditionalOnProperty(name = "cc-management-service.outbox.sink", havingValue = "log", matchIfMissing = true)
+@Slf4j
+public class LogOutboxSink implements OutboxSink {
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            log.info("outbox: {} {} {} {}", kv("id", event.getId()), kv("createdAt", event.getCreatedAt()), kv("type", event.getType()), kv("payload", event.getPayload()));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ch.admin.bag.covidcertificate.service.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * An event as stored in the outbox. The payload is a JSON object, the id orders the events and lets consumers ignore
+ * events delivered twice.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class OutboxEvent {
+    private final long id;
+    private final LocalDateTime createdAt;
+    private final String type;
+    private final String payload;
+}
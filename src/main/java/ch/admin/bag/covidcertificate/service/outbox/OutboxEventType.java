@@ -0,0 +1,7 @@
+package ch.admin.bag.covidcertificate.service.outbox;
+
+public enum OutboxEventType {
+    CERTIFICATE_CREATED,
+    CERTIFICATE_REVOKED,
+    OTP_CREATED
+}
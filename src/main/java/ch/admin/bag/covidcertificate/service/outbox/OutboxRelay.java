@@ -0,0 +1,86 @@
+package ch.admin.bag.covidcertificate.service.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delivers the events of the outbox to the {@link OutboxSink} in the order of their id and deletes them afterwards.
+ * The events of a batch stay locked until it is done, so several nodes may run the relay without delivering an event
+ * twice. An event is delivered again if deleting it fails after it was published, consumers recognize it by its id.
+ * The id is taken when an event is inserted, not when it is committed, so an event committed late may follow events
+ * with a higher id; see {@link OutboxService} for the order in which the events are written.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    private static final String SELECT = "SELECT id, created_at, type, payload FROM outbox_event ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String DELETE = "DELETE FROM outbox_event WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxSink outboxSink;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       OutboxSink outboxSink,
+                       @Value("${cc-management-service.outbox.relay.enabled:false}") boolean enabled,
+                       @Value("${cc-management-service.outbox.relay.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outboxSink = outboxSink;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "#{${cc-management-service.outbox.relay.interval-millis:1000}}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Integer relayed;
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } while (relayed != null && relayed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Relaying outbox events failed, retrying with the next run.", e);
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = jdbcTemplate.query(SELECT, OutboxRelay::toEvent, batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        try {
+            outboxSink.publish(events);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Object[]> ids = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            ids.add(new Object[]{event.getId()});
+        }
+        jdbcTemplate.batchUpdate(DELETE, ids);
+        log.debug("Relayed {} outbox events up to {}.", events.size(), events.get(events.size() - 1).getId());
+        return events.size();
+    }
+
+    private static OutboxEvent toEvent(ResultSet resultSet, int rowNum) throws SQLException {
+        return new OutboxEvent(resultSet.getLong(1), resultSet.getTimestamp(2).toLocalDateTime(), resultSet.getString(3), resultSet.getString(4));
+    }
+}
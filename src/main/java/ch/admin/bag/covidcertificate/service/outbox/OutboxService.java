@@ -0,0 +1,131 @@
+package ch.admin.bag.covidcertificate.service.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes events to the outbox. Within a transaction the event is inserted right away, so it is committed or rolled
+ * back together with the change it describes. Outside of one the event is buffered and inserted in batches, keeping
+ * the creation of certificates free of a database round trip; a full buffer is flushed by the caller instead of
+ * dropping events. The buffer is held in memory only, the events buffered when the node crashes are lost, so the
+ * creation events are written in the transaction of their KPI row, see
+ * {@link ch.admin.bag.covidcertificate.service.KpiDataService#logCertificateCreated}.
+ * <p>
+ * The buffered events are written in the order they were added, a batch that failed is retried before the events
+ * buffered after it. An event written within a transaction overtakes the buffered ones, so there is no order across
+ * event types: the revocation of a certificate may be delivered before its creation.
+ */
+@Service
+@Slf4j
+public class OutboxService implements DisposableBean {
+    static final String INSERT = "INSERT INTO outbox_event (created_at, type, payload) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<Object[]> buffer;
+    // The batch that failed, written before the buffer on the next flush
+    private final List<Object[]> failedBatch = new ArrayList<>();
+
+    public OutboxService(JdbcTemplate jdbcTemplate,
+                         ObjectMapper objectMapper,
+                         Clock clock,
+                         @Value("${cc-management-service.outbox.enabled:false}") boolean enabled,
+                         @Value("${cc-management-service.outbox.batch-size:500}") int batchSize,
+                         @Value("${cc-management-service.outbox.buffer-size:10000}") int bufferSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    public void certificateCreated(String certificateType, String uvci, String userExtId) {
+        add(OutboxEventType.CERTIFICATE_CREATED, objectMapper.createObjectNode()
+                .put("certificateType", certificateType)
+                .put("uvci", uvci)
+                .put("userExtId", userExtId));
+    }
+
+    public void certificateRevoked(String uvci) {
+        add(OutboxEventType.CERTIFICATE_REVOKED, objectMapper.createObjectNode()
+                .put("uvci", uvci));
+    }
+
+    public void otpCreated(String userExtId) {
+        add(OutboxEventType.OTP_CREATED, objectMapper.createObjectNode()
+                .put("userExtId", userExtId));
+    }
+
+    private void add(OutboxEventType type, ObjectNode payload) {
+        if (!enabled) {
+            return;
+        }
+        Object[] row = {Timestamp.valueOf(LocalDateTime.now(clock)), type.name(), payload.toString()};
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            jdbcTemplate.update(INSERT, row);
+        } else if (!buffer.offer(row)) {
+            // the buffered events are written first to keep their order
+            flush();
+            if (!buffer.offer(row)) {
+                jdbcTemplate.update(INSERT, row);
+            }
+        }
+    }
+
+    synchronized int getBuffered() {
+        return buffer.size() + failedBatch.size();
+    }
+
+    @Scheduled(fixedDelayString = "#{${cc-management-service.outbox.flush-interval-millis:200}}")
+    public synchronized void flush() {
+        if (!failedBatch.isEmpty()) {
+            if (!write(failedBatch)) {
+                return;
+            }
+            failedBatch.clear();
+        }
+        List<Object[]> rows = new ArrayList<>(batchSize);
+        while (buffer.drainTo(rows, batchSize) > 0) {
+            if (!write(rows)) {
+                failedBatch.addAll(rows);
+                return;
+            }
+            rows.clear();
+        }
+    }
+
+    private boolean write(List<Object[]> rows) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Writing {} outbox events failed, retrying them first with the next flush.", rows.size(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+}
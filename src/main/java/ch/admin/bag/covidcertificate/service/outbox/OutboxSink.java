@@ -0,0 +1,12 @@
+package ch.admin.bag.covidcertificate.service.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the events of the outbox from the {@link OutboxRelay}. The events are deleted from the outbox after
+ * publish returned, an exception delivers them again later.
+ */
+public interface OutboxSink {
+    void publish(List<OutboxEvent> events) throws IOException;
+}
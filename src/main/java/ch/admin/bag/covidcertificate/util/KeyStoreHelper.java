@@ -0,0 +1,27 @@
+package ch.admin.bag.covidcertificate.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.util.Base64;
+
+public class KeyStoreHelper {
+    private KeyStoreHelper() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static KeyStore loadKeyStore(String base64Keystore,
+                                        final char[] storePassword) throws KeyStoreException, IOException, CertificateException, NoSuchAlgorithmException {
+        KeyStore keyStoreInstance = KeyStore.getInstance(KeyStore.getDefaultType());
+
+        try (ByteArrayInputStream inStream = new ByteArrayInputStream(base64Keystore.getBytes())) {
+            var decodedKeystoreInputStream = Base64.getMimeDecoder().wrap(inStream);
+            keyStoreInstance.load(decodedKeystoreInputStream, storePassword);
+        }
+
+        return keyStoreInstance;
+    }
+}
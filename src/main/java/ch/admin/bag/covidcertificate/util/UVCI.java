@@ -1,21 +1,31 @@
 package ch.admin.bag.covidcertificate.util;
 
-import lombok.extern.slf4j.Slf4j;
-
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
-import static org.apache.commons.codec.binary.Hex.encodeHexString;
-
-@Slf4j
 public class UVCI {
     private static final String PREFIX = "urn:uvci";
     private static final String VERSION = "01";
     private static final String COUNTRY_CODE = "CH";
+    private static final char[] UVCI_PREFIX = String.format("%s:%s:%s:", PREFIX, VERSION, COUNTRY_CODE).toCharArray();
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final int HASH_LENGTH = 48;
+    private static final int XOR_BLOCK_SIZE = 4;
+    private static final int OPAQUE_BYTES = HASH_LENGTH / XOR_BLOCK_SIZE;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    // Random per instance, it is hashed together with the counter and separates the identifiers of different nodes.
     private static final byte[] SALT;
+    // Makes the hashed input of every call unique within this instance, independent of the fields and the clock.
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    private static final ThreadLocal<Generator> GENERATOR = ThreadLocal.withInitial(Generator::new);
 
     private UVCI() {
         throw new IllegalStateException("Utility class");
@@ -28,40 +38,138 @@ public class UVCI {
         SALT = salt;
     }
 
-    public static String generateUVCI(String input) {
-        long timestamp = System.nanoTime();
-        String opaqueString = getOpaqueString(input + timestamp);
-        return String.format("%s:%s:%s:%s", PREFIX, VERSION, COUNTRY_CODE, opaqueString);
+    /**
+     * Generates a new identifier from the given certificate fields. Strings, numbers, dates and date-times are hashed
+     * in a compact binary form, other values by their string representation.
+     */
+    public static String generateUVCI(Object... fields) {
+        return GENERATOR.get().generate(COUNTER.getAndIncrement(), fields);
     }
 
-    private static String getOpaqueString(String input) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-384");
-            md.update(SALT);
-            byte[] inputHash = md.digest(input.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Returns the opaque part of the given identifier, the part after the country code.
+     */
+    public static String getOpaqueString(String uvci) {
+        return uvci.substring(uvci.lastIndexOf(':') + 1);
+    }
 
-            // XOR parts of the hash to get a 96bit hash
-            int xorBlockSize = 4;
-            byte[] reducedHash = new byte[12];
-            int insertIndex = 0;
-            for (int i = 0; i <= inputHash.length - xorBlockSize; i += xorBlockSize) {
-                byte[] current = Arrays.copyOfRange(inputHash, i, i + 4);
-                reducedHash[insertIndex] = getXor(current);
-                ++insertIndex;
+    /**
+     * Returns the opaque hash of an identifier in the generated form as 12 bytes, null for identifiers of another form.
+     */
+    public static byte[] getOpaqueBytes(String uvci) {
+        if (uvci.length() != UVCI_PREFIX.length + 2 * OPAQUE_BYTES) {
+            return null;
+        }
+        for (int i = 0; i < UVCI_PREFIX.length; i++) {
+            if (uvci.charAt(i) != UVCI_PREFIX[i]) {
+                return null;
+            }
+        }
+        byte[] opaque = new byte[OPAQUE_BYTES];
+        for (int i = 0; i < OPAQUE_BYTES; i++) {
+            int high = hexValue(uvci.charAt(UVCI_PREFIX.length + 2 * i));
+            int low = hexValue(uvci.charAt(UVCI_PREFIX.length + 2 * i + 1));
+            if (high < 0 || low < 0) {
+                return null;
             }
+            opaque[i] = (byte) (high << 4 | low);
+        }
+        return opaque;
+    }
 
-            return encodeHexString(reducedHash).toUpperCase();
-        } catch (NoSuchAlgorithmException e) {
-            log.error("Could not find hashing algorithm: ", e);
-            return null;
+    /**
+     * Returns the identifier in the generated form for the 12 bytes of an opaque hash.
+     */
+    public static String fromOpaqueBytes(byte[] opaque) {
+        if (opaque.length != OPAQUE_BYTES) {
+            throw new IllegalArgumentException("Opaque hash must have " + OPAQUE_BYTES + " bytes: " + opaque.length);
+        }
+        char[] uvci = Arrays.copyOf(UVCI_PREFIX, UVCI_PREFIX.length + 2 * OPAQUE_BYTES);
+        int index = UVCI_PREFIX.length;
+        for (byte b : opaque) {
+            uvci[index++] = HEX_DIGITS[(b >> 4) & 0x0F];
+            uvci[index++] = HEX_DIGITS[b & 0x0F];
+        }
+        return new String(uvci);
+    }
+
+    private static int hexValue(char digit) {
+        if (digit >= '0' && digit <= '9') {
+            return digit - '0';
         }
+        return digit >= 'A' && digit <= 'F' ? digit - 'A' + 10 : -1;
     }
 
-    private static byte getXor(byte[] data) {
-        byte temp = data[0];
-        for (int i = 1; i < data.length; i++) {
-            temp ^= data[i];
+    private static final class Generator {
+        private final MessageDigest md;
+        private final byte[] hash = new byte[HASH_LENGTH];
+        private final char[] uvci = new char[UVCI_PREFIX.length + 2 * OPAQUE_BYTES];
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        private Generator() {
+            try {
+                md = MessageDigest.getInstance("SHA-384");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Could not find hashing algorithm", e);
+            }
+            System.arraycopy(UVCI_PREFIX, 0, uvci, 0, UVCI_PREFIX.length);
+        }
+
+        private String generate(long counter, Object[] fields) {
+            buffer.clear();
+            buffer.put(SALT);
+            buffer.putLong(counter);
+            for (Object field : fields) {
+                putField(field);
+            }
+            md.update(buffer.array(), 0, buffer.position());
+            try {
+                md.digest(hash, 0, HASH_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+
+            // XOR parts of the hash to get a 96bit hash
+            int index = UVCI_PREFIX.length;
+            for (int i = 0; i < HASH_LENGTH; i += XOR_BLOCK_SIZE) {
+                int reduced = hash[i] ^ hash[i + 1] ^ hash[i + 2] ^ hash[i + 3];
+                uvci[index++] = HEX_DIGITS[(reduced >> 4) & 0x0F];
+                uvci[index++] = HEX_DIGITS[reduced & 0x0F];
+            }
+            return new String(uvci);
+        }
+
+        private void putField(Object field) {
+            if (field == null) {
+                ensureCapacity(1);
+                buffer.put((byte) 0);
+            } else if (field instanceof Number) {
+                ensureCapacity(9);
+                buffer.put((byte) 1).putLong(((Number) field).longValue());
+            } else if (field instanceof LocalDate) {
+                ensureCapacity(9);
+                buffer.put((byte) 2).putLong(((LocalDate) field).toEpochDay());
+            } else if (field instanceof ZonedDateTime) {
+                ensureCapacity(13);
+                ZonedDateTime dateTime = (ZonedDateTime) field;
+                buffer.put((byte) 3).putLong(dateTime.toEpochSecond()).putInt(dateTime.getNano());
+            } else {
+                CharSequence value = field instanceof CharSequence ? (CharSequence) field : field.toString();
+                ensureCapacity(5 + 2 * value.length());
+                buffer.put((byte) 4).putInt(value.length());
+                for (int i = 0; i < value.length(); i++) {
+                    buffer.putChar(value.charAt(i));
+                }
+            }
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
         }
-        return temp;
     }
 }
@@ -0,0 +1,119 @@
+package ch.admin.bag.covidcertificate.web.controller;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchCreateDto;
+import ch.admin.bag.covidcertificate.api.response.CertificateBatchJobDto;
+import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
+import ch.admin.bag.covidcertificate.service.batch.CertificateBatchJobService;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.UUID;
+
+import static ch.admin.bag.covidcertificate.api.Constants.BATCH_JOB_NOT_FOUND;
+import static ch.admin.bag.covidcertificate.api.Constants.USER_EXT_ID_CLAIM_KEY;
+
+/**
+ * Creates batches of certificates as jobs: the batch is accepted right away and processed in the background, the
+ * client polls the job and downloads the results. Only available with a directory for the batch jobs configured.
+ */
+@RestController
+@ConditionalOnExpression("!'${cc-management-service.batch-jobs.directory:}'.isEmpty()")
+@RequestMapping("/api/v1/covidcertificate/batch")
+@RequiredArgsConstructor
+@Slf4j
+public class CertificateBatchController {
+    static final String ZIP_MEDIA_TYPE = "application/zip";
+    static final String CSV_MEDIA_TYPE = "text/csv";
+
+    private final SecurityHelper securityHelper;
+    private final ServletJeapAuthorization jeapAuthorization;
+    private final CertificateBatchJobService certificateBatchJobService;
+
+    @PostMapping
+    @PreAuthorize("hasAnyRole('bag-cc-certificatecreator', 'bag-cc-superuser')")
+    @ApiResponse(responseCode = "202", description = "ACCEPTED")
+    public ResponseEntity<CertificateBatchJobDto> submit(@RequestBody CertificateBatchCreateDto batchDto, HttpServletRequest request) {
+        log.info("Call of submit certificate batch.");
+        securityHelper.authorizeUser(request);
+        String userExtId = getUserExtId();
+        CertificateBatchJobDto job = certificateBatchJobService.submit(batchDto, getOwner(request), userExtId);
+        return ResponseEntity.accepted().body(job);
+    }
+
+    /**
+     * A batch of test and vaccination certificates as CSV with a header row, read from the request as it arrives.
+     * Rows that can not be read are reported as failed in the results.
+     */
+    @PostMapping(value = "/csv", consumes = CSV_MEDIA_TYPE)
+    @PreAuthorize("hasAnyRole('bag-cc-certificatecreator', 'bag-cc-superuser')")
+    @ApiResponse(responseCode = "202", description = "ACCEPTED")
+    public ResponseEntity<CertificateBatchJobDto> submitCsv(HttpServletRequest request) throws IOException {
+        log.info("Call of submit certificate batch from CSV.");
+        securityHelper.authorizeUser(request);
+        String userExtId = getUserExtId();
+        CertificateBatchJobDto job = certificateBatchJobService.submitCsv(request.getInputStream(), getOwner(request), userExtId);
+        return ResponseEntity.accepted().body(job);
+    }
+
+    @GetMapping("/{jobId}")
+    @PreAuthorize("hasAnyRole('bag-cc-certificatecreator', 'bag-cc-superuser')")
+    public CertificateBatchJobDto getJob(@PathVariable String jobId, HttpServletRequest request) throws IOException {
+        log.info("Call of get certificate batch job.");
+        securityHelper.authorizeUser(request);
+        return certificateBatchJobService.getJob(toId(jobId), getOwner(request));
+    }
+
+    /**
+     * A ZIP with the PDFs of the created certificates and a results.csv with the outcome of every item. Errors are
+     * answered with JSON, so the media type is not declared as produced.
+     */
+    @GetMapping("/{jobId}/results")
+    @PreAuthorize("hasAnyRole('bag-cc-certificatecreator', 'bag-cc-superuser')")
+    public ResponseEntity<StreamingResponseBody> getResults(@PathVariable String jobId, HttpServletRequest request) throws IOException {
+        log.info("Call of get certificate batch results.");
+        securityHelper.authorizeUser(request);
+        UUID id = toId(jobId);
+        String owner = getOwner(request);
+        certificateBatchJobService.getJob(id, owner);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ZIP_MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + id + ".zip\"")
+                .body(outputStream -> certificateBatchJobService.writeResults(id, owner, outputStream));
+    }
+
+    private UUID toId(String jobId) {
+        try {
+            return UUID.fromString(jobId);
+        } catch (IllegalArgumentException e) {
+            throw new CreateCertificateException(BATCH_JOB_NOT_FOUND);
+        }
+    }
+
+    private String getUserExtId() {
+        Jwt token = jeapAuthorization.getJeapAuthenticationToken().getToken();
+        return token == null ? null : token.getClaimAsString(USER_EXT_ID_CLAIM_KEY);
+    }
+
+    private String getOwner(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal == null ? "" : principal.getName();
+    }
+}
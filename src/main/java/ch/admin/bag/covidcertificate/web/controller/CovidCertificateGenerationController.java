@@ -1,26 +1,37 @@
 package ch.admin.bag.covidcertificate.web.controller;
 
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.request.CertificateArtefact;
 import ch.admin.bag.covidcertificate.api.request.RecoveryCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.TestCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
 import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
-import ch.admin.bag.covidcertificate.domain.KpiData;
+import ch.admin.bag.covidcertificate.service.CertificateExecutionService;
 import ch.admin.bag.covidcertificate.service.CovidCertificateGenerationService;
+import ch.admin.bag.covidcertificate.service.IdempotencyService;
 import ch.admin.bag.covidcertificate.service.KpiDataService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.io.IOException;
+import java.security.Principal;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 
 import static ch.admin.bag.covidcertificate.api.Constants.*;
 import static net.logstash.logback.argument.StructuredArguments.kv;
@@ -37,49 +48,88 @@ public class CovidCertificateGenerationController {
     private final CovidCertificateGenerationService covidCertificateGenerationService;
     private final ServletJeapAuthorization jeapAuthorization;
     private final KpiDataService kpiLogService;
+    private final IdempotencyService idempotencyService;
+    private final CertificateExecutionService certificateExecutionService;
 
-    @PostMapping("/vaccination")
+    @PostMapping(value = "/vaccination", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.MULTIPART_MIXED_VALUE})
     @PreAuthorize("hasAnyRole('bag-cc-certificatecreator', 'bag-cc-superuser')")
-    public CovidCertificateCreateResponseDto createVaccinationCertificate(@Valid @RequestBody VaccinationCertificateCreateDto createDto, HttpServletRequest request) throws IOException {
+    public CompletableFuture<CovidCertificateCreateResponseDto> createVaccinationCertificate(@Valid @RequestBody VaccinationCertificateCreateDto createDto, @RequestParam(required = false) Set<CertificateArtefact> artefacts, @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, HttpServletRequest request) throws IOException {
         log.info("Call of Create for vaccination certificate");
         securityHelper.authorizeUser(request);
         createDto.validate();
-        CovidCertificateCreateResponseDto responseDto = covidCertificateGenerationService.generateCovidCertificate(createDto);
-        log.debug(CREATE_LOG, responseDto.getUvci());
-        logKpi(KPI_TYPE_VACCINATION);
-        return responseDto;
+        Jwt token = jeapAuthorization.getJeapAuthenticationToken().getToken();
+        String idempotencyScope = getIdempotencyScope(request);
+        return certificateExecutionService.execute(() -> idempotencyService.execute(idempotencyKey, idempotencyScope, Arrays.asList(createDto, sorted(artefacts)), () -> {
+            CovidCertificateCreateResponseDto createdDto = artefacts == null
+                    ? covidCertificateGenerationService.generateCovidCertificate(createDto)
+                    : covidCertificateGenerationService.generateCovidCertificate(createDto, validateArtefacts(artefacts));
+            logCreated(KPI_TYPE_VACCINATION, createdDto.getUvci(), token);
+            log.debug(CREATE_LOG, createdDto.getUvci());
+            return createdDto;
+        }));
     }
 
-    @PostMapping("/test")
+    @PostMapping(value = "/test", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.MULTIPART_MIXED_VALUE})
     @PreAuthorize("hasAnyRole('bag-cc-certificatecreator', 'bag-cc-superuser')")
-    public CovidCertificateCreateResponseDto createTestCertificate(@Valid @RequestBody TestCertificateCreateDto createDto, HttpServletRequest request) throws IOException {
+    public CompletableFuture<CovidCertificateCreateResponseDto> createTestCertificate(@Valid @RequestBody TestCertificateCreateDto createDto, @RequestParam(required = false) Set<CertificateArtefact> artefacts, @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, HttpServletRequest request) throws IOException {
         log.info("Call of Create for test certificate");
         securityHelper.authorizeUser(request);
         createDto.validate();
-        CovidCertificateCreateResponseDto responseDto = covidCertificateGenerationService.generateCovidCertificate(createDto);
-        log.debug(CREATE_LOG, responseDto.getUvci());
-        logKpi(KPI_TYPE_TEST);
-        return responseDto;
+        Jwt token = jeapAuthorization.getJeapAuthenticationToken().getToken();
+        String idempotencyScope = getIdempotencyScope(request);
+        return certificateExecutionService.execute(() -> idempotencyService.execute(idempotencyKey, idempotencyScope, Arrays.asList(createDto, sorted(artefacts)), () -> {
+            CovidCertificateCreateResponseDto createdDto = artefacts == null
+                    ? covidCertificateGenerationService.generateCovidCertificate(createDto)
+                    : covidCertificateGenerationService.generateCovidCertificate(createDto, validateArtefacts(artefacts));
+            logCreated(KPI_TYPE_TEST, createdDto.getUvci(), token);
+            log.debug(CREATE_LOG, createdDto.getUvci());
+            return createdDto;
+        }));
     }
 
-    @PostMapping("/recovery")
+    @PostMapping(value = "/recovery", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.MULTIPART_MIXED_VALUE})
     @PreAuthorize("hasAnyRole('bag-cc-certificatecreator', 'bag-cc-superuser')")
-    public CovidCertificateCreateResponseDto createRecoveryCertificate(@Valid @RequestBody RecoveryCertificateCreateDto createDto, HttpServletRequest request) throws IOException {
+    public CompletableFuture<CovidCertificateCreateResponseDto> createRecoveryCertificate(@Valid @RequestBody RecoveryCertificateCreateDto createDto, @RequestParam(required = false) Set<CertificateArtefact> artefacts, @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, HttpServletRequest request) throws IOException {
         log.info("Call of Create for recovery certificate");
         securityHelper.authorizeUser(request);
         createDto.validate();
-        CovidCertificateCreateResponseDto responseDto = covidCertificateGenerationService.generateCovidCertificate(createDto);
-        log.debug(CREATE_LOG, responseDto.getUvci());
-        logKpi(KPI_TYPE_RECOVERY);
-        return responseDto;
+        Jwt token = jeapAuthorization.getJeapAuthenticationToken().getToken();
+        String idempotencyScope = getIdempotencyScope(request);
+        return certificateExecutionService.execute(() -> idempotencyService.execute(idempotencyKey, idempotencyScope, Arrays.asList(createDto, sorted(artefacts)), () -> {
+            CovidCertificateCreateResponseDto createdDto = artefacts == null
+                    ? covidCertificateGenerationService.generateCovidCertificate(createDto)
+                    : covidCertificateGenerationService.generateCovidCertificate(createDto, validateArtefacts(artefacts));
+            logCreated(KPI_TYPE_RECOVERY, createdDto.getUvci(), token);
+            log.debug(CREATE_LOG, createdDto.getUvci());
+            return createdDto;
+        }));
     }
 
-    private void logKpi(String type) {
-        Jwt token = jeapAuthorization.getJeapAuthenticationToken().getToken();
-        if (token != null && token.getClaimAsString(USER_EXT_ID_CLAIM_KEY) != null) {
-            LocalDateTime kpiTimestamp = LocalDateTime.now();
-            log.info("kpi: {} {} {} {}", kv(KPI_TIMESTAMP_KEY, kpiTimestamp.format(LOG_FORMAT)), kv(KPI_CREATE_CERTIFICATE_SYSTEM_KEY, KPI_SYSTEM_UI), kv(KPI_TYPE_KEY, type), kv(KPI_UUID_KEY, token.getClaimAsString(USER_EXT_ID_CLAIM_KEY)));
-            kpiLogService.log(new KpiData(kpiTimestamp, type, token.getClaimAsString(USER_EXT_ID_CLAIM_KEY)));
+    /**
+     * The artefacts in a fixed order, so the same selection is one request for the Idempotency-Key.
+     */
+    private static Set<CertificateArtefact> sorted(Set<CertificateArtefact> artefacts) {
+        return artefacts == null ? null : new TreeSet<>(artefacts);
+    }
+
+    private Set<CertificateArtefact> validateArtefacts(Set<CertificateArtefact> artefacts) {
+        if (artefacts.isEmpty()) {
+            throw new CreateCertificateException(NO_ARTEFACTS);
+        }
+        return artefacts;
+    }
+
+    private String getIdempotencyScope(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal == null ? "" : principal.getName();
+    }
+
+    private void logCreated(String type, String uvci, Jwt token) {
+        String userExtId = token == null ? null : token.getClaimAsString(USER_EXT_ID_CLAIM_KEY);
+        LocalDateTime kpiTimestamp = LocalDateTime.now();
+        if (userExtId != null) {
+            log.info("kpi: {} {} {} {}", kv(KPI_TIMESTAMP_KEY, kpiTimestamp.format(LOG_FORMAT)), kv(KPI_CREATE_CERTIFICATE_SYSTEM_KEY, KPI_SYSTEM_UI), kv(KPI_TYPE_KEY, type), kv(KPI_UUID_KEY, userExtId));
         }
+        kpiLogService.logCertificateCreated(kpiTimestamp, type, uvci, userExtId);
     }
 }
@@ -1,7 +1,6 @@
 package ch.admin.bag.covidcertificate.web.controller;
 
 import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
-import ch.admin.bag.covidcertificate.domain.KpiData;
 import ch.admin.bag.covidcertificate.service.CustomTokenProvider;
 import ch.admin.bag.covidcertificate.service.KpiDataService;
 import lombok.RequiredArgsConstructor;
@@ -44,7 +43,7 @@ public class OneTimePasswordController {
         String otp = customTokenProvider.createToken(token.getClaimAsString(USER_EXT_ID_CLAIM_KEY), token.getClaimAsString("homeName"));
         LocalDateTime kpiTimestamp = LocalDateTime.now();
         log.info("kpi: {} {} {}", kv(KPI_TIMESTAMP_KEY, ZonedDateTime.now(SWISS_TIMEZONE).format(LOG_FORMAT)), kv(KPI_OTP_SYSTEM_KEY, KPI_SYSTEM_UI), kv(KPI_UUID_KEY, token.getClaimAsString(USER_EXT_ID_CLAIM_KEY)));
-        kpiLogService.log(new KpiData(kpiTimestamp, KPI_OTP_SYSTEM_KEY, token.getClaimAsString(USER_EXT_ID_CLAIM_KEY)));
+        kpiLogService.logOtpCreated(kpiTimestamp, token.getClaimAsString(USER_EXT_ID_CLAIM_KEY));
         return otp;
     }
 
@@ -3,11 +3,15 @@ package ch.admin.bag.covidcertificate.web.controller;
 import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
 import ch.admin.bag.covidcertificate.api.exception.RevocationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+import static ch.admin.bag.covidcertificate.api.Constants.RETRY_AFTER_SECONDS;
 
 @ControllerAdvice
 @Slf4j
@@ -18,6 +22,11 @@ public class ResponseStatusExceptionHandler {
         if (ex.getError().getHttpStatus() == HttpStatus.INTERNAL_SERVER_ERROR) {
             log.error(ex.getError().getErrorMessage(), ex);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        } else if (ex.getError().getHttpStatus() == HttpStatus.SERVICE_UNAVAILABLE) {
+            log.warn("Create certificate exception, errorCode: {}", ex.getError().getErrorCode());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                    .body(ex.getError());
         } else {
             log.warn("Create certificate exception, errorCode: {}", ex.getError().getErrorCode(), ex);
             return new ResponseEntity<>(ex.getError(), ex.getError().getHttpStatus());
@@ -26,9 +35,23 @@ public class ResponseStatusExceptionHandler {
 
     @ExceptionHandler(value = {RevocationException.class})
     protected ResponseEntity<Object> handleRevocationException(RevocationException ex) {
+        if (ex.getError().getHttpStatus() == HttpStatus.SERVICE_UNAVAILABLE) {
+            log.warn("Revocation exception, errorCode: {}", ex.getError().getErrorCode());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                    .body(ex.getError());
+        }
         return new ResponseEntity<>(ex.getError(), ex.getError().getHttpStatus());
     }
 
+    @ExceptionHandler(value = {AsyncRequestTimeoutException.class})
+    protected ResponseEntity<Object> handleAsyncRequestTimeoutException() {
+        log.warn("Async request timed out");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                .build();
+    }
+
     @ExceptionHandler(value = {AccessDeniedException.class, SecurityException.class})
     protected ResponseEntity<Object> handleAccessDeniedException() {
         return new ResponseEntity<>(HttpStatus.FORBIDDEN);
@@ -1,6 +1,8 @@
 package ch.admin.bag.covidcertificate.web.controller;
 
 import ch.admin.bag.covidcertificate.api.request.RevocationDto;
+import ch.admin.bag.covidcertificate.api.request.RevocationStatusRequestDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationStatusDto;
 import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
 import ch.admin.bag.covidcertificate.domain.KpiData;
 import ch.admin.bag.covidcertificate.service.KpiDataService;
@@ -8,6 +10,7 @@ import ch.admin.bag.covidcertificate.service.RevocationService;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,6 +23,7 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static ch.admin.bag.covidcertificate.api.Constants.*;
 import static net.logstash.logback.argument.StructuredArguments.kv;
@@ -34,6 +38,9 @@ public class RevocationController {
     private final RevocationService revocationService;
     private final KpiDataService kpiLogService;
 
+    @Value("${cc-management-service.revocation-status.max-uvcis:5000}")
+    private int maxStatusUvcis;
+
     @PostMapping
     @PreAuthorize("hasAnyRole('bag-cc-certificatecreator', 'bag-cc-superuser')")
     @ApiResponse(responseCode = "201", description = "CREATED")
@@ -46,6 +53,15 @@ public class RevocationController {
         return new ResponseEntity<>(HttpStatus.CREATED);
     }
 
+    @PostMapping("/status")
+    @PreAuthorize("hasAnyRole('bag-cc-certificatecreator', 'bag-cc-superuser')")
+    public List<RevocationStatusDto> getStatus(@RequestBody RevocationStatusRequestDto statusRequestDto, HttpServletRequest request) {
+        log.info("Call of get revocation status.");
+        securityHelper.authorizeUser(request);
+        statusRequestDto.validate(maxStatusUvcis);
+        return revocationService.getRevocationStatus(statusRequestDto.getUvcis());
+    }
+
     private void logKpi() {
         Jwt token = jeapAuthorization.getJeapAuthenticationToken().getToken();
         if (token != null && token.getClaimAsString(USER_EXT_ID_CLAIM_KEY) != null) {
@@ -1,12 +1,20 @@
 package ch.admin.bag.covidcertificate.web.controller;
 
+import ch.admin.bag.covidcertificate.api.response.RevocationListBucketDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationListManifestDto;
+import ch.admin.bag.covidcertificate.service.RevocationListSigner;
 import ch.admin.bag.covidcertificate.service.RevocationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -14,12 +22,51 @@ import java.util.List;
 @RequiredArgsConstructor
 @Slf4j
 public class RevocationListController {
+    static final String COSE_MEDIA_TYPE = "application/cose";
+
     private final RevocationService revocationService;
 
+    @Value("${cc-management-service.revocation-list.signed.max-age-seconds:60}")
+    private long signedMaxAgeSeconds;
+
     @GetMapping()
     public List<String> get() {
         log.info("Call of get revocations.");
         return revocationService.getRevocations();
     }
 
+    /**
+     * The versions of the buckets the revocation list is split into by the leading bits of the UVCI opaque part.
+     * Answered with 304 if the If-None-Match header holds the current version.
+     */
+    @GetMapping("/buckets")
+    public ResponseEntity<RevocationListManifestDto> getManifest() {
+        log.info("Call of get revocation list manifest.");
+        RevocationListManifestDto manifest = revocationService.getRevocationListManifest();
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(manifest.getVersion()).body(manifest);
+    }
+
+    /**
+     * The revoked UVCIs of a single bucket, answered with 304 if the If-None-Match header holds its current version.
+     */
+    @GetMapping("/buckets/{index}")
+    public ResponseEntity<RevocationListBucketDto> getBucket(@PathVariable int index) {
+        log.info("Call of get revocation list bucket {}.", index);
+        RevocationListBucketDto bucket = revocationService.getRevocationListBucket(index);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(bucket.getVersion()).body(bucket);
+    }
+
+    /**
+     * The revocation list as COSE_Sign1 document signed in the background, may be cached publicly. Every node signs the
+     * version on its own, so the ETag is weak: the same version has the same content but not the same bytes.
+     */
+    @GetMapping(value = "/signed", produces = COSE_MEDIA_TYPE)
+    public ResponseEntity<byte[]> getSigned() {
+        log.info("Call of get signed revocation list.");
+        RevocationListSigner.SignedRevocationList signed = revocationService.getSignedRevocationList();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(signedMaxAgeSeconds)).cachePublic())
+                .eTag("W/\"" + signed.getVersion() + "\"")
+                .body(signed.getDocument());
+    }
 }
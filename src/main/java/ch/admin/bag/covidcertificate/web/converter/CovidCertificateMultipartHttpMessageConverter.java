@@ -0,0 +1,76 @@
+package ch.admin.bag.covidcertificate.web.converter;
+
+import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link CovidCertificateCreateResponseDto} as a multipart/mixed response. The PDF and the QR code image are
+ * sent as raw binary parts instead of base64 encoded JSON strings, the UVCI is sent as a text part and as header.
+ */
+@Component
+public class CovidCertificateMultipartHttpMessageConverter extends AbstractHttpMessageConverter<CovidCertificateCreateResponseDto> {
+
+    public static final String UVCI_HEADER = "X-UVCI";
+    public static final String UVCI_PART = "uvci";
+    public static final String QR_CODE_PART = "qrCode";
+    public static final String PDF_PART = "pdf";
+    public static final String PAYLOAD_PART = "payload";
+
+    private final FormHttpMessageConverter formHttpMessageConverter = new FormHttpMessageConverter();
+
+    public CovidCertificateMultipartHttpMessageConverter() {
+        super(MediaType.MULTIPART_MIXED);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CovidCertificateCreateResponseDto.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected CovidCertificateCreateResponseDto readInternal(Class<? extends CovidCertificateCreateResponseDto> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading multipart certificate responses is not supported.", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(CovidCertificateCreateResponseDto responseDto, HttpOutputMessage outputMessage) throws IOException {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        if (responseDto.getUvci() != null) {
+            outputMessage.getHeaders().set(UVCI_HEADER, responseDto.getUvci());
+            parts.add(UVCI_PART, createPart(responseDto.getUvci(), MediaType.TEXT_PLAIN));
+        }
+        if (responseDto.getPayload() != null) {
+            parts.add(PAYLOAD_PART, createPart(responseDto.getPayload(), MediaType.TEXT_PLAIN));
+        }
+        if (responseDto.getQrCode() != null) {
+            parts.add(QR_CODE_PART, createPart(responseDto.getQrCode(), MediaType.IMAGE_PNG));
+        }
+        if (responseDto.getPdf() != null) {
+            parts.add(PDF_PART, createPart(responseDto.getPdf(), MediaType.APPLICATION_PDF));
+        }
+        formHttpMessageConverter.write(parts, MediaType.MULTIPART_MIXED, outputMessage);
+    }
+
+    private HttpEntity<Object> createPart(Object body, MediaType contentType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        return new HttpEntity<>(body, headers);
+    }
+}
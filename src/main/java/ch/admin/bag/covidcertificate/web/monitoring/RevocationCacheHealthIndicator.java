@@ -0,0 +1,26 @@
+package ch.admin.bag.covidcertificate.web.monitoring;
+
+import ch.admin.bag.covidcertificate.service.RevocationCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the health status out of service until the revocations are loaded, so revocation reads are not routed to an
+ * instance that would fail them.
+ */
+@Component
+@RequiredArgsConstructor
+class RevocationCacheHealthIndicator implements HealthIndicator {
+
+    private final RevocationCache revocationCache;
+
+    @Override
+    public Health health() {
+        if (revocationCache.isLoaded()) {
+            return Health.up().build();
+        }
+        return Health.outOfService().withDetail("reason", "revocations loading").build();
+    }
+}
@@ -0,0 +1,25 @@
+package ch.admin.bag.covidcertificate.web.monitoring;
+
+import ch.admin.bag.covidcertificate.service.WarmupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the health status out of service until the warmup has finished, so no traffic is routed to a cold instance.
+ */
+@Component
+@RequiredArgsConstructor
+class WarmupHealthIndicator implements HealthIndicator {
+
+    private final WarmupService warmupService;
+
+    @Override
+    public Health health() {
+        if (warmupService.isCompleted()) {
+            return Health.up().build();
+        }
+        return Health.outOfService().withDetail("reason", "warmup in progress").build();
+    }
+}
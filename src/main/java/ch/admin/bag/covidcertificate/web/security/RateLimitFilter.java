@@ -0,0 +1,156 @@
+package ch.admin.bag.covidcertificate.web.security;
+
+import ch.admin.bag.covidcertificate.config.security.authentication.JeapAuthenticationToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static ch.admin.bag.covidcertificate.api.Constants.RATE_LIMIT_EXCEEDED;
+import static ch.admin.bag.covidcertificate.api.Constants.USER_EXT_ID_CLAIM_KEY;
+
+/**
+ * Limits the requests per caller and endpoint group with a token bucket per caller. Runs after the security filter
+ * chain, so the caller is known from its {@link JeapAuthenticationToken}. Throttled requests are answered with
+ * 429 Too Many Requests and counted per endpoint group and limit, see {@link RateLimitProperties}.
+ */
+@Component
+@ConditionalOnProperty("cc-management-service.rate-limit.enabled")
+@EnableConfigurationProperties(RateLimitProperties.class)
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+    static final String THROTTLED_METRIC = "rate.limit.throttled";
+    static final String DEFAULT_LIMIT = "default";
+
+    enum EndpointGroup {
+        // a batch creates up to max-items certificates, so submitting one is limited apart from single creations
+        BATCH("batch", "POST", "/api/v1/covidcertificate/batch"),
+        CREATION("creation", null, "/api/v1/covidcertificate"),
+        OTP("otp", null, "/api/v1/otp"),
+        REVOCATION("revocation", null, "/api/v1/revocation");
+
+        private final String key;
+        private final String method;
+        private final String path;
+
+        EndpointGroup(String key, String method, String path) {
+            this.key = key;
+            this.method = method;
+            this.path = path;
+        }
+
+        static EndpointGroup of(String requestMethod, String requestPath) {
+            for (EndpointGroup group : values()) {
+                if ((group.method == null || group.method.equals(requestMethod))
+                        && (requestPath.equals(group.path) || requestPath.startsWith(group.path + "/"))) {
+                    return group;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+    private final LongSupplier nanoTime;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    // Buckets of callers that have not been seen for a while are dropped, a full bucket behaves like a new one
+    private final Cache<String, TokenBucket> buckets = CacheBuilder.newBuilder()
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this(properties, meterRegistry, objectMapper, System::nanoTime);
+    }
+
+    RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper, LongSupplier nanoTime) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        EndpointGroup group = EndpointGroup.of(request.getMethod(), urlPathHelper.getPathWithinApplication(request));
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Map<String, RateLimitProperties.Limit> limits = group == null ? null : properties.getLimits().get(group.key);
+        if (limits == null || !(authentication instanceof JeapAuthenticationToken)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        JeapAuthenticationToken token = (JeapAuthenticationToken) authentication;
+        String limitName = getLimitName(limits, token);
+        RateLimitProperties.Limit limit = limits.get(limitName);
+        if (limit == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = getBucket(group.key + ":" + limitName + ":" + getCaller(token), limit).tryAcquire(nanoTime.getAsLong());
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        log.warn("Rate limit {} of {} exceeded by {}", limitName, group.key, getCaller(token));
+        meterRegistry.counter(THROTTLED_METRIC, "group", group.key, "limit", limitName).increment();
+        response.setStatus(RATE_LIMIT_EXCEEDED.getHttpStatus().value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), RATE_LIMIT_EXCEEDED);
+    }
+
+    /**
+     * The most generous limit among the configured roles of the caller, or the default limit.
+     */
+    private String getLimitName(Map<String, RateLimitProperties.Limit> limits, JeapAuthenticationToken token) {
+        String limitName = DEFAULT_LIMIT;
+        double refillPerSecond = -1;
+        for (String role : token.getUserRoles()) {
+            RateLimitProperties.Limit limit = limits.get(role);
+            if (limit != null && limit.getRefillPerSecond() > refillPerSecond) {
+                limitName = role;
+                refillPerSecond = limit.getRefillPerSecond();
+            }
+        }
+        return limitName;
+    }
+
+    private String getCaller(JeapAuthenticationToken token) {
+        String userExtId = token.getToken().getClaimAsString(USER_EXT_ID_CLAIM_KEY);
+        if (userExtId != null) {
+            return userExtId;
+        }
+        return token.getClientId() != null ? token.getClientId() : token.getName();
+    }
+
+    private TokenBucket getBucket(String key, RateLimitProperties.Limit limit) {
+        try {
+            return buckets.get(key, () -> new TokenBucket(limit.getCapacity(), limit.getRefillPerSecond(), nanoTime.getAsLong()));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ch.admin.bag.covidcertificate.web.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rate limits per endpoint group (batch, creation, otp, revocation). Within a group the limit is chosen by the user roles of
+ * the caller, the limit named default applies to callers without a configured role. Groups without limits are not
+ * limited.
+ */
+@Setter
+@Getter
+@ConfigurationProperties("cc-management-service.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled;
+    private Map<String, Map<String, Limit>> limits = new HashMap<>();
+
+    @Setter
+    @Getter
+    public static class Limit {
+        private long capacity;
+        private double refillPerSecond;
+    }
+}
@@ -0,0 +1,3 @@
+-- The compact form of the UVCI, filled for existing rows by the backfill of the application
+alter table revocation add column uvci_opaque bytea;
+create unique index revocation_uvci_opaque_key on revocation (uvci_opaque);
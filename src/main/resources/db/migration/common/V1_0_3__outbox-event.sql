@@ -0,0 +1,8 @@
+-- Events for downstream consumers, delivered in the order of the id and deleted by the relay of the application
+create table outbox_event
+(
+    id         bigserial   not null primary key,
+    created_at timestamp   not null,
+    type       varchar(64) not null,
+    payload    text        not null
+);
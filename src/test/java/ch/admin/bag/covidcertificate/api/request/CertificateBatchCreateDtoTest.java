@@ -0,0 +1,53 @@
+package ch.admin.bag.covidcertificate.api.request;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ch.admin.bag.covidcertificate.TestModelProvider.getRecoveryCertificateCreateDto;
+import static ch.admin.bag.covidcertificate.TestModelProvider.getVaccinationCertificateCreateDto;
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_BATCH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CertificateBatchCreateDtoTest {
+    private static final CertificateBatchItemDto VACCINATION = new CertificateBatchItemDto(getVaccinationCertificateCreateDto("EU/1/20/1507"), null, null);
+    private static final CertificateBatchItemDto RECOVERY = new CertificateBatchItemDto(null, null, getRecoveryCertificateCreateDto());
+
+    @Test
+    public void whenValidate_thenOk() {
+        // given
+        CertificateBatchCreateDto batchDto = new CertificateBatchCreateDto(List.of(VACCINATION, RECOVERY));
+        // when
+        batchDto.validate(2);
+        // then
+        assertEquals(VACCINATION.getVaccination(), batchDto.getItems().get(0).getCertificate());
+        assertEquals(RECOVERY.getRecovery(), batchDto.getItems().get(1).getCertificate());
+    }
+
+    @Test
+    public void givenNoItems_whenValidate_thenThrowsCreateCertificateException() {
+        assertInvalid(new CertificateBatchCreateDto(null));
+        assertInvalid(new CertificateBatchCreateDto(Collections.emptyList()));
+    }
+
+    @Test
+    public void givenTooManyItems_whenValidate_thenThrowsCreateCertificateException() {
+        assertInvalid(new CertificateBatchCreateDto(List.of(VACCINATION, VACCINATION, VACCINATION)));
+    }
+
+    @Test
+    public void givenItemWithoutOrWithSeveralCertificates_whenValidate_thenThrowsCreateCertificateException() {
+        assertInvalid(new CertificateBatchCreateDto(Arrays.asList(VACCINATION, null)));
+        assertInvalid(new CertificateBatchCreateDto(List.of(new CertificateBatchItemDto(null, null, null))));
+        assertInvalid(new CertificateBatchCreateDto(List.of(new CertificateBatchItemDto(VACCINATION.getVaccination(), null, RECOVERY.getRecovery()))));
+    }
+
+    private void assertInvalid(CertificateBatchCreateDto batchDto) {
+        CreateCertificateException exception = assertThrows(CreateCertificateException.class, () -> batchDto.validate(2));
+        assertEquals(INVALID_BATCH, exception.getError());
+    }
+}
@@ -0,0 +1,47 @@
+package ch.admin.bag.covidcertificate.api.request;
+
+import ch.admin.bag.covidcertificate.api.exception.RevocationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_REVOCATION_STATUS_REQUEST;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RevocationStatusRequestDtoTest {
+    private static final String UVCI = "urn:uvci:01:CH:97DAB5E31B589AF3CAE2F53E";
+
+    @Test
+    public void whenValidate_thenOk() {
+        // given
+        RevocationStatusRequestDto statusRequestDto = new RevocationStatusRequestDto(List.of(UVCI, UVCI));
+        // when
+        statusRequestDto.validate(2);
+        // then
+        assertEquals(List.of(UVCI, UVCI), statusRequestDto.getUvcis());
+    }
+
+    @Test
+    public void givenNoUVCIs_whenValidate_thenThrowsRevocationException() {
+        assertInvalid(new RevocationStatusRequestDto(null));
+        assertInvalid(new RevocationStatusRequestDto(Collections.emptyList()));
+    }
+
+    @Test
+    public void givenTooManyUVCIs_whenValidate_thenThrowsRevocationException() {
+        assertInvalid(new RevocationStatusRequestDto(List.of(UVCI, UVCI, UVCI)));
+    }
+
+    @Test
+    public void givenNullUVCI_whenValidate_thenThrowsRevocationException() {
+        assertInvalid(new RevocationStatusRequestDto(Arrays.asList(UVCI, null)));
+    }
+
+    private void assertInvalid(RevocationStatusRequestDto statusRequestDto) {
+        RevocationException exception = assertThrows(RevocationException.class, () -> statusRequestDto.validate(2));
+        assertEquals(INVALID_REVOCATION_STATUS_REQUEST, exception.getError());
+    }
+}
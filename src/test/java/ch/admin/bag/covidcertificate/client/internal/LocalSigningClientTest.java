@@ -0,0 +1,86 @@
+package ch.admin.bag.covidcertificate.client.internal;
+
+import com.flextrade.jfixture.JFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalSigningClientTest {
+    private final JFixture fixture = new JFixture();
+
+    private KeyPair keyPair;
+    private LocalSigningClient signingClient;
+
+    @BeforeEach
+    void init() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        signingClient = new LocalSigningClient(keyPair.getPrivate());
+    }
+
+    private boolean verify(byte[] payload, byte[] signature) throws Exception {
+        Signature verifier = Signature.getInstance("RSASSA-PSS");
+        verifier.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update(payload);
+        return verifier.verify(signature);
+    }
+
+    @Test
+    void createsRsaPssSha256Signature() throws Exception {
+        byte[] payload = fixture.create(byte[].class);
+
+        byte[] signature = signingClient.create(payload);
+
+        assertEquals(256, signature.length);
+        assertTrue(verify(payload, signature));
+    }
+
+    @Test
+    void createsValidSignatures_ifCalledRepeatedly() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            byte[] payload = fixture.create(byte[].class);
+            assertTrue(verify(payload, signingClient.create(payload)));
+        }
+    }
+
+    @Test
+    void createsValidSignatures_ifCalledConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                byte[] payload = fixture.create(byte[].class);
+                tasks.add(() -> verify(payload, signingClient.create(payload)));
+            }
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void throwsIllegalStateException_ifKeyIsNotSuitable() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        var privateKey = generator.generateKeyPair().getPrivate();
+
+        assertThrows(IllegalStateException.class, () -> new LocalSigningClient(privateKey));
+    }
+}
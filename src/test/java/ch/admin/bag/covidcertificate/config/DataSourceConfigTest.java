@@ -0,0 +1,28 @@
+package ch.admin.bag.covidcertificate.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DataSourceConfigTest {
+    private final DriverManagerDataSource available = new DriverManagerDataSource("jdbc:h2:mem:health", "sa", "sa");
+    private final DriverManagerDataSource unavailable = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unavailable", "sa", "sa");
+
+    @Test
+    void reportsUp_ifOnlyReplicaIsDown() {
+        var health = new DataSourceConfig().dbHealthIndicator(available, unavailable).health();
+
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(Status.DOWN.getCode(), health.getDetails().get("replica"));
+    }
+
+    @Test
+    void reportsDown_ifPrimaryIsDown() {
+        var health = new DataSourceConfig().dbHealthIndicator(unavailable, available).health();
+
+        assertEquals(Status.DOWN, health.getStatus());
+        assertEquals(Status.UP.getCode(), health.getDetails().get("replica"));
+    }
+}
@@ -0,0 +1,132 @@
+package ch.admin.bag.covidcertificate.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadOnlyRoutingDataSourceTest {
+    private static final Instant NOW = Instant.parse("2021-06-01T10:00:00Z");
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    @Mock
+    private DataSource primary;
+    @Mock
+    private DataSource replica;
+    @Mock
+    private Connection primaryConnection;
+    @Mock
+    private Connection replicaConnection;
+    @Mock
+    private Clock clock;
+
+    private ReadOnlyRoutingDataSource dataSource;
+
+    @BeforeEach
+    void init() throws SQLException {
+        lenient().when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(replica.getConnection()).thenReturn(replicaConnection);
+        lenient().when(clock.instant()).thenReturn(NOW);
+        dataSource = new ReadOnlyRoutingDataSource(primary, replica, RETRY_DELAY, clock);
+    }
+
+    private Connection getConnectionInTransaction(boolean readOnly) {
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(new LazyConnectionDataSourceProxy(dataSource)));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void usesPrimary_outsideOfTransactions() throws SQLException {
+        assertSame(primaryConnection, dataSource.getConnection());
+        verifyNoInteractions(replica);
+    }
+
+    @Test
+    void usesPrimary_inReadWriteTransactions() {
+        assertSame(primaryConnection, getConnectionInTransaction(false));
+        verifyNoInteractions(replica);
+    }
+
+    @Test
+    void usesPrimary_forConnectionsWithCredentials() throws SQLException {
+        when(primary.getConnection("user", "password")).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, dataSource.getConnection("user", "password"));
+        verifyNoInteractions(replica);
+    }
+
+    @Test
+    void usesReplica_inReadOnlyTransactions() {
+        assertSame(replicaConnection, getConnectionInTransaction(true));
+    }
+
+    @Nested
+    class ReplicaUnavailable {
+        @BeforeEach
+        void failReplica() throws SQLException {
+            when(replica.getConnection()).thenThrow(new SQLException("unreachable"));
+        }
+
+        @Test
+        void usesPrimary() {
+            assertSame(primaryConnection, getConnectionInTransaction(true));
+        }
+
+        @Test
+        void triesReplicaAgain_afterRetryDelay() throws SQLException {
+            getConnectionInTransaction(true);
+            when(clock.instant()).thenReturn(NOW.plus(RETRY_DELAY).minusSeconds(1));
+            getConnectionInTransaction(true);
+            verify(replica, times(1)).getConnection();
+
+            when(clock.instant()).thenReturn(NOW.plus(RETRY_DELAY));
+            getConnectionInTransaction(true);
+
+            verify(replica, times(2)).getConnection();
+        }
+    }
+
+    @Test
+    void routesStatementsOfTransactionsToTheirDatabase() {
+        var primaryDatabase = new DriverManagerDataSource("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1", "sa", "sa");
+        var replicaDatabase = new DriverManagerDataSource("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1", "sa", "sa");
+        new JdbcTemplate(primaryDatabase).execute("create table if not exists node as select 'primary' as name");
+        new JdbcTemplate(replicaDatabase).execute("create table if not exists node as select 'replica' as name");
+        var routing = new LazyConnectionDataSourceProxy(new ReadOnlyRoutingDataSource(primaryDatabase, replicaDatabase, RETRY_DELAY, clock));
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        var jdbcTemplate = new JdbcTemplate(routing);
+
+        var readWrite = transactionTemplate.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+        transactionTemplate.setReadOnly(true);
+        var readOnly = transactionTemplate.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+
+        assertEquals("primary", readWrite);
+        assertEquals("replica", readOnly);
+    }
+}
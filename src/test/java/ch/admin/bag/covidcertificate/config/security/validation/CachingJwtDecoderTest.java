@@ -0,0 +1,107 @@
+package ch.admin.bag.covidcertificate.config.security.validation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingJwtDecoderTest {
+    private static final long MAX_SIZE = 2;
+
+    @Mock
+    private JwtDecoder delegate;
+    @Mock
+    private Clock clock;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachingJwtDecoder decoder;
+
+    private final Instant now = Instant.now();
+
+    @BeforeEach
+    void init() {
+        lenient().when(clock.instant()).thenReturn(now);
+        lenient().when(delegate.decode(anyString())).thenAnswer(invocation -> jwt(invocation.getArgument(0), now.plusSeconds(60)));
+        meterRegistry = new SimpleMeterRegistry();
+        decoder = new CachingJwtDecoder(delegate, MAX_SIZE, Duration.ofMinutes(5), clock, meterRegistry);
+    }
+
+    private Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .claim("sub", "subject")
+                .issuedAt(now)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private double count(String result) {
+        return meterRegistry.get(CachingJwtDecoder.CACHE_METRIC).tag("result", result).counter().count();
+    }
+
+    @Test
+    void decodesTokenOnlyOnce_ifTokenIsRepeated() {
+        var first = decoder.decode("token");
+        var second = decoder.decode("token");
+
+        assertSame(first, second);
+        verify(delegate).decode("token");
+        assertEquals(1, count("hit"));
+        assertEquals(1, count("miss"));
+    }
+
+    @Test
+    void decodesEachToken_ifTokensDiffer() {
+        decoder.decode("token");
+        decoder.decode("other-token");
+
+        verify(delegate).decode("token");
+        verify(delegate).decode("other-token");
+        assertEquals(0, count("hit"));
+        assertEquals(2, count("miss"));
+    }
+
+    @Test
+    void decodesTokenAgain_ifCachedTokenExpired() {
+        decoder.decode("token");
+        when(clock.instant()).thenReturn(now.plusSeconds(60));
+
+        decoder.decode("token");
+
+        verify(delegate, times(2)).decode("token");
+        assertEquals(0, count("hit"));
+    }
+
+    @Test
+    void doesNotCacheToken_ifDecodingFailed() {
+        when(delegate.decode("invalid")).thenThrow(new JwtException("invalid"));
+
+        assertThrows(JwtException.class, () -> decoder.decode("invalid"));
+        assertThrows(JwtException.class, () -> decoder.decode("invalid"));
+
+        verify(delegate, times(2)).decode("invalid");
+    }
+
+    @Test
+    void evictsTokens_ifMaxSizeIsExceeded() {
+        for (int i = 0; i <= MAX_SIZE; i++) {
+            decoder.decode("token-" + i);
+        }
+
+        assertEquals(MAX_SIZE, meterRegistry.get("jwt.cache.size").gauge().value());
+    }
+}
@@ -0,0 +1,158 @@
+package ch.admin.bag.covidcertificate.config.security.validation;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshingJwkSourceTest {
+    private static final String JWKS_PATH = "/.well-known/jwks.json";
+    private static final Duration MIN_REFETCH_INTERVAL = Duration.ofSeconds(30);
+
+    private static RSAKey firstKey;
+    private static RSAKey secondKey;
+
+    @Mock
+    private Clock clock;
+
+    private WireMockServer wireMockServer;
+    private RefreshingJwkSource jwkSource;
+
+    private final Instant now = Instant.now();
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        firstKey = new RSAKeyGenerator(2048).keyID("first").generate();
+        secondKey = new RSAKeyGenerator(2048).keyID("second").generate();
+    }
+
+    @BeforeEach
+    void init() {
+        lenient().when(clock.instant()).thenReturn(now);
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        stubJwks(firstKey);
+        jwkSource = new RefreshingJwkSource(new RestTemplate(), "http://localhost:" + wireMockServer.port() + JWKS_PATH,
+                Duration.ofMinutes(5), MIN_REFETCH_INTERVAL, clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jwkSource.close();
+        wireMockServer.stop();
+    }
+
+    private void stubJwks(JWK... keys) {
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(JWKS_PATH)).willReturn(aResponse()
+                .withStatus(HttpStatus.OK.value())
+                .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .withBody(new JWKSet(List.of(keys)).toJSONObject().toJSONString())));
+    }
+
+    private void stubFailure() {
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(JWKS_PATH)).willReturn(aResponse()
+                .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+    }
+
+    private List<JWK> select(String keyId) throws KeySourceException {
+        return jwkSource.get(new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build()), null);
+    }
+
+    private int fetches() {
+        return wireMockServer.findAll(getRequestedFor(urlPathEqualTo(JWKS_PATH))).size();
+    }
+
+    @Test
+    void prefetchesJwkSet_whenStarted() throws Exception {
+        jwkSource.start();
+
+        for (int i = 0; i < 100 && fetches() == 0; i++) {
+            Thread.sleep(50);
+        }
+        // Wait until the background fetch released the set
+        select("first");
+
+        assertEquals(1, fetches());
+    }
+
+    @Test
+    void servesKnownKeys_withoutFetchingAgain() throws Exception {
+        jwkSource.refresh();
+
+        for (int i = 0; i < 3; i++) {
+            List<JWK> keys = select("first");
+            assertEquals(1, keys.size());
+            assertEquals("first", keys.get(0).getKeyID());
+        }
+        assertEquals(1, fetches());
+    }
+
+    @Test
+    void fetchesJwkSet_ifKeyIdIsUnknown() throws Exception {
+        jwkSource.refresh();
+        stubJwks(firstKey, secondKey);
+        when(clock.instant()).thenReturn(now.plus(MIN_REFETCH_INTERVAL));
+
+        List<JWK> keys = select("second");
+
+        assertEquals(1, keys.size());
+        assertEquals("second", keys.get(0).getKeyID());
+        assertEquals(2, fetches());
+    }
+
+    @Test
+    void limitsFetches_ifUnknownKeyIdsAreRequestedRepeatedly() throws Exception {
+        jwkSource.refresh();
+        when(clock.instant()).thenReturn(now.plus(MIN_REFETCH_INTERVAL));
+
+        assertTrue(select("unknown").isEmpty());
+        assertTrue(select("unknown").isEmpty());
+        assertTrue(select("other-unknown").isEmpty());
+
+        assertEquals(2, fetches());
+    }
+
+    @Test
+    void keepsPreviousKeys_ifRefreshFails() throws Exception {
+        jwkSource.refresh();
+        stubFailure();
+
+        assertThrows(KeySourceException.class, () -> jwkSource.refresh());
+
+        assertEquals("first", select("first").get(0).getKeyID());
+    }
+
+    @Test
+    void throwsKeySourceException_ifNoJwkSetCouldBeFetched() {
+        stubFailure();
+
+        assertThrows(KeySourceException.class, () -> select("first"));
+    }
+}
@@ -13,10 +13,14 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+/**
+ * Runs the migrations on an in-memory H2 database in PostgreSQL mode, with the Postgres type timestamptz declared as a
+ * domain, so the schema and the lookup by the binary uvci_opaque column are those of the migrations.
+ */
 @SpringBootTest(properties = {
-        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.hibernate.ddl-auto=none",
         "spring.datasource.driver-class-name=org.h2.Driver",
-        "spring.datasource.url=jdbc:h2:~/test;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.url=jdbc:h2:mem:revocation;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=CREATE DOMAIN IF NOT EXISTS \"TIMESTAMPTZ\" AS TIMESTAMP WITH TIME ZONE",
         "spring.datasource.username=sa",
         "spring.datasource.password=sa"
 })
@@ -49,6 +53,18 @@ public class RevocationRepositoryIntegrationTest {
         assertEquals(uvci, result.getUvci());
     }
 
+    @Test
+    @Transactional
+    void givenRevocationOfAnotherFormInDB_whenFindByUvci_thenReturnRevocation() {
+        // given
+        String uvci = "urn:uvci:01:CH:97DAB5E31B589AF3CAE2F53Z";
+        persistRevocation(uvci);
+        // when
+        Revocation result = revocationRepository.findByUvci(uvci);
+        // then
+        assertEquals(uvci, result.getUvci());
+    }
+
     @Test
     @Transactional
     void givenNoRevocationInDB_whenFindAllUvcis_thenReturnEmptyList() {
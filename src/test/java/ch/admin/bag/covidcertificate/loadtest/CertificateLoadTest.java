@@ -0,0 +1,195 @@
+package ch.admin.bag.covidcertificate.loadtest;
+
+import ch.admin.bag.covidcertificate.api.request.RecoveryCertificateCreateDto;
+import ch.admin.bag.covidcertificate.api.request.RecoveryCertificateDataDto;
+import ch.admin.bag.covidcertificate.api.request.RevocationDto;
+import ch.admin.bag.covidcertificate.api.request.TestCertificateCreateDto;
+import ch.admin.bag.covidcertificate.api.request.TestCertificateDataDto;
+import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateCreateDto;
+import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateDataDto;
+import ch.admin.bag.covidcertificate.testutil.JwtTestUtil;
+import ch.admin.bag.covidcertificate.testutil.KeyPairTestUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static ch.admin.bag.covidcertificate.TestModelProvider.getCovidCertificatePersonDto;
+import static ch.admin.bag.covidcertificate.api.Constants.SWISS_TIMEZONE;
+import static ch.admin.bag.covidcertificate.api.Constants.USER_EXT_ID_CLAIM_KEY;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the running application with mixed traffic on the certificate, revocation and otp endpoints against a
+ * stand-in signing service with configurable latency and error rate, then prints throughput and p50/p99/p999 per
+ * endpoint and writes them to target/load-test-report.csv. Uses an in-memory H2 database.
+ * <p>
+ * Run with -Dbenchmark=true -Dtest=CertificateLoadTest, tuned with the system properties
+ * loadtest.duration-seconds (60), loadtest.warmup-seconds (10), loadtest.concurrency (32),
+ * loadtest.signer.median-millis (50), loadtest.signer.sigma (0.3, 0 for a fixed delay),
+ * loadtest.signer.error-rate (0.01) and loadtest.signer.threads (200). Application settings, for example
+ * cc-management-service.async-execution.enabled, can be passed as system properties as well.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.flyway.enabled=false",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=sa",
+        "cc-management-service.revocation-cache.notifications.enabled=false",
+        "cc-management-service.revocation-cache.snapshot.path=",
+        "logging.level.ch.admin.bag=WARN"
+})
+@ActiveProfiles("local")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class CertificateLoadTest {
+    private static final String BASE_URL = "/api/v1/";
+    private static final String USER_ROLE = "bag-cc-certificatecreator";
+    private static final String PCR_TYPE_CODE = "LP6464-4";
+    private static final String VACCINE_CODE = "EU/1/20/1528";
+    // The value sets on the test classpath do not contain CH
+    private static final String COUNTRY = "AT";
+    private static final String LANGUAGE = "de";
+    private static final String UVCI_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private static final KeyPairTestUtil KEY_PAIR_TEST_UTIL = new KeyPairTestUtil();
+    private static SigningServiceStub signingService;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @DynamicPropertySource
+    static void signingService(DynamicPropertyRegistry registry) throws Exception {
+        signingService = new SigningServiceStub(
+                Integer.getInteger("loadtest.signer.median-millis", 50),
+                Double.parseDouble(System.getProperty("loadtest.signer.sigma", "0.3")),
+                Double.parseDouble(System.getProperty("loadtest.signer.error-rate", "0.01")),
+                Integer.getInteger("loadtest.signer.threads", 200),
+                KEY_PAIR_TEST_UTIL.getJwks());
+        registry.add("cc-signing-service.url", () -> signingService.url(SigningServiceStub.SIGN_PATH));
+        registry.add("jeap.security.oauth2.resourceserver.authorization-server.jwk-set-uri", () -> signingService.url(SigningServiceStub.JWKS_PATH));
+    }
+
+    @AfterAll
+    static void stopSigningService() {
+        signingService.stop();
+    }
+
+    @Test
+    void mixedTraffic() throws Exception {
+        long warmup = TimeUnit.SECONDS.toNanos(Integer.getInteger("loadtest.warmup-seconds", 10));
+        long duration = TimeUnit.SECONDS.toNanos(Integer.getInteger("loadtest.duration-seconds", 60));
+        int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+
+        ExecutorService users = Executors.newFixedThreadPool(concurrency);
+        try {
+            long start = System.nanoTime() + warmup;
+            long end = start + duration;
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                String token = JwtTestUtil.getJwtTestToken(KEY_PAIR_TEST_UTIL.getPrivateKey(), LocalDateTime.now().plusDays(1), USER_ROLE,
+                        Map.of(USER_EXT_ID_CLAIM_KEY, "load-test-user-" + i, "homeName", "load-test"));
+                runs.add(users.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        callRandomEndpoint(token, start);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get(warmup + duration + TimeUnit.MINUTES.toNanos(1), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            users.shutdown();
+        }
+
+        List<LatencyRecorder.Summary> summaries = recorder.summarize(duration);
+        List<String> report = new ArrayList<>();
+        report.add(LatencyRecorder.Summary.HEADER);
+        report.addAll(summaries.stream().map(LatencyRecorder.Summary::toCsv).collect(Collectors.toList()));
+        log.info("Load test report:\n{}", String.join("\n", report));
+        Files.write(Path.of("target", "load-test-report.csv"), report);
+
+        assertTrue(summaries.get(summaries.size() - 1).requests > 0);
+    }
+
+    private void callRandomEndpoint(String token, long recordFrom) throws Exception {
+        int pick = ThreadLocalRandom.current().nextInt(100);
+        if (pick < 35) {
+            call("vaccination", "covidcertificate/vaccination", token, () -> new VaccinationCertificateCreateDto(getCovidCertificatePersonDto(),
+                    List.of(new VaccinationCertificateDataDto(VACCINE_CODE, 2, 2, LocalDate.now().minusDays(30), COUNTRY)), LANGUAGE), recordFrom);
+        } else if (pick < 60) {
+            call("test", "covidcertificate/test", token, () -> new TestCertificateCreateDto(getCovidCertificatePersonDto(),
+                    List.of(new TestCertificateDataDto(null, PCR_TYPE_CODE, ZonedDateTime.now(SWISS_TIMEZONE).minusHours(1), "Test Center", COUNTRY)), LANGUAGE), recordFrom);
+        } else if (pick < 70) {
+            call("recovery", "covidcertificate/recovery", token, () -> new RecoveryCertificateCreateDto(getCovidCertificatePersonDto(),
+                    List.of(new RecoveryCertificateDataDto(LocalDate.now().minusDays(30), COUNTRY)), LANGUAGE), recordFrom);
+        } else if (pick < 85) {
+            call("revocation", "revocation", token, () -> new RevocationDto(randomUvci()), recordFrom);
+        } else {
+            call("otp", "otp", token, null, recordFrom);
+        }
+    }
+
+    private void call(String endpoint, String path, String token, Supplier<Object> body, long recordFrom) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + BASE_URL + path))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .POST(body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body.get())))
+                .build();
+        long sent = System.nanoTime();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        long received = System.nanoTime();
+        if (sent >= recordFrom) {
+            recorder.record(endpoint, received - sent, response.statusCode() / 100 == 2);
+        }
+    }
+
+    private static String randomUvci() {
+        StringBuilder uvci = new StringBuilder("urn:uvci:01:CH:");
+        for (int i = 0; i < 24; i++) {
+            uvci.append(UVCI_CHARACTERS.charAt(ThreadLocalRandom.current().nextInt(UVCI_CHARACTERS.length())));
+        }
+        return uvci.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package ch.admin.bag.covidcertificate.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the latencies of the load test per endpoint and summarizes them as throughput and percentiles.
+ */
+class LatencyRecorder {
+    private final Map<String, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long latencyNanos, boolean success) {
+        latencies.computeIfAbsent(endpoint, key -> new ConcurrentLinkedQueue<>()).add(latencyNanos);
+        if (!success) {
+            errors.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+        }
+    }
+
+    List<Summary> summarize(long durationNanos) {
+        List<Summary> summaries = new ArrayList<>();
+        List<Long> all = new ArrayList<>();
+        long allErrors = 0;
+        for (var entry : new TreeMap<>(latencies).entrySet()) {
+            long endpointErrors = errors.getOrDefault(entry.getKey(), new LongAdder()).sum();
+            summaries.add(summarize(entry.getKey(), new ArrayList<>(entry.getValue()), endpointErrors, durationNanos));
+            all.addAll(entry.getValue());
+            allErrors += endpointErrors;
+        }
+        summaries.add(summarize("total", all, allErrors, durationNanos));
+        return summaries;
+    }
+
+    private static Summary summarize(String endpoint, List<Long> latencies, long errors, long durationNanos) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return new Summary(endpoint, sorted.length, errors,
+                sorted.length * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos,
+                percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999));
+    }
+
+    /**
+     * Nearest-rank percentile in milliseconds, 0 if nothing was recorded.
+     */
+    static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    static class Summary {
+        static final String HEADER = "endpoint,requests,errors,throughput_per_s,p50_ms,p99_ms,p999_ms";
+
+        final String endpoint;
+        final long requests;
+        final long errors;
+        final double throughput;
+        final double p50;
+        final double p99;
+        final double p999;
+
+        Summary(String endpoint, long requests, long errors, double throughput, double p50, double p99, double p999) {
+            this.endpoint = endpoint;
+            this.requests = requests;
+            this.errors = errors;
+            this.throughput = throughput;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.1f,%.1f,%.1f", endpoint, requests, errors, throughput, p50, p99, p999);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ch.admin.bag.covidcertificate.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyRecorderTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void computesNearestRankPercentiles() {
+        long[] sorted = new long[1000];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = (i + 1) * MILLI;
+        }
+
+        assertEquals(500, LatencyRecorder.percentile(sorted, 0.5));
+        assertEquals(990, LatencyRecorder.percentile(sorted, 0.99));
+        assertEquals(999, LatencyRecorder.percentile(sorted, 0.999));
+        assertEquals(0, LatencyRecorder.percentile(new long[0], 0.5));
+    }
+
+    @Test
+    void summarizesPerEndpointAndTotal() {
+        var recorder = new LatencyRecorder();
+        recorder.record("otp", 2 * MILLI, true);
+        recorder.record("otp", 4 * MILLI, false);
+        recorder.record("revocation", 6 * MILLI, true);
+
+        List<LatencyRecorder.Summary> summaries = recorder.summarize(TimeUnit.SECONDS.toNanos(2));
+
+        assertEquals("otp,2,1,1.0,2.0,4.0,4.0", summaries.get(0).toCsv());
+        assertEquals("revocation,1,0,0.5,6.0,6.0,6.0", summaries.get(1).toCsv());
+        assertEquals("total,3,1,1.5,4.0,6.0,6.0", summaries.get(2).toCsv());
+    }
+}
@@ -0,0 +1,80 @@
+package ch.admin.bag.covidcertificate.loadtest;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+/**
+ * Stand-in for the signing service and the authorization server. The signing endpoint answers with a random
+ * signature after a log-normal distributed delay (a fixed delay if sigma is 0) and fails with 503 at the given rate.
+ */
+class SigningServiceStub {
+    static final String SIGN_PATH = "/sign";
+    static final String JWKS_PATH = "/.well-known/jwks.json";
+    private static final int SIGNATURE_LENGTH = 64;
+
+    private final WireMockServer server;
+
+    SigningServiceStub(int medianMillis, double sigma, double errorRate, int threads, String jwks) {
+        server = new WireMockServer(options()
+                .dynamicPort()
+                .containerThreads(threads)
+                .disableRequestJournal()
+                .extensions(new FailingSignatures(errorRate)));
+        server.start();
+        var signature = aResponse()
+                .withStatus(HttpStatus.OK.value())
+                .withHeader("Content-Type", MediaType.APPLICATION_CBOR_VALUE)
+                .withBody(new byte[SIGNATURE_LENGTH]);
+        server.stubFor(post(urlPathEqualTo(SIGN_PATH)).willReturn(sigma > 0
+                ? signature.withLogNormalRandomDelay(medianMillis, sigma)
+                : signature.withFixedDelay(medianMillis)));
+        server.stubFor(get(urlPathEqualTo(JWKS_PATH)).willReturn(aResponse()
+                .withStatus(HttpStatus.OK.value())
+                .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .withBody(jwks)));
+    }
+
+    String url(String path) {
+        return "http://localhost:" + server.port() + path;
+    }
+
+    void stop() {
+        server.stop();
+    }
+
+    private static class FailingSignatures extends ResponseDefinitionTransformer {
+        private final double errorRate;
+
+        FailingSignatures(double errorRate) {
+            this.errorRate = errorRate;
+        }
+
+        @Override
+        public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition, FileSource files, Parameters parameters) {
+            if (!request.getUrl().startsWith(SIGN_PATH) || ThreadLocalRandom.current().nextDouble() >= errorRate) {
+                return responseDefinition;
+            }
+            return ResponseDefinitionBuilder.like(responseDefinition).but()
+                    .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())
+                    .withBody(new byte[0])
+                    .build();
+        }
+
+        @Override
+        public String getName() {
+            return "failing-signatures";
+        }
+    }
+}
@@ -62,6 +62,29 @@ class BarcodeServiceTest {
         assertEquals(CREATE_BARCODE_FAILED, exception.getError());
     }
 
+    @Test
+    void whenCreateBarcodePayload_thenOk() throws Exception {
+        // given
+        String payload = "HC1:Hello world.";
+        when(dgcBarcodeEncoder.encode(any(byte[].class), any(Instant.class)))
+                .thenReturn(payload);
+        // when
+        String result = barcodeService.createBarcodePayload("{\"hello\": \"world\"}");
+        // then
+        assertEquals(payload, result);
+    }
+
+    @Test
+    void givenExceptionIsThrown_whenCreateBarcodePayload_thenThrowsBarcodeError() throws Exception {
+        // given
+        when(dgcBarcodeEncoder.encode(any(byte[].class), any(Instant.class)))
+                .thenThrow(IOException.class);
+        // when then
+        CreateCertificateException exception = assertThrows(CreateCertificateException.class,
+                () -> barcodeService.createBarcodePayload("{\"hello\": \"world\"}"));
+        assertEquals(CREATE_BARCODE_FAILED, exception.getError());
+    }
+
     private Barcode getBarcode() {
         return new Barcode(Barcode.BarcodeType.AZTEC,
                 "Hello world.".getBytes(StandardCharsets.UTF_8),
@@ -11,7 +11,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import se.digg.dgc.signatures.cwt.support.CBORInstantConverter;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -76,6 +78,34 @@ class CBORServiceTest {
         assertTrue(exception.getMessage().toLowerCase().contains("hcert"));
     }
 
+    @Test
+    void whenGetRevocationListPayload_thenOk() {
+        CBORInstantConverter instantConverter = new CBORInstantConverter();
+        // given
+        Instant issuedAt = Instant.parse("2021-01-01T00:00:00Z");
+        when(coseTime.getIssuedAt()).thenReturn(issuedAt);
+        List<String> uvcis = List.of(jFixture.create(String.class), jFixture.create(String.class));
+        // when
+        byte[] result = cborService.getRevocationListPayload("2-00000000000000ab", uvcis, Duration.ofHours(48));
+        // then
+        CBORObject resultCBORObject = CBORObject.DecodeFromBytes(result);
+        assertEquals("CH BAG", resultCBORObject.get(1).AsString());
+        assertEquals(issuedAt, instantConverter.FromCBORObject(resultCBORObject.get(6)));
+        assertEquals(issuedAt.plus(Duration.ofHours(48)), instantConverter.FromCBORObject(resultCBORObject.get(4)));
+        CBORObject revocationList = resultCBORObject.get("revocation_list");
+        assertEquals("2-00000000000000ab", revocationList.get("version").AsString());
+        assertEquals(uvcis.get(0), revocationList.get("uvcis").get(0).AsString());
+        assertEquals(uvcis.get(1), revocationList.get("uvcis").get(1).AsString());
+    }
+
+    @Test
+    void givenVersionIsEmpty_whenGetRevocationListPayload_thenThrowsIllegalArgumentException() {
+        // when then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> cborService.getRevocationListPayload("", List.of(), Duration.ofHours(48)));
+        assertTrue(exception.getMessage().toLowerCase().contains("version"));
+    }
+
     @Test
     void whenGetSignatureData_thenOk() {
         // given
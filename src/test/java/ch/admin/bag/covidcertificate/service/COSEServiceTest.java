@@ -10,6 +10,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.util.List;
+
 import static ch.admin.bag.covidcertificate.api.Constants.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -153,4 +156,29 @@ class COSEServiceTest {
                 () -> coseService.getCOSESign1(dgcCBOR));
         assertEquals(CREATE_COSE_SIGN1_FAILED, exception.getError());
     }
+
+    @Test
+    void whenGetRevocationListCOSESign1_thenRevocationListPayloadIsSigned() {
+        // given
+        String version = jFixture.create(String.class);
+        List<String> uvcis = List.of(jFixture.create(String.class));
+        Duration validity = Duration.ofHours(48);
+        when(cborService.getRevocationListPayload(version, uvcis, validity)).thenReturn(payload);
+        // when
+        byte[] result = coseService.getRevocationListCOSESign1(version, uvcis, validity);
+        // then
+        assertArrayEquals(coseSign1, result);
+        verify(cborService).getSignatureData(protectedHeader, payload);
+        verify(cborService).getCOSESign1(protectedHeader, payload, signature);
+    }
+
+    @Test
+    void givenExceptionInCBORServiceGetRevocationListPayloadIsThrown_whenGetRevocationListCOSESign1_thenThrowsCreateCertificateException() {
+        // given
+        when(cborService.getRevocationListPayload(any(), any(), any())).thenThrow(IllegalArgumentException.class);
+        // when then
+        CreateCertificateException exception = assertThrows(CreateCertificateException.class,
+                () -> coseService.getRevocationListCOSESign1(jFixture.create(String.class), List.of(), Duration.ofHours(48)));
+        assertEquals(CREATE_COSE_PAYLOAD_FAILED, exception.getError());
+    }
 }
@@ -0,0 +1,181 @@
+package ch.admin.bag.covidcertificate.service;
+
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.propagation.TraceContext;
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import com.flextrade.jfixture.JFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static ch.admin.bag.covidcertificate.api.Constants.CERTIFICATE_EXECUTION_BUSY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CertificateExecutionServiceTest {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final JFixture fixture = new JFixture();
+    private final CurrentTraceContext currentTraceContext = ThreadLocalCurrentTraceContext.create();
+
+    private CertificateExecutionService service;
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    private CertificateExecutionService newService(boolean enabled, int threads, int queueCapacity) {
+        return new CertificateExecutionService(new SimpleMeterRegistry(), currentTraceContext, enabled, threads, queueCapacity, REQUEST_TIMEOUT);
+    }
+
+    @Nested
+    class SyncExecution {
+        @Test
+        void createsCertificateOnCallingThread() throws Exception {
+            service = newService(false, 1, 1);
+            var expected = fixture.create(CovidCertificateCreateResponseDto.class);
+            var creatingThread = new AtomicReference<Thread>();
+
+            CompletableFuture<CovidCertificateCreateResponseDto> result = service.execute(() -> {
+                creatingThread.set(Thread.currentThread());
+                return expected;
+            });
+
+            assertTrue(result.isDone());
+            assertSame(expected, result.get());
+            assertSame(Thread.currentThread(), creatingThread.get());
+        }
+
+        @Test
+        void throwsExceptionOfCreation() {
+            service = newService(false, 1, 1);
+            var exception = fixture.create(CreateCertificateException.class);
+
+            var thrown = assertThrows(CreateCertificateException.class, () -> service.execute(() -> {
+                throw exception;
+            }));
+
+            assertSame(exception, thrown);
+        }
+    }
+
+    @Nested
+    class AsyncExecution {
+        @Test
+        void createsCertificateOnWorkerThread() throws Exception {
+            service = newService(true, 2, 10);
+            var expected = fixture.create(CovidCertificateCreateResponseDto.class);
+            var creatingThread = new AtomicReference<Thread>();
+
+            CovidCertificateCreateResponseDto result = service.execute(() -> {
+                creatingThread.set(Thread.currentThread());
+                return expected;
+            }).get(10, TimeUnit.SECONDS);
+
+            assertSame(expected, result);
+            assertNotSame(Thread.currentThread(), creatingThread.get());
+            assertTrue(creatingThread.get().getName().startsWith("certificate-"));
+        }
+
+        @Test
+        void completesFutureWithExceptionOfCreation() throws Exception {
+            service = newService(true, 2, 10);
+            var exception = fixture.create(CreateCertificateException.class);
+
+            CompletableFuture<CovidCertificateCreateResponseDto> result = service.execute(() -> {
+                throw exception;
+            });
+
+            var thrown = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertSame(exception, thrown.getCause());
+        }
+
+        @Test
+        void rejectsCreation_ifQueueIsFull() throws Exception {
+            service = newService(true, 1, 1);
+            var release = new CountDownLatch(1);
+            IdempotencyService.CertificateCreation blockedCreation = () -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return fixture.create(CovidCertificateCreateResponseDto.class);
+            };
+            try {
+                service.execute(blockedCreation);
+                service.execute(blockedCreation);
+
+                var exception = assertThrows(CreateCertificateException.class, () -> service.execute(blockedCreation));
+                assertEquals(CERTIFICATE_EXECUTION_BUSY, exception.getError());
+            } finally {
+                release.countDown();
+            }
+        }
+
+        @Test
+        void skipsCreation_ifRequestTimedOutWhileQueued() throws Exception {
+            var meterRegistry = new SimpleMeterRegistry();
+            service = new CertificateExecutionService(meterRegistry, currentTraceContext, true, 1, 1, Duration.ofMillis(100));
+            var release = new CountDownLatch(1);
+            var creations = new AtomicInteger();
+            CompletableFuture<CovidCertificateCreateResponseDto> blocking = service.execute(() -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return fixture.create(CovidCertificateCreateResponseDto.class);
+            });
+            CompletableFuture<CovidCertificateCreateResponseDto> queued = service.execute(() -> {
+                creations.incrementAndGet();
+                return fixture.create(CovidCertificateCreateResponseDto.class);
+            });
+
+            Thread.sleep(200);
+            release.countDown();
+
+            blocking.get(10, TimeUnit.SECONDS);
+            var thrown = assertThrows(ExecutionException.class, () -> queued.get(10, TimeUnit.SECONDS));
+            assertEquals(CERTIFICATE_EXECUTION_BUSY, ((CreateCertificateException) thrown.getCause()).getError());
+            assertEquals(0, creations.get());
+            assertEquals(1, meterRegistry.counter(CertificateExecutionService.SKIPPED_METRIC).count());
+        }
+
+        @Test
+        void carriesMdcAndTraceContextOverToWorker() throws Exception {
+            service = newService(true, 1, 1);
+            var traceContext = TraceContext.newBuilder().traceId(1).spanId(2).build();
+            var workerMdc = new AtomicReference<String>();
+            var workerTraceContext = new AtomicReference<TraceContext>();
+
+            CompletableFuture<CovidCertificateCreateResponseDto> result;
+            MDC.put("key", "value");
+            try (var scope = currentTraceContext.newScope(traceContext)) {
+                result = service.execute(() -> {
+                    workerMdc.set(MDC.get("key"));
+                    workerTraceContext.set(currentTraceContext.get());
+                    return fixture.create(CovidCertificateCreateResponseDto.class);
+                });
+            } finally {
+                MDC.remove("key");
+            }
+            result.get(10, TimeUnit.SECONDS);
+
+            assertEquals("value", workerMdc.get());
+            assertEquals(traceContext, workerTraceContext.get());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ch.admin.bag.covidcertificate.service;
 
 import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.request.CertificateArtefact;
 import ch.admin.bag.covidcertificate.api.request.RecoveryCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.TestCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateCreateDto;
@@ -21,9 +22,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import se.digg.dgc.encoding.Barcode;
 
 import java.io.IOException;
+import java.util.EnumSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,7 +50,7 @@ class CovidCertificateGenerationServiceTest {
     @BeforeEach
     public void setUp() throws IOException {
         lenient().when(barcodeService.createBarcode(any())).thenReturn(fixture.create(Barcode.class));
-        lenient().when(covidPdfCertificateGenerationService.generateCovidCertificate(any(), any())).thenReturn(fixture.create(byte[].class));
+        lenient().when(covidPdfCertificateGenerationService.generateCovidCertificate(any(), anyString(), anyBoolean())).thenReturn(fixture.create(byte[].class));
 
         lenient().when(covidCertificateDtoMapperService.toVaccinationCertificateQrCode(any())).thenReturn(fixture.create(VaccinationCertificateQrCode.class));
         lenient().when(covidCertificateDtoMapperService.toVaccinationCertificatePdf(any(), any())).thenReturn(fixture.create(VaccinationCertificatePdf.class));
@@ -125,7 +129,7 @@ class CovidCertificateGenerationServiceTest {
 
             service.generateCovidCertificate(createDto);
 
-            verify(covidPdfCertificateGenerationService).generateCovidCertificate(vaccinationPdf, barcode);
+            verify(covidPdfCertificateGenerationService).generateCovidCertificate(vaccinationPdf, barcode.getPayload(), false);
         }
 
         @Test
@@ -143,7 +147,7 @@ class CovidCertificateGenerationServiceTest {
         void shouldReturnPdf() throws IOException {
             var createDto = fixture.create(VaccinationCertificateCreateDto.class);
             var pdf = fixture.create(byte[].class);
-            when(covidPdfCertificateGenerationService.generateCovidCertificate(any(), any())).thenReturn(pdf);
+            when(covidPdfCertificateGenerationService.generateCovidCertificate(any(), anyString(), anyBoolean())).thenReturn(pdf);
 
             var actual = service.generateCovidCertificate(createDto);
 
@@ -225,7 +229,7 @@ class CovidCertificateGenerationServiceTest {
 
             service.generateCovidCertificate(createDto);
 
-            verify(covidPdfCertificateGenerationService).generateCovidCertificate(TestPdf, barcode);
+            verify(covidPdfCertificateGenerationService).generateCovidCertificate(TestPdf, barcode.getPayload(), false);
         }
 
         @Test
@@ -243,7 +247,7 @@ class CovidCertificateGenerationServiceTest {
         void shouldReturnPdf() throws IOException {
             var createDto = fixture.create(TestCertificateCreateDto.class);
             var pdf = fixture.create(byte[].class);
-            when(covidPdfCertificateGenerationService.generateCovidCertificate(any(), any())).thenReturn(pdf);
+            when(covidPdfCertificateGenerationService.generateCovidCertificate(any(), anyString(), anyBoolean())).thenReturn(pdf);
 
             var actual = service.generateCovidCertificate(createDto);
 
@@ -325,7 +329,7 @@ class CovidCertificateGenerationServiceTest {
 
             service.generateCovidCertificate(createDto);
 
-            verify(covidPdfCertificateGenerationService).generateCovidCertificate(RecoveryPdf, barcode);
+            verify(covidPdfCertificateGenerationService).generateCovidCertificate(RecoveryPdf, barcode.getPayload(), false);
         }
 
         @Test
@@ -343,7 +347,7 @@ class CovidCertificateGenerationServiceTest {
         void shouldReturnPdf() throws IOException {
             var createDto = fixture.create(RecoveryCertificateCreateDto.class);
             var pdf = fixture.create(byte[].class);
-            when(covidPdfCertificateGenerationService.generateCovidCertificate(any(), any())).thenReturn(pdf);
+            when(covidPdfCertificateGenerationService.generateCovidCertificate(any(), anyString(), anyBoolean())).thenReturn(pdf);
 
             var actual = service.generateCovidCertificate(createDto);
 
@@ -359,4 +363,68 @@ class CovidCertificateGenerationServiceTest {
             assertNotNull(actual.getUvci());
         }
     }
+
+    @Nested
+    class GenerateCovidCertificateWithArtefacts {
+        @Test
+        void shouldNotCreatePdf_ifPdfIsNotRequested() throws IOException {
+            var createDto = fixture.create(VaccinationCertificateCreateDto.class);
+
+            var actual = service.generateCovidCertificate(createDto, EnumSet.of(CertificateArtefact.QR_CODE));
+
+            verify(covidPdfCertificateGenerationService, never()).generateCovidCertificate(any(), anyString(), anyBoolean());
+            assertNull(actual.getPdf());
+            assertNotNull(actual.getQrCode());
+        }
+
+        @Test
+        void shouldNotCreateBarcodeImage_ifQrCodeIsNotRequested() throws IOException {
+            var createDto = fixture.create(TestCertificateCreateDto.class);
+            var payload = fixture.create(String.class);
+            when(barcodeService.createBarcodePayload(any())).thenReturn(payload);
+
+            var actual = service.generateCovidCertificate(createDto, EnumSet.of(CertificateArtefact.PDF));
+
+            verify(barcodeService, never()).createBarcode(any());
+            verify(covidPdfCertificateGenerationService).generateCovidCertificate(any(), eq(payload), eq(false));
+            assertNull(actual.getQrCode());
+            assertNotNull(actual.getPdf());
+        }
+
+        @Test
+        void shouldReturnOnlyPayload_ifOnlyPayloadIsRequested() throws IOException {
+            var createDto = fixture.create(RecoveryCertificateCreateDto.class);
+            var payload = fixture.create(String.class);
+            when(barcodeService.createBarcodePayload(any())).thenReturn(payload);
+
+            var actual = service.generateCovidCertificate(createDto, EnumSet.of(CertificateArtefact.PAYLOAD));
+
+            verify(barcodeService, never()).createBarcode(any());
+            verify(covidPdfCertificateGenerationService, never()).generateCovidCertificate(any(), anyString(), anyBoolean());
+            assertEquals(payload, actual.getPayload());
+            assertNull(actual.getQrCode());
+            assertNull(actual.getPdf());
+            assertNotNull(actual.getUvci());
+        }
+
+        @Test
+        void shouldAwaitPdfRendering_ifRequested() throws IOException {
+            var createDto = fixture.create(TestCertificateCreateDto.class);
+
+            service.generateCovidCertificate(createDto, CertificateArtefact.DEFAULT_ARTEFACTS, true);
+
+            verify(covidPdfCertificateGenerationService).generateCovidCertificate(any(), anyString(), eq(true));
+        }
+
+        @Test
+        void shouldNotReturnPayload_ifDefaultArtefactsAreRequested() throws IOException {
+            var createDto = fixture.create(VaccinationCertificateCreateDto.class);
+
+            var actual = service.generateCovidCertificate(createDto);
+
+            assertNull(actual.getPayload());
+            assertNotNull(actual.getQrCode());
+            assertNotNull(actual.getPdf());
+        }
+    }
 }
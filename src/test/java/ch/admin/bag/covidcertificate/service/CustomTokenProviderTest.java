@@ -1,26 +1,61 @@
 package ch.admin.bag.covidcertificate.service;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 @Slf4j
 class CustomTokenProviderTest {
 
-    @Test
-    void createToken() throws NoSuchAlgorithmException {
+    private static final String RSA_PRIVATE_KEY = "MIIEvQIBADANBgkqhkiG9w0BAQEFAASCBKcwggSjAgEAAoIBAQCbuDmx93wy1N9SHb2GVbqr6lkJk9jwxwzQlsXVnBdnzRnHaA0MCJRNCtjVy4f0qmAHQk4hMzJHrL57s3hAWVqId6PBQs974JQk6WCJN3/CpPrgkNZeifw6OpmqlcTd6zu5u0MbUs6Mh42j1RlyrO/NFyqL5Eg9hD5YcHt97GfV+nsVJvRgS4wMcu6ouaIUrDt6WZ/o7CC4v0nZeEQleX2gtgMqOSQfWWagu1ZwNQ5Hg4QNP5IysMZC7xzszvdl7W/LMPfAuuZUOg0AJMsAwmZThvxk/9o41SnJl6ed4qlZ4uOEZfBeZ5e0iEkwrAFwSnsyQH0IW3Wr/UskBrAg/x9rAgMBAAECggEAVyw6oDY7gPlKS136y0kSx0rZrVLnD2Ne+SZuebZ4I9PdqpPFOgdTfg2kdYsLARyfxXCI7G0MqLM7r2Q43U0oMV1Iftg37tE6Ha/IKwi2rPBOwYhTeXklijNj8usE2nblaIQ8fP9OQb1gvWZ+aIQHeniNiOKyzj1J6ZiOiV/egRpoT7+3sY6csX6uSO5/0r3rL7TsMgmn/mH4NwHm5UItrGmmKO4LR8cLiOmyfCbB+4/UjXj9JAmZDe7Nn+/W4H4wWWNk8MC79ke/3M5i9EG6hNF3AbRf5R2sMiMW59jN7AeRXGoiCOfrGXWNvE78+Pom2qhbdFFx2djtVK4YbSLVgQKBgQDMqKjlQLqdZ5fo2M49sGVSP1YuUlWbxj4BeJku/ZCO5DzZ4fU3v5VjWztFbhTdPVghbo1tGqEGSFZ/LAO7wWUGu0XKs/r01QACxSNcThB4X3/RjF2rwV+lLgCHoVctIP3roA+tOoszzwNxTqqXd08T8ckiW4+nf8Ft5EtFVvvLJQKBgQDCyKeJ7EcJNusZ2uIQic4gZjgOguXUDACC0Tn5wMyN81niCQugFJzqCkrYJABGPGWNEEFPbYiuSVyxvwZ37Z/Zi+3d+hDL74PLOz24z7CZK253oqFG9k3Ddvnd7bK+ZLt0dYF6t7hNHI4PPs3+Li/D/poIapzfLPCte2HJfyIDTwKBgGtVbTbGqtiQkxAQXKHn2Eu5YfZrQfCvmKdm21fUrjLyqqNOqS+yr6NrHnu8Tv71BDqMY2m8FIVZ/Ns3d0HKHLTaFLFJkS1EZHwPbgsj+elXlI6OwjWo9gOIS8jWKgVGD0W7LV2ZnZXvVQvgyQElFnkMToNRZ9bd3tFGcN+NzgJtAoGBAMETKI8ceCV4HH6aaq8+CeYvrK0lry8LXo5NWoxoQdsLNzNJCA77n7aV0S6CMQtt3rN/Q126E1u/OHSwB3dlQafgfj4kG/YqSpdu93Vz2Xdah7tqpzax+s8f5fnIHf9/1hhQSbIc3kEBZwdRl9q2aX57pq9lDm5iG4e632ld7ZcdAoGAIG6loMn5Qxp6O3DidxuUxkaQXCYM/WHfwp+kP5IRxAtCmb/nldgpebQtngC4vcWXdngRItdh1v9WX6aBWvwLkSdqI2HrL1AGssLvXU50FQGPkQSShXL0cItJg/fDKdP2Aw1+Q8+r2mhfd8TjMAxYgTxuYivck3FPzp2hI99A78I=";
 
+    private CustomTokenProvider createTokenProvider(SignatureAlgorithm algorithm, String privateKey) throws NoSuchAlgorithmException {
         CustomTokenProvider tokenProvider = new CustomTokenProvider();
 
         ReflectionTestUtils.setField(tokenProvider, "issuer", "http://localhost:8113");
         ReflectionTestUtils.setField(tokenProvider, "tokenValidity", 43200000);
-        ReflectionTestUtils.setField(tokenProvider, "privateKey", "MIIEvQIBADANBgkqhkiG9w0BAQEFAASCBKcwggSjAgEAAoIBAQCbuDmx93wy1N9SHb2GVbqr6lkJk9jwxwzQlsXVnBdnzRnHaA0MCJRNCtjVy4f0qmAHQk4hMzJHrL57s3hAWVqId6PBQs974JQk6WCJN3/CpPrgkNZeifw6OpmqlcTd6zu5u0MbUs6Mh42j1RlyrO/NFyqL5Eg9hD5YcHt97GfV+nsVJvRgS4wMcu6ouaIUrDt6WZ/o7CC4v0nZeEQleX2gtgMqOSQfWWagu1ZwNQ5Hg4QNP5IysMZC7xzszvdl7W/LMPfAuuZUOg0AJMsAwmZThvxk/9o41SnJl6ed4qlZ4uOEZfBeZ5e0iEkwrAFwSnsyQH0IW3Wr/UskBrAg/x9rAgMBAAECggEAVyw6oDY7gPlKS136y0kSx0rZrVLnD2Ne+SZuebZ4I9PdqpPFOgdTfg2kdYsLARyfxXCI7G0MqLM7r2Q43U0oMV1Iftg37tE6Ha/IKwi2rPBOwYhTeXklijNj8usE2nblaIQ8fP9OQb1gvWZ+aIQHeniNiOKyzj1J6ZiOiV/egRpoT7+3sY6csX6uSO5/0r3rL7TsMgmn/mH4NwHm5UItrGmmKO4LR8cLiOmyfCbB+4/UjXj9JAmZDe7Nn+/W4H4wWWNk8MC79ke/3M5i9EG6hNF3AbRf5R2sMiMW59jN7AeRXGoiCOfrGXWNvE78+Pom2qhbdFFx2djtVK4YbSLVgQKBgQDMqKjlQLqdZ5fo2M49sGVSP1YuUlWbxj4BeJku/ZCO5DzZ4fU3v5VjWztFbhTdPVghbo1tGqEGSFZ/LAO7wWUGu0XKs/r01QACxSNcThB4X3/RjF2rwV+lLgCHoVctIP3roA+tOoszzwNxTqqXd08T8ckiW4+nf8Ft5EtFVvvLJQKBgQDCyKeJ7EcJNusZ2uIQic4gZjgOguXUDACC0Tn5wMyN81niCQugFJzqCkrYJABGPGWNEEFPbYiuSVyxvwZ37Z/Zi+3d+hDL74PLOz24z7CZK253oqFG9k3Ddvnd7bK+ZLt0dYF6t7hNHI4PPs3+Li/D/poIapzfLPCte2HJfyIDTwKBgGtVbTbGqtiQkxAQXKHn2Eu5YfZrQfCvmKdm21fUrjLyqqNOqS+yr6NrHnu8Tv71BDqMY2m8FIVZ/Ns3d0HKHLTaFLFJkS1EZHwPbgsj+elXlI6OwjWo9gOIS8jWKgVGD0W7LV2ZnZXvVQvgyQElFnkMToNRZ9bd3tFGcN+NzgJtAoGBAMETKI8ceCV4HH6aaq8+CeYvrK0lry8LXo5NWoxoQdsLNzNJCA77n7aV0S6CMQtt3rN/Q126E1u/OHSwB3dlQafgfj4kG/YqSpdu93Vz2Xdah7tqpzax+s8f5fnIHf9/1hhQSbIc3kEBZwdRl9q2aX57pq9lDm5iG4e632ld7ZcdAoGAIG6loMn5Qxp6O3DidxuUxkaQXCYM/WHfwp+kP5IRxAtCmb/nldgpebQtngC4vcWXdngRItdh1v9WX6aBWvwLkSdqI2HrL1AGssLvXU50FQGPkQSShXL0cItJg/fDKdP2Aw1+Q8+r2mhfd8TjMAxYgTxuYivck3FPzp2hI99A78I=");
+        ReflectionTestUtils.setField(tokenProvider, "privateKey", privateKey);
+        ReflectionTestUtils.setField(tokenProvider, "algorithm", algorithm);
 
         tokenProvider.init();
+        return tokenProvider;
+    }
+
+    private Key rsaPublicKey() throws Exception {
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        RSAPrivateCrtKey privateKey = (RSAPrivateCrtKey) keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(RSA_PRIVATE_KEY)));
+        return keyFactory.generatePublic(new RSAPublicKeySpec(privateKey.getModulus(), privateKey.getPublicExponent()));
+    }
+
+    private Jws<Claims> parse(String token, Key publicKey) {
+        return Jwts.parserBuilder().setSigningKey(publicKey).build().parseClaimsJws(token);
+    }
+
+    @Test
+    void createToken() throws NoSuchAlgorithmException {
+
+        CustomTokenProvider tokenProvider = createTokenProvider(SignatureAlgorithm.RS256, RSA_PRIVATE_KEY);
 
         String token = tokenProvider.createToken("5349", "CHLOGIN");
 
@@ -30,5 +65,82 @@ class CustomTokenProviderTest {
 
     }
 
-}
+    @Test
+    void createsRs256Token_verifiableWithPublicKey() throws Exception {
+        CustomTokenProvider tokenProvider = createTokenProvider(SignatureAlgorithm.RS256, RSA_PRIVATE_KEY);
+
+        Jws<Claims> jws = parse(tokenProvider.createToken("5349", "CHLOGIN"), rsaPublicKey());
+
+        assertEquals(SignatureAlgorithm.RS256.getValue(), jws.getHeader().getAlgorithm());
+        assertEquals("5349", jws.getBody().get("userExtId"));
+        assertEquals("CHLOGIN", jws.getBody().get("idpsource"));
+    }
+
+    @Test
+    void createsEs256Token_verifiableWithPublicKey() throws Exception {
+        KeyPair keyPair = generateEcKeyPair();
+        CustomTokenProvider tokenProvider = createTokenProvider(SignatureAlgorithm.ES256, Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+
+        Jws<Claims> jws = parse(tokenProvider.createToken("5349", "CHLOGIN"), keyPair.getPublic());
 
+        assertEquals(SignatureAlgorithm.ES256.getValue(), jws.getHeader().getAlgorithm());
+        assertEquals("5349", jws.getBody().get("userExtId"));
+    }
+
+    @Test
+    void createsUniqueRandomUuidTokenIds() throws Exception {
+        CustomTokenProvider tokenProvider = createTokenProvider(SignatureAlgorithm.RS256, RSA_PRIVATE_KEY);
+        Key publicKey = rsaPublicKey();
+        Set<String> ids = new HashSet<>();
+
+        for (int i = 0; i < 20; i++) {
+            String id = parse(tokenProvider.createToken("5349", "CHLOGIN"), publicKey).getBody().getId();
+            UUID uuid = UUID.fromString(id);
+            assertEquals(4, uuid.version());
+            assertEquals(2, uuid.variant());
+            ids.add(id);
+        }
+        assertEquals(20, ids.size());
+    }
+
+    @Test
+    void throwsIllegalStateException_ifAlgorithmIsNotSupported() {
+        assertThrows(IllegalStateException.class, () -> createTokenProvider(SignatureAlgorithm.HS256, RSA_PRIVATE_KEY));
+    }
+
+    @Test
+    void throwsIllegalStateException_ifKeyDoesNotMatchAlgorithm() {
+        assertThrows(IllegalStateException.class, () -> createTokenProvider(SignatureAlgorithm.ES256, RSA_PRIVATE_KEY));
+    }
+
+    private KeyPair generateEcKeyPair() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * Rough tokens per second on one thread for each algorithm, run with -Dbenchmark=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark() throws Exception {
+        benchmark(createTokenProvider(SignatureAlgorithm.RS256, RSA_PRIVATE_KEY), SignatureAlgorithm.RS256);
+        String ecPrivateKey = Base64.getEncoder().encodeToString(generateEcKeyPair().getPrivate().getEncoded());
+        benchmark(createTokenProvider(SignatureAlgorithm.ES256, ecPrivateKey), SignatureAlgorithm.ES256);
+    }
+
+    private void benchmark(CustomTokenProvider tokenProvider, SignatureAlgorithm algorithm) {
+        int warmupRuns = 2000;
+        int measuredRuns = 5000;
+        for (int i = 0; i < warmupRuns; i++) {
+            tokenProvider.createToken("5349", "CHLOGIN");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredRuns; i++) {
+            tokenProvider.createToken("5349", "CHLOGIN");
+        }
+        long duration = System.nanoTime() - start;
+        log.info("{}: {} us/token, {} tokens/s", algorithm, TimeUnit.NANOSECONDS.toMicros(duration / measuredRuns), measuredRuns * TimeUnit.SECONDS.toNanos(1) / duration);
+    }
+}
@@ -0,0 +1,292 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flextrade.jfixture.JFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ch.admin.bag.covidcertificate.api.Constants.IDEMPOTENCY_KEY_IN_PROGRESS;
+import static ch.admin.bag.covidcertificate.api.Constants.IDEMPOTENCY_KEY_REUSED;
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_IDEMPOTENCY_KEY;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+    private static final long TTL_SECONDS = 300;
+    private static final int MAX_ENTRIES = 3;
+    private static final long MAX_BYTES = 1000;
+    private static final long AWAIT_TIMEOUT_SECONDS = 10;
+
+    @Mock
+    private IdempotencyService.CertificateCreation creation;
+    @Mock
+    private Clock clock;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private IdempotencyService service;
+
+    private final JFixture fixture = new JFixture();
+    private final Instant now = Instant.now();
+
+    @BeforeEach
+    void init() throws Exception {
+        lenient().when(clock.instant()).thenReturn(now);
+        lenient().when(creation.create()).thenAnswer(invocation -> fixture.create(CovidCertificateCreateResponseDto.class));
+        service = new IdempotencyService(clock, objectMapper, TTL_SECONDS, 1, MAX_ENTRIES, MAX_BYTES, AWAIT_TIMEOUT_SECONDS);
+    }
+
+    @Test
+    void createsCertificate_ifNoKeyIsGiven() throws Exception {
+        var request = fixture.create(String.class);
+
+        var first = service.execute(null, "scope", request, creation);
+        var second = service.execute(null, "scope", request, creation);
+
+        assertNotEquals(first, second);
+        verify(creation, times(2)).create();
+        assertEquals(0, service.size());
+    }
+
+    @Test
+    void returnsStoredCertificate_ifKeyIsRepeated() throws Exception {
+        var request = fixture.create(String.class);
+
+        var first = service.execute("key", "scope", request, creation);
+        var second = service.execute("key", "scope", request, creation);
+
+        assertSame(first, second);
+        verify(creation).create();
+    }
+
+    @Test
+    void createsNewCertificate_ifSameKeyIsUsedByAnotherScope() throws Exception {
+        var request = fixture.create(String.class);
+
+        var first = service.execute("key", "scope", request, creation);
+        var second = service.execute("key", "other-scope", request, creation);
+
+        assertNotSame(first, second);
+        verify(creation, times(2)).create();
+    }
+
+    @Test
+    void createsNewCertificate_ifStoredCertificateExpired() throws Exception {
+        var request = fixture.create(String.class);
+        var first = service.execute("key", "scope", request, creation);
+        when(clock.instant()).thenReturn(now.plusSeconds(TTL_SECONDS + 1));
+
+        var second = service.execute("key", "scope", request, creation);
+
+        assertNotSame(first, second);
+        verify(creation, times(2)).create();
+    }
+
+    @Test
+    void evictsEldestEntry_ifMaxEntriesIsExceeded() throws Exception {
+        var request = fixture.create(String.class);
+        var first = service.execute("key-0", "scope", request, creation);
+        for (int i = 1; i <= MAX_ENTRIES; i++) {
+            service.execute("key-" + i, "scope", request, creation);
+        }
+
+        assertEquals(MAX_ENTRIES, service.size());
+        assertNotSame(first, service.execute("key-0", "scope", request, creation));
+    }
+
+    @Test
+    void derivesMaxEntries_fromTimeToLiveAndExpectedRate() throws Exception {
+        var derived = new IdempotencyService(clock, objectMapper, 10, 2, 0, MAX_BYTES, AWAIT_TIMEOUT_SECONDS);
+
+        for (int i = 0; i <= 20; i++) {
+            derived.execute("key-" + i, "scope", "request", creation);
+        }
+
+        assertEquals(20, derived.size());
+    }
+
+    @Test
+    void evictsEldestEntries_ifMaxBytesIsExceeded() throws Exception {
+        var request = fixture.create(String.class);
+        when(creation.create()).thenAnswer(invocation -> new CovidCertificateCreateResponseDto(new byte[400], null, fixture.create(String.class), null));
+        var first = service.execute("key-0", "scope", request, creation);
+        service.execute("key-1", "scope", request, creation);
+
+        service.execute("key-2", "scope", request, creation);
+
+        assertEquals(2, service.size());
+        assertEquals(800, service.storedBytes());
+        assertNotSame(first, service.execute("key-0", "scope", request, creation));
+    }
+
+    @Test
+    void releasesBytes_ifStoredCertificateExpired() throws Exception {
+        when(creation.create()).thenAnswer(invocation -> new CovidCertificateCreateResponseDto(new byte[400], new byte[100], fixture.create(String.class), null));
+        service.execute("key-0", "scope", "request", creation);
+        assertEquals(500, service.storedBytes());
+        when(clock.instant()).thenReturn(now.plusSeconds(TTL_SECONDS + 1));
+
+        service.execute("key-1", "scope", "request", creation);
+
+        assertEquals(1, service.size());
+        assertEquals(500, service.storedBytes());
+    }
+
+    @Test
+    void returnsStoredCertificate_ifEqualRequestIsRepeated() throws Exception {
+        var first = service.execute("key", "scope", List.of(new CovidCertificateCreateResponseDto(null, null, "uvci", "payload"), "PDF"), creation);
+        var second = service.execute("key", "scope", List.of(new CovidCertificateCreateResponseDto(null, null, "uvci", "payload"), "PDF"), creation);
+
+        assertSame(first, second);
+        verify(creation).create();
+    }
+
+    @Test
+    void throwsIdempotencyKeyReused_ifKeyIsUsedForAnotherRequest() throws Exception {
+        service.execute("key", "scope", "request", creation);
+
+        var exception = assertThrows(CreateCertificateException.class, () -> service.execute("key", "scope", "other request", creation));
+
+        assertEquals(IDEMPOTENCY_KEY_REUSED, exception.getError());
+        verify(creation).create();
+    }
+
+    @Test
+    void throwsInvalidIdempotencyKey_ifKeyIsBlankOrTooLong() {
+        var blank = assertThrows(CreateCertificateException.class, () -> service.execute(" ", "scope", "request", creation));
+        var tooLong = assertThrows(CreateCertificateException.class, () -> service.execute("k".repeat(256), "scope", "request", creation));
+
+        assertEquals(INVALID_IDEMPOTENCY_KEY, blank.getError());
+        assertEquals(INVALID_IDEMPOTENCY_KEY, tooLong.getError());
+        verifyNoInteractions(creation);
+    }
+
+    @Test
+    void retriesCreation_ifFirstCreationFailed() throws Exception {
+        var expected = fixture.create(CovidCertificateCreateResponseDto.class);
+        when(creation.create()).thenThrow(new IllegalStateException()).thenReturn(expected);
+
+        assertThrows(IllegalStateException.class, () -> service.execute("key", "scope", "request", creation));
+        var result = service.execute("key", "scope", "request", creation);
+
+        assertSame(expected, result);
+    }
+
+    @Nested
+    class ConcurrentRequests {
+        @Test
+        void evictsNoEntryInFlight_ifMaxEntriesIsExceeded() throws Exception {
+            var started = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            var creations = new AtomicInteger();
+            var expected = fixture.create(CovidCertificateCreateResponseDto.class);
+            IdempotencyService.CertificateCreation slowCreation = () -> {
+                creations.incrementAndGet();
+                started.countDown();
+                try {
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                return expected;
+            };
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<CovidCertificateCreateResponseDto> first = executor.submit(() -> service.execute("key-0", "scope", "request", slowCreation));
+                assertTrue(started.await(10, TimeUnit.SECONDS));
+                for (int i = 1; i <= MAX_ENTRIES; i++) {
+                    service.execute("key-" + i, "scope", "request", creation);
+                }
+                release.countDown();
+
+                assertSame(expected, first.get(10, TimeUnit.SECONDS));
+                assertSame(expected, service.execute("key-0", "scope", "request", slowCreation));
+                assertEquals(1, creations.get());
+                assertEquals(MAX_ENTRIES, service.size());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        void throwsIdempotencyKeyInProgress_ifFirstRequestDoesNotCompleteInTime() throws Exception {
+            var impatient = new IdempotencyService(clock, objectMapper, TTL_SECONDS, 1, MAX_ENTRIES, MAX_BYTES, 0);
+            var started = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            IdempotencyService.CertificateCreation slowCreation = () -> {
+                started.countDown();
+                try {
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                return fixture.create(CovidCertificateCreateResponseDto.class);
+            };
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<CovidCertificateCreateResponseDto> first = executor.submit(() -> impatient.execute("key", "scope", "request", slowCreation));
+                assertTrue(started.await(10, TimeUnit.SECONDS));
+
+                var exception = assertThrows(CreateCertificateException.class, () -> impatient.execute("key", "scope", "request", slowCreation));
+
+                assertEquals(IDEMPOTENCY_KEY_IN_PROGRESS, exception.getError());
+                release.countDown();
+                first.get(10, TimeUnit.SECONDS);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        void createsCertificateOnlyOnce_ifRequestsWithSameKeyRunConcurrently() throws Exception {
+            var started = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            var creations = new AtomicInteger();
+            var expected = fixture.create(CovidCertificateCreateResponseDto.class);
+            IdempotencyService.CertificateCreation slowCreation = () -> {
+                creations.incrementAndGet();
+                started.countDown();
+                try {
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                return expected;
+            };
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                Future<CovidCertificateCreateResponseDto> first = executor.submit(() -> service.execute("key", "scope", "request", slowCreation));
+                assertTrue(started.await(10, TimeUnit.SECONDS));
+                Future<CovidCertificateCreateResponseDto> second = executor.submit(() -> service.execute("key", "scope", "request", slowCreation));
+                Future<CovidCertificateCreateResponseDto> third = executor.submit(() -> service.execute("key", "scope", "request", slowCreation));
+                release.countDown();
+
+                assertSame(expected, first.get(10, TimeUnit.SECONDS));
+                assertSame(expected, second.get(10, TimeUnit.SECONDS));
+                assertSame(expected, third.get(10, TimeUnit.SECONDS));
+                assertEquals(1, creations.get());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.domain.KpiData;
+import ch.admin.bag.covidcertificate.domain.KpiDataRepository;
+import ch.admin.bag.covidcertificate.service.outbox.OutboxService;
+import com.flextrade.jfixture.JFixture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static ch.admin.bag.covidcertificate.api.Constants.KPI_OTP_SYSTEM_KEY;
+import static ch.admin.bag.covidcertificate.api.Constants.KPI_TYPE_TEST;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KpiDataServiceTest {
+    private final JFixture fixture = new JFixture();
+
+    @Mock
+    private KpiDataRepository kpiDataRepository;
+    @Mock
+    private OutboxService outboxService;
+    @InjectMocks
+    private KpiDataService kpiDataService;
+
+    @Test
+    void writesKpiAndOutboxEventOfCreatedCertificate() {
+        var timestamp = LocalDateTime.now();
+        var uvci = fixture.create(String.class);
+        var userExtId = fixture.create(String.class);
+
+        kpiDataService.logCertificateCreated(timestamp, KPI_TYPE_TEST, uvci, userExtId);
+
+        verify(kpiDataRepository).save(argThat((KpiData kpiData) -> kpiData.getTimestamp().equals(timestamp)
+                && kpiData.getType().equals(KPI_TYPE_TEST) && kpiData.getValue().equals(userExtId)));
+        verify(outboxService).certificateCreated(KPI_TYPE_TEST, uvci, userExtId);
+    }
+
+    @Test
+    void writesOnlyOutboxEventOfCreatedCertificate_withoutUser() {
+        var uvci = fixture.create(String.class);
+
+        kpiDataService.logCertificateCreated(LocalDateTime.now(), KPI_TYPE_TEST, uvci, null);
+
+        verify(kpiDataRepository, never()).save(any());
+        verify(outboxService).certificateCreated(KPI_TYPE_TEST, uvci, null);
+    }
+
+    @Test
+    void writesKpiAndOutboxEventOfOtp() {
+        var userExtId = fixture.create(String.class);
+
+        kpiDataService.logOtpCreated(LocalDateTime.now(), userExtId);
+
+        verify(kpiDataRepository).save(argThat((KpiData kpiData) -> kpiData.getType().equals(KPI_OTP_SYSTEM_KEY)));
+        verify(outboxService).otpCreated(userExtId);
+    }
+}
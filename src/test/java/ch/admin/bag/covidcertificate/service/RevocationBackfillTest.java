@@ -0,0 +1,100 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.domain.Revocation;
+import ch.admin.bag.covidcertificate.util.UVCI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the backfill against the revocation table in an in-memory H2 database.
+ */
+class RevocationBackfillTest {
+    private static final int BATCH_SIZE = 2;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createTable() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:backfill;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "sa"));
+        jdbcTemplate.execute("create table revocation (id uuid not null primary key, uvci varchar(39) not null unique, uvci_opaque bytea)");
+        jdbcTemplate.execute("create unique index revocation_uvci_opaque_key on revocation (uvci_opaque)");
+    }
+
+    @AfterEach
+    void dropTable() {
+        jdbcTemplate.execute("drop table revocation");
+    }
+
+    @Test
+    void fillsCompactUvciOfAllRevocationsInBatches() {
+        List<String> uvcis = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            uvcis.add(UVCI.generateUVCI(i));
+        }
+        uvcis.add("urn:uvci:01:CH:97DAB5E31B589AF3CAE2F53Z");
+        uvcis.forEach(uvci -> jdbcTemplate.update("insert into revocation (id, uvci) values (?, ?)", UUID.randomUUID(), uvci));
+        var backfill = new RevocationBackfill(jdbcTemplate, true, BATCH_SIZE);
+
+        backfill.fillBatch();
+        assertEquals(uvcis.size() - BATCH_SIZE, countMissing());
+        backfill.fillBatch();
+        backfill.fillBatch();
+
+        assertTrue(backfill.isDone());
+        assertEquals(0, countMissing());
+        for (String uvci : uvcis) {
+            byte[] opaque = jdbcTemplate.queryForObject("select uvci_opaque from revocation where uvci = ?", byte[].class, uvci);
+            assertArrayEquals(Revocation.toUvciOpaque(uvci), opaque);
+        }
+    }
+
+    @Test
+    void keepsCompactUvciOfNewRevocations() {
+        var uvci = UVCI.generateUVCI("new");
+        var opaque = Revocation.toUvciOpaque(uvci);
+        jdbcTemplate.update("insert into revocation (id, uvci, uvci_opaque) values (?, ?, ?)", UUID.randomUUID(), uvci, opaque);
+        var backfill = new RevocationBackfill(jdbcTemplate, true, BATCH_SIZE);
+
+        backfill.fillBatch();
+
+        assertTrue(backfill.isDone());
+        assertArrayEquals(opaque, jdbcTemplate.queryForObject("select uvci_opaque from revocation", byte[].class));
+    }
+
+    @Test
+    void isDoneWithFirstBatch_ifAllRevocationsAreFilled() {
+        for (int i = 0; i < 3; i++) {
+            var uvci = UVCI.generateUVCI(i);
+            jdbcTemplate.update("insert into revocation (id, uvci, uvci_opaque) values (?, ?, ?)", UUID.randomUUID(), uvci, Revocation.toUvciOpaque(uvci));
+        }
+        var backfill = new RevocationBackfill(jdbcTemplate, true, BATCH_SIZE);
+
+        backfill.fillBatch();
+
+        assertTrue(backfill.isDone());
+    }
+
+    @Test
+    void doesNothing_ifDisabled() {
+        jdbcTemplate.update("insert into revocation (id, uvci) values (?, ?)", UUID.randomUUID(), UVCI.generateUVCI("old"));
+        var backfill = new RevocationBackfill(jdbcTemplate, false, BATCH_SIZE);
+
+        backfill.fillBatch();
+
+        assertFalse(backfill.isDone());
+        assertEquals(1, countMissing());
+    }
+
+    private int countMissing() {
+        return jdbcTemplate.queryForObject("select count(*) from revocation where uvci_opaque is null", Integer.class);
+    }
+}
@@ -0,0 +1,112 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.util.UVCI;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevocationBucketsTest {
+    private static final String PREFIX = "urn:uvci:01:CH:";
+
+    @Nested
+    class IndexOf {
+        @Test
+        void usesLeadingBitsOfHexOpaquePart() {
+            var uvci = PREFIX + "A7" + "0".repeat(22);
+
+            assertEquals(0, RevocationBuckets.indexOf(uvci, 0));
+            assertEquals(1, RevocationBuckets.indexOf(uvci, 1));
+            assertEquals(0xA, RevocationBuckets.indexOf(uvci, 4));
+            assertEquals(0xA7, RevocationBuckets.indexOf(uvci, 8));
+        }
+
+        @Test
+        void spreadsOpaquePartsOfAnotherForm() {
+            var first = RevocationBuckets.indexOf(PREFIX + "ZZ" + "0".repeat(22), 4);
+            var second = RevocationBuckets.indexOf(PREFIX + "ZY" + "0".repeat(22), 4);
+
+            assertTrue(first >= 0 && first < 16);
+            assertTrue(second >= 0 && second < 16);
+            assertEquals(first, RevocationBuckets.indexOf(PREFIX + "ZZ" + "0".repeat(22), 4));
+        }
+    }
+
+    @Nested
+    class Versions {
+        @Test
+        void changeOnlyForBucketOfAddedUvci() {
+            var buckets = new RevocationBuckets(4);
+            buckets.add(UVCI.generateUVCI("first"));
+            List<RevocationBuckets.Version> before = buckets.getVersions();
+            var uvci = PREFIX + "3" + "0".repeat(23);
+
+            assertTrue(buckets.add(uvci));
+
+            List<RevocationBuckets.Version> after = buckets.getVersions();
+            for (int i = 0; i < buckets.count(); i++) {
+                assertEquals(i == 3, !before.get(i).toString().equals(after.get(i).toString()), "bucket " + i);
+            }
+            assertEquals(2, buckets.size());
+        }
+
+        @Test
+        void doNotDependOnOrderOfAdding() {
+            var uvcis = List.of(PREFIX + "1" + "0".repeat(23), PREFIX + "1" + "F".repeat(23), PREFIX + "1ABC");
+            var buckets = new RevocationBuckets(4);
+            var reversed = new RevocationBuckets(4);
+            uvcis.forEach(buckets::add);
+            for (int i = uvcis.size() - 1; i >= 0; i--) {
+                reversed.add(uvcis.get(i));
+            }
+
+            assertEquals(buckets.get(1).getVersion().toString(), reversed.get(1).getVersion().toString());
+            assertEquals(RevocationBuckets.Version.total(buckets.getVersions()).toString(),
+                    RevocationBuckets.Version.total(reversed.getVersions()).toString());
+        }
+
+        @Test
+        void doNotChange_ifUvciIsAddedAgain() {
+            var buckets = new RevocationBuckets(4);
+            var uvci = UVCI.generateUVCI("first");
+            buckets.add(uvci);
+            var before = RevocationBuckets.Version.total(buckets.getVersions()).toString();
+
+            assertFalse(buckets.add(uvci));
+
+            assertEquals(before, RevocationBuckets.Version.total(buckets.getVersions()).toString());
+        }
+    }
+
+    @Test
+    void getAll_returnsUvcisOfAllBuckets() {
+        var buckets = new RevocationBuckets(4);
+        var uvcis = Set.of(UVCI.generateUVCI("first"), UVCI.generateUVCI("second"), UVCI.generateUVCI("third"));
+        uvcis.forEach(buckets::add);
+
+        var content = buckets.get(RevocationBuckets.indexOf(uvcis.iterator().next(), 4)).getContent();
+
+        assertEquals(uvcis, Set.copyOf(buckets.getAll()));
+        assertTrue(content.getUvcis().contains(uvcis.iterator().next()));
+        assertEquals(content.getVersion().getSize(), content.getUvcis().size());
+    }
+
+    @Test
+    void contains_findsOnlyAddedUvcis() {
+        var buckets = new RevocationBuckets(4);
+        var uvci = UVCI.generateUVCI("first");
+        buckets.add(uvci);
+
+        assertTrue(buckets.contains(uvci));
+        assertFalse(buckets.contains(UVCI.generateUVCI("second")));
+        assertFalse(buckets.contains(PREFIX + "ZZ"));
+    }
+
+    @Test
+    void rejectsMoreThanMaxBits() {
+        assertThrows(IllegalArgumentException.class, () -> new RevocationBuckets(RevocationBuckets.MAX_BITS + 1));
+    }
+}
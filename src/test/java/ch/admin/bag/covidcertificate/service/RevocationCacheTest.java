@@ -0,0 +1,219 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.api.exception.RevocationException;
+import ch.admin.bag.covidcertificate.domain.RevocationRepository;
+import com.flextrade.jfixture.JFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static ch.admin.bag.covidcertificate.api.Constants.REVOCATIONS_LOADING;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevocationCacheTest {
+    private static final Instant NOW = Instant.parse("2021-06-01T10:00:00Z");
+    private static final Duration OVERLAP = Duration.ofMinutes(5);
+    private static final int BUCKET_BITS = 4;
+
+    private final JFixture fixture = new JFixture();
+
+    @Mock
+    private RevocationRepository revocationRepository;
+    @Mock
+    private RevocationSnapshot snapshot;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RevocationCache revocationCache;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        revocationCache = new RevocationCache(revocationRepository, snapshot, meterRegistry, OVERLAP, Clock.fixed(NOW, ZoneOffset.UTC), BUCKET_BITS);
+    }
+
+    @Nested
+    class GetUvcis {
+        @Test
+        void returnsLoadedRevocations_withoutFurtherQuery() {
+            var uvci = fixture.create(String.class);
+            when(revocationRepository.findAllUvcis()).thenReturn(List.of(uvci));
+            revocationCache.load();
+
+            assertEquals(List.of(uvci), revocationCache.getUvcis());
+            assertEquals(List.of(uvci), revocationCache.getUvcis());
+
+            verify(revocationRepository).findAllUvcis();
+            assertEquals(1, meterRegistry.get(RevocationCache.SIZE_METRIC).gauge().value());
+        }
+
+        @Test
+        void returnsAddedUvcis_withoutQuery() {
+            revocationCache.reconcile();
+            var uvci = fixture.create(String.class);
+
+            revocationCache.add(uvci);
+
+            assertEquals(List.of(uvci), revocationCache.getUvcis());
+            verify(revocationRepository).findAllUvcis();
+        }
+
+        @Test
+        void throwsRevocationsLoading_beforeRevocationsAreLoaded() {
+            var exception = assertThrows(RevocationException.class, () -> revocationCache.getUvcis());
+
+            assertEquals(REVOCATIONS_LOADING, exception.getError());
+            assertFalse(revocationCache.isLoaded());
+            verifyNoInteractions(revocationRepository);
+        }
+    }
+
+    @Nested
+    class Load {
+        @Test
+        void staysUnloaded_ifLoadingFails() {
+            when(revocationRepository.findAllUvcis()).thenThrow(new IllegalStateException());
+
+            revocationCache.load();
+
+            assertFalse(revocationCache.isLoaded());
+        }
+    }
+
+    @Nested
+    class Contains {
+        @Test
+        void findsLoadedAndAddedUvcis() {
+            var loaded = fixture.create(String.class);
+            var added = fixture.create(String.class);
+            when(revocationRepository.findAllUvcis()).thenReturn(List.of(loaded));
+            revocationCache.load();
+
+            revocationCache.add(added);
+
+            assertTrue(revocationCache.contains(loaded));
+            assertTrue(revocationCache.contains(added));
+            assertFalse(revocationCache.contains(fixture.create(String.class)));
+        }
+    }
+
+    @Nested
+    class Reconcile {
+        @Test
+        void readsRevocationsCreatedSinceWatermarkMinusOverlap() {
+            var uvci = fixture.create(String.class);
+            revocationCache.reconcile();
+            var since = LocalDateTime.ofInstant(NOW, ZoneId.systemDefault()).minus(OVERLAP);
+            when(revocationRepository.findUvcisCreatedSince(since)).thenReturn(List.of(uvci));
+
+            revocationCache.reconcile();
+
+            assertEquals(List.of(uvci), revocationCache.getUvcis());
+        }
+
+        @Test
+        void keepsUvcisOfOlderRevocations() {
+            var uvci = fixture.create(String.class);
+            when(revocationRepository.findAllUvcis()).thenReturn(List.of(uvci));
+            revocationCache.reconcile();
+
+            revocationCache.reconcile();
+
+            assertEquals(List.of(uvci), revocationCache.getUvcis());
+        }
+    }
+
+    @Nested
+    class Snapshot {
+        @Test
+        void loadsSnapshotAndRevocationsCreatedSinceItsWatermark() {
+            var snapshotUvci = fixture.create(String.class);
+            var createdUvci = fixture.create(String.class);
+            var snapshotWatermark = LocalDateTime.ofInstant(NOW, ZoneId.systemDefault()).minusHours(1);
+            when(snapshot.read()).thenReturn(Optional.of(new RevocationSnapshot.Content(snapshotWatermark, List.of(snapshotUvci))));
+            when(revocationRepository.findUvcisCreatedSince(snapshotWatermark.minus(OVERLAP))).thenReturn(List.of(createdUvci));
+
+            revocationCache.load();
+            var uvcis = revocationCache.getUvcis();
+
+            assertEquals(Set.of(snapshotUvci, createdUvci), Set.copyOf(uvcis));
+            verify(revocationRepository, never()).findAllUvcis();
+        }
+
+        @Test
+        void writesUvcisWithWatermark() throws Exception {
+            var uvci = fixture.create(String.class);
+            when(snapshot.isEnabled()).thenReturn(true);
+            when(revocationRepository.findAllUvcis()).thenReturn(List.of(uvci));
+            revocationCache.reconcile();
+
+            revocationCache.writeSnapshot();
+
+            verify(snapshot).write(LocalDateTime.ofInstant(NOW, ZoneId.systemDefault()), List.of(uvci));
+        }
+
+        @Test
+        void writesNothing_beforeRevocationsAreLoaded() throws Exception {
+            lenient().when(snapshot.isEnabled()).thenReturn(true);
+
+            revocationCache.writeSnapshot();
+
+            verify(snapshot, never()).write(any(), any());
+        }
+    }
+
+    @Nested
+    class AddOnCommit {
+        @BeforeEach
+        void load() {
+            revocationCache.load();
+        }
+
+        @AfterEach
+        void clearSynchronization() {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+
+        @Test
+        void addsUvciRightAway_withoutTransaction() {
+            var uvci = fixture.create(String.class);
+
+            revocationCache.addOnCommit(uvci);
+
+            assertTrue(revocationCache.getUvcis().contains(uvci));
+        }
+
+        @Test
+        void addsUvciAfterCommit_withinTransaction() {
+            var uvci = fixture.create(String.class);
+            TransactionSynchronizationManager.initSynchronization();
+
+            revocationCache.addOnCommit(uvci);
+
+            assertFalse(revocationCache.getUvcis().contains(uvci));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertTrue(revocationCache.getUvcis().contains(uvci));
+        }
+    }
+}
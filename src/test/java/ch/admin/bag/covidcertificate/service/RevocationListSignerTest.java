@@ -0,0 +1,165 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.util.UVCI;
+import com.flextrade.jfixture.JFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static ch.admin.bag.covidcertificate.api.Constants.CREATE_SIGNATURE_FAILED;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevocationListSignerTest {
+    private static final Instant START = Instant.parse("2021-06-01T10:00:00Z");
+    private static final long DEBOUNCE_SECONDS = 10;
+    private static final long MAX_DELAY_SECONDS = 60;
+    private static final long VALIDITY_HOURS = 48;
+
+    private final JFixture fixture = new JFixture();
+    private final RevocationBuckets buckets = new RevocationBuckets(4);
+
+    @Mock
+    private RevocationCache revocationCache;
+    @Mock
+    private COSEService coseService;
+    @Mock
+    private Clock clock;
+
+    private RevocationListSigner signer;
+
+    @BeforeEach
+    void init() {
+        lenient().when(revocationCache.getBuckets()).thenReturn(buckets);
+        lenient().when(revocationCache.isLoaded()).thenReturn(true);
+        lenient().when(clock.instant()).thenReturn(START);
+        lenient().when(coseService.getRevocationListCOSESign1(any(), any(), any())).thenAnswer(invocation -> fixture.create(byte[].class));
+        signer = new RevocationListSigner(revocationCache, coseService, clock, true, DEBOUNCE_SECONDS, MAX_DELAY_SECONDS, VALIDITY_HOURS);
+    }
+
+    private void at(long seconds) {
+        when(clock.instant()).thenReturn(START.plusSeconds(seconds));
+    }
+
+    @Test
+    void signsSortedListRightAway_onFirstRefresh() {
+        var second = "urn:uvci:01:CH:F" + "0".repeat(23);
+        var first = "urn:uvci:01:CH:1" + "0".repeat(23);
+        buckets.add(second);
+        buckets.add(first);
+
+        signer.refresh();
+
+        var version = RevocationBuckets.Version.total(buckets.getVersions()).toString();
+        verify(coseService).getRevocationListCOSESign1(version, List.of(first, second), Duration.ofHours(VALIDITY_HOURS));
+        assertEquals(version, signer.getSigned().orElseThrow().getVersion());
+    }
+
+    @Test
+    void signsNothing_ifDisabled() {
+        signer = new RevocationListSigner(revocationCache, coseService, clock, false, DEBOUNCE_SECONDS, MAX_DELAY_SECONDS, VALIDITY_HOURS);
+
+        signer.refresh();
+
+        verifyNoInteractions(coseService);
+        assertTrue(signer.getSigned().isEmpty());
+    }
+
+    @Test
+    void signsNothing_beforeRevocationsAreLoaded() {
+        when(revocationCache.isLoaded()).thenReturn(false);
+
+        signer.refresh();
+
+        verifyNoInteractions(coseService);
+        assertTrue(signer.getSigned().isEmpty());
+    }
+
+    @Nested
+    class Changes {
+        @BeforeEach
+        void signInitialList() {
+            signer.refresh();
+            clearInvocations(coseService);
+        }
+
+        @Test
+        void signNothing_whileUnchanged() {
+            at(3600);
+
+            signer.refresh();
+
+            verifyNoInteractions(coseService);
+        }
+
+        @Test
+        void areSigned_afterDebounceDelay() {
+            at(1);
+            buckets.add(UVCI.generateUVCI("first"));
+            signer.refresh();
+            at(1 + DEBOUNCE_SECONDS - 1);
+            signer.refresh();
+            verifyNoInteractions(coseService);
+
+            at(1 + DEBOUNCE_SECONDS);
+            signer.refresh();
+
+            verify(coseService).getRevocationListCOSESign1(any(), any(), any());
+            assertEquals(RevocationBuckets.Version.total(buckets.getVersions()).toString(), signer.getSigned().orElseThrow().getVersion());
+        }
+
+        @Test
+        void areSigned_afterMaxDelay_ifChangingContinuously() {
+            for (long seconds = 1; seconds < MAX_DELAY_SECONDS; seconds += DEBOUNCE_SECONDS / 2) {
+                at(seconds);
+                buckets.add(UVCI.generateUVCI(seconds));
+                signer.refresh();
+            }
+            verifyNoInteractions(coseService);
+
+            at(1 + MAX_DELAY_SECONDS);
+            buckets.add(UVCI.generateUVCI("last"));
+            signer.refresh();
+
+            verify(coseService).getRevocationListCOSESign1(any(), any(), any());
+        }
+    }
+
+    @Test
+    void signsUnchangedListAgain_afterHalfTheValidity() {
+        signer.refresh();
+        at(Duration.ofHours(VALIDITY_HOURS / 2).toSeconds());
+
+        signer.refresh();
+
+        verify(coseService, times(2)).getRevocationListCOSESign1(any(), any(), any());
+    }
+
+    @Test
+    void retriesAfterDebounceDelay_ifSigningFails() {
+        when(coseService.getRevocationListCOSESign1(any(), any(), any())).thenThrow(new CreateCertificateException(CREATE_SIGNATURE_FAILED));
+        signer.refresh();
+        at(DEBOUNCE_SECONDS - 1);
+        signer.refresh();
+        verify(coseService, times(1)).getRevocationListCOSESign1(any(), any(), any());
+
+        at(DEBOUNCE_SECONDS);
+        signer.refresh();
+
+        verify(coseService, times(2)).getRevocationListCOSESign1(any(), any(), eq(Duration.ofHours(VALIDITY_HOURS)));
+        assertTrue(signer.getSigned().isEmpty());
+    }
+}
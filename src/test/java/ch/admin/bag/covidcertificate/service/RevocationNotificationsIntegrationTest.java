@@ -0,0 +1,65 @@
+package ch.admin.bag.covidcertificate.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the local Postgres database of application.yml, the revocations are inserted directly to act as
+ * another node. Run with -Dpostgres=true.
+ */
+@SpringBootTest
+@ActiveProfiles("local")
+@EnabledIfSystemProperty(named = "postgres", matches = "true")
+class RevocationNotificationsIntegrationTest {
+    private static final String UVCI_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private RevocationCache revocationCache;
+
+    @Test
+    void addsRevocationOfOtherNode_whenNotified() throws Exception {
+        var uvci = randomUvci();
+        revocationCache.reconcile();
+
+        jdbcTemplate.update("INSERT INTO revocation (id, uvci) VALUES (?, ?)", UUID.randomUUID(), uvci);
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", (ResultSetExtractor<Void>) resultSet -> null, RevocationNotifications.CHANNEL, uvci);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!revocationCache.getUvcis().contains(uvci) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(revocationCache.getUvcis().contains(uvci));
+    }
+
+    @Test
+    void addsRevocationOfOtherNode_whenReconciled() {
+        var uvci = randomUvci();
+        revocationCache.reconcile();
+
+        jdbcTemplate.update("INSERT INTO revocation (id, uvci) VALUES (?, ?)", UUID.randomUUID(), uvci);
+        revocationCache.reconcile();
+
+        assertTrue(revocationCache.getUvcis().contains(uvci));
+    }
+
+    private static String randomUvci() {
+        StringBuilder uvci = new StringBuilder("urn:uvci:01:CH:");
+        for (int i = 0; i < 24; i++) {
+            uvci.append(UVCI_CHARACTERS.charAt(ThreadLocalRandom.current().nextInt(UVCI_CHARACTERS.length())));
+        }
+        return uvci.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package ch.admin.bag.covidcertificate.service;
+
+import com.flextrade.jfixture.JFixture;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.core.Notification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevocationNotificationsTest {
+    private final JFixture fixture = new JFixture();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private DataSourceProperties dataSourceProperties;
+    @Mock
+    private RevocationCache revocationCache;
+
+    @Nested
+    class Publish {
+        @Test
+        void notifiesChannelWithUvci() {
+            var uvci = fixture.create(String.class);
+
+            createNotifications(true).publish(uvci);
+
+            verify(jdbcTemplate).query(eq("SELECT pg_notify(?, ?)"), any(ResultSetExtractor.class), eq(RevocationNotifications.CHANNEL), eq(uvci));
+        }
+
+        @Test
+        void doesNothing_ifDisabled() {
+            createNotifications(false).publish(fixture.create(String.class));
+
+            verifyNoInteractions(jdbcTemplate);
+        }
+    }
+
+    @Nested
+    class Receive {
+        @Test
+        void addsUvcisOfRevocationChannelToCache() {
+            var uvci = fixture.create(String.class);
+
+            createNotifications(true).receive(new Notification[]{
+                    new Notification(RevocationNotifications.CHANNEL, 1, uvci),
+                    new Notification(fixture.create(String.class), 1, fixture.create(String.class))});
+
+            verify(revocationCache).add(uvci);
+            verifyNoMoreInteractions(revocationCache);
+        }
+
+        @Test
+        void ignoresEmptyPoll() {
+            createNotifications(true).receive(null);
+
+            verifyNoInteractions(revocationCache);
+        }
+    }
+
+    private RevocationNotifications createNotifications(boolean enabled) {
+        return new RevocationNotifications(jdbcTemplate, dataSourceProperties, revocationCache, enabled, 1);
+    }
+}
@@ -2,18 +2,25 @@ package ch.admin.bag.covidcertificate.service;
 
 import ch.admin.bag.covidcertificate.api.exception.RevocationException;
 import ch.admin.bag.covidcertificate.api.request.RevocationDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationStatusDto;
 import ch.admin.bag.covidcertificate.domain.Revocation;
 import ch.admin.bag.covidcertificate.domain.RevocationRepository;
+import ch.admin.bag.covidcertificate.service.outbox.OutboxService;
 import com.flextrade.jfixture.JFixture;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 import static ch.admin.bag.covidcertificate.api.Constants.DUPLICATE_UVCI;
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_REVOCATION_LIST_BUCKET;
+import static ch.admin.bag.covidcertificate.api.Constants.SIGNED_REVOCATION_LIST_UNAVAILABLE;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
@@ -24,6 +31,14 @@ public class RevocationServiceTest {
     private final JFixture jFixture = new JFixture();
     @Mock
     private RevocationRepository revocationRepository;
+    @Mock
+    private RevocationCache revocationCache;
+    @Mock
+    private RevocationNotifications revocationNotifications;
+    @Mock
+    private RevocationListSigner revocationListSigner;
+    @Mock
+    private OutboxService outboxService;
     @InjectMocks
     private RevocationService revocationService;
 
@@ -38,6 +53,27 @@ public class RevocationServiceTest {
         verify(revocationRepository).saveAndFlush(any(Revocation.class));
     }
 
+    @Test
+    void whenCreateRevocation_thenNotifiesNodesAndCachesUvci() {
+        // given
+        RevocationDto revocationDto = jFixture.create(RevocationDto.class);
+        // when
+        revocationService.createRevocation(revocationDto);
+        // then
+        verify(revocationNotifications).publish(revocationDto.getUvci());
+        verify(revocationCache).addOnCommit(revocationDto.getUvci());
+    }
+
+    @Test
+    void whenCreateRevocation_thenWritesOutboxEvent() {
+        // given
+        RevocationDto revocationDto = jFixture.create(RevocationDto.class);
+        // when
+        revocationService.createRevocation(revocationDto);
+        // then
+        verify(outboxService).certificateRevoked(revocationDto.getUvci());
+    }
+
     @Test
     void givenUVCIExists_whenCreateRevocation_thenThrowsRevocationException() {
         // given
@@ -49,6 +85,17 @@ public class RevocationServiceTest {
         assertEquals(DUPLICATE_UVCI, exception.getError());
     }
 
+    @Test
+    void givenUniqueConstraintIsViolated_whenCreateRevocation_thenThrowsRevocationException() {
+        // given
+        RevocationDto revocationDto = jFixture.create(RevocationDto.class);
+        when(revocationRepository.saveAndFlush(any(Revocation.class))).thenThrow(new DataIntegrityViolationException("uvci"));
+        // when then
+        RevocationException exception = assertThrows(RevocationException.class,
+                () -> revocationService.createRevocation(revocationDto));
+        assertEquals(DUPLICATE_UVCI, exception.getError());
+    }
+
     @Test
     void givenExceptionIsThrown_whenCreateRevocation_thenThrowsException() {
         // given
@@ -61,9 +108,9 @@ public class RevocationServiceTest {
     }
 
     @Test
-    void givenNoRevocationInDB_whenGetRevocations_thenReturnEmptyList() {
+    void givenNoRevocationInCache_whenGetRevocations_thenReturnEmptyList() {
         // given
-        when(revocationRepository.findAllUvcis()).thenReturn(List.of());
+        when(revocationCache.getUvcis()).thenReturn(List.of());
         // when
         List<String> result = revocationService.getRevocations();
         // then
@@ -71,10 +118,10 @@ public class RevocationServiceTest {
     }
 
     @Test
-    void givenRevocationsInDB_whenGetRevocations_thenReturnRevocations() {
+    void givenRevocationsInCache_whenGetRevocations_thenReturnRevocations() {
         // given
         String uvci = jFixture.create(String.class);
-        when(revocationRepository.findAllUvcis()).thenReturn(List.of(uvci));
+        when(revocationCache.getUvcis()).thenReturn(List.of(uvci));
         // when
         List<String> result = revocationService.getRevocations();
         // then
@@ -85,9 +132,84 @@ public class RevocationServiceTest {
     void givenExceptionIsThrown_whenGetRevocations_thenThrowsException() {
         // given
         RuntimeException exception = jFixture.create(RuntimeException.class);
-        when(revocationRepository.findAllUvcis()).thenThrow(exception);
+        when(revocationCache.getUvcis()).thenThrow(exception);
         // when then
         Exception result = assertThrows(Exception.class, () -> revocationService.getRevocations());
         assertEquals(exception, result);
     }
+
+    @Test
+    void givenRevocationsInCache_whenGetRevocationListManifest_thenReturnBucketVersions() {
+        // given
+        String uvci = "urn:uvci:01:CH:F0" + "0".repeat(22);
+        RevocationBuckets buckets = new RevocationBuckets(1);
+        buckets.add(uvci);
+        when(revocationCache.getBuckets()).thenReturn(buckets);
+        // when
+        var result = revocationService.getRevocationListManifest();
+        // then
+        assertEquals(1, result.getBucketBits());
+        assertEquals(2, result.getBuckets().size());
+        assertEquals(0, result.getBuckets().get(0).getSize());
+        assertEquals(1, result.getBuckets().get(1).getSize());
+        assertEquals(buckets.get(1).getVersion().toString(), result.getBuckets().get(1).getVersion());
+    }
+
+    @Test
+    void givenRevocationsInCache_whenGetRevocationListBucket_thenReturnUvcisOfBucket() {
+        // given
+        String uvci = "urn:uvci:01:CH:F0" + "0".repeat(22);
+        RevocationBuckets buckets = new RevocationBuckets(1);
+        buckets.add(uvci);
+        when(revocationCache.getBuckets()).thenReturn(buckets);
+        // when
+        var result = revocationService.getRevocationListBucket(1);
+        // then
+        assertEquals(List.of(uvci), result.getUvcis());
+        assertEquals(buckets.get(1).getVersion().toString(), result.getVersion());
+    }
+
+    @Test
+    void givenIndexOutOfRange_whenGetRevocationListBucket_thenThrowsRevocationException() {
+        // given
+        when(revocationCache.getBuckets()).thenReturn(new RevocationBuckets(1));
+        // when then
+        RevocationException exception = assertThrows(RevocationException.class,
+                () -> revocationService.getRevocationListBucket(2));
+        assertEquals(INVALID_REVOCATION_LIST_BUCKET, exception.getError());
+    }
+
+    @Test
+    void givenSignedRevocationList_whenGetSignedRevocationList_thenReturnIt() {
+        // given
+        var signed = new RevocationListSigner.SignedRevocationList(jFixture.create(String.class), jFixture.create(byte[].class), Instant.now());
+        when(revocationListSigner.getSigned()).thenReturn(Optional.of(signed));
+        // when
+        var result = revocationService.getSignedRevocationList();
+        // then
+        assertEquals(signed, result);
+    }
+
+    @Test
+    void givenNoSignedRevocationList_whenGetSignedRevocationList_thenThrowsRevocationException() {
+        // given
+        when(revocationListSigner.getSigned()).thenReturn(Optional.empty());
+        // when then
+        RevocationException exception = assertThrows(RevocationException.class,
+                () -> revocationService.getSignedRevocationList());
+        assertEquals(SIGNED_REVOCATION_LIST_UNAVAILABLE, exception.getError());
+    }
+
+    @Test
+    void givenRevokedAndValidUvcis_whenGetRevocationStatus_thenReturnStatusPerUvciInOrder() {
+        // given
+        String revoked = jFixture.create(String.class);
+        String valid = jFixture.create(String.class);
+        when(revocationCache.contains(revoked)).thenReturn(true);
+        when(revocationCache.contains(valid)).thenReturn(false);
+        // when
+        var result = revocationService.getRevocationStatus(List.of(valid, revoked));
+        // then
+        assertEquals(List.of(new RevocationStatusDto(valid, false), new RevocationStatusDto(revoked, true)), result);
+    }
 }
@@ -0,0 +1,83 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.util.UVCI;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevocationSnapshotTest {
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2021, 6, 1, 10, 15, 30, 123_456_789);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsWrittenUvcisAndWatermark() throws Exception {
+        var snapshot = new RevocationSnapshot(directory.resolve("snapshot.bin").toString());
+        List<String> uvcis = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            uvcis.add(UVCI.generateUVCI(i));
+        }
+        uvcis.add("urn:uvci:01:CH:ZZZZZZZZZZZZZZZZZZZZZZZZ");
+
+        snapshot.write(WATERMARK, uvcis);
+        var content = snapshot.read().orElseThrow();
+
+        assertEquals(WATERMARK, content.getWatermark());
+        assertEquals(Set.copyOf(uvcis), Set.copyOf(content.getUvcis()));
+    }
+
+    @Test
+    void storesTwelveBytesPerUvci_sorted() throws Exception {
+        var path = directory.resolve("snapshot.bin");
+        var snapshot = new RevocationSnapshot(path.toString());
+
+        snapshot.write(WATERMARK, List.of("urn:uvci:01:CH:FFFFFFFFFFFFFFFFFFFFFFFF", "urn:uvci:01:CH:000000000000000000000001"));
+
+        assertEquals(28 + 2 * 12, Files.size(path));
+        assertEquals(List.of("urn:uvci:01:CH:000000000000000000000001", "urn:uvci:01:CH:FFFFFFFFFFFFFFFFFFFFFFFF"),
+                snapshot.read().orElseThrow().getUvcis());
+    }
+
+    @Test
+    void replacesSnapshotWithoutLeavingTemporaryFile() throws Exception {
+        var snapshot = new RevocationSnapshot(directory.resolve("snapshot.bin").toString());
+        var uvci = UVCI.generateUVCI();
+        snapshot.write(WATERMARK, List.of());
+
+        snapshot.write(WATERMARK.plusMinutes(5), List.of(uvci));
+
+        assertEquals(List.of(uvci), snapshot.read().orElseThrow().getUvcis());
+        assertEquals(WATERMARK.plusMinutes(5), snapshot.read().orElseThrow().getWatermark());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void returnsEmpty_ifSnapshotIsMissingOrCorrupt() throws Exception {
+        var path = directory.resolve("snapshot.bin");
+        var snapshot = new RevocationSnapshot(path.toString());
+        assertTrue(snapshot.read().isEmpty());
+
+        Files.write(path, new byte[]{1, 2, 3});
+
+        assertTrue(snapshot.read().isEmpty());
+    }
+
+    @Test
+    void isDisabled_withoutPath() {
+        var snapshot = new RevocationSnapshot("");
+
+        assertFalse(snapshot.isEnabled());
+        assertTrue(snapshot.read().isEmpty());
+    }
+}
@@ -0,0 +1,123 @@
+package ch.admin.bag.covidcertificate.service;
+
+import ch.admin.bag.covidcertificate.api.valueset.ValueSetsDto;
+import ch.admin.bag.covidcertificate.client.SigningClient;
+import ch.admin.bag.covidcertificate.service.document.CovidPdfCertificateGenerationService;
+import ch.admin.bag.covidcertificate.service.domain.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flextrade.jfixture.JFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WarmupServiceTest {
+    private static final int ITERATIONS = 2;
+    private static final int LANGUAGES = 4;
+
+    @Mock
+    private CovidPdfCertificateGenerationService covidPdfCertificateGenerationService;
+    @Mock
+    private CovidCertificateDtoMapperService covidCertificateDtoMapperService;
+    @Mock
+    private ValueSetsService valueSetsService;
+    @Mock
+    private SigningClient signingClient;
+
+    private final JFixture fixture = new JFixture();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        lenient().when(valueSetsService.getValueSets()).thenReturn(fixture.create(ValueSetsDto.class));
+        lenient().when(covidPdfCertificateGenerationService.generateCovidCertificate(any(), anyString(), anyBoolean())).thenReturn(fixture.create(byte[].class));
+
+        lenient().when(covidCertificateDtoMapperService.toVaccinationCertificateQrCode(any())).thenReturn(fixture.create(VaccinationCertificateQrCode.class));
+        lenient().when(covidCertificateDtoMapperService.toVaccinationCertificatePdf(any(), any())).thenReturn(fixture.create(VaccinationCertificatePdf.class));
+        lenient().when(covidCertificateDtoMapperService.toTestCertificateQrCode(any())).thenReturn(fixture.create(TestCertificateQrCode.class));
+        lenient().when(covidCertificateDtoMapperService.toTestCertificatePdf(any(), any())).thenReturn(fixture.create(TestCertificatePdf.class));
+        lenient().when(covidCertificateDtoMapperService.toRecoveryCertificateQrCode(any())).thenReturn(fixture.create(RecoveryCertificateQrCode.class));
+        lenient().when(covidCertificateDtoMapperService.toRecoveryCertificatePdf(any(), any())).thenReturn(fixture.create(RecoveryCertificatePdf.class));
+    }
+
+    private WarmupService createWarmupService(boolean enabled) {
+        CBORService cborService = new CBORService(new COSETime(Clock.systemUTC()));
+        ReflectionTestUtils.setField(cborService, "keyIdentifier", "24BC6B7B7BD2C328");
+        return new WarmupService(cborService, new ObjectMapper().findAndRegisterModules(), covidPdfCertificateGenerationService,
+                covidCertificateDtoMapperService, valueSetsService, signingClient, meterRegistry, enabled, ITERATIONS);
+    }
+
+    @Test
+    void isCompleted_ifDisabled() {
+        var warmupService = createWarmupService(false);
+
+        warmupService.startWarmup();
+
+        assertTrue(warmupService.isCompleted());
+        verifyNoInteractions(signingClient, covidCertificateDtoMapperService, covidPdfCertificateGenerationService);
+    }
+
+    @Test
+    void isNotCompleted_beforeWarmupHasRun() {
+        var warmupService = createWarmupService(true);
+
+        assertFalse(warmupService.isCompleted());
+    }
+
+    @Test
+    void generatesCertificatesOfEachTypeAndLanguage() throws IOException {
+        var warmupService = createWarmupService(true);
+
+        warmupService.warmup();
+
+        verify(covidCertificateDtoMapperService, times(ITERATIONS * LANGUAGES)).toVaccinationCertificatePdf(any(), any());
+        verify(covidCertificateDtoMapperService, times(ITERATIONS * LANGUAGES)).toTestCertificatePdf(any(), any());
+        verify(covidCertificateDtoMapperService, times(ITERATIONS * LANGUAGES)).toRecoveryCertificatePdf(any(), any());
+        verify(covidPdfCertificateGenerationService, times(3 * ITERATIONS * LANGUAGES)).generateCovidCertificate(any(), anyString(), anyBoolean());
+        assertTrue(warmupService.isCompleted());
+    }
+
+    @Test
+    void opensSigningConnection_withoutSigning() {
+        var warmupService = createWarmupService(true);
+
+        warmupService.warmup();
+
+        verify(signingClient).warmup();
+        verify(signingClient, never()).create(any());
+    }
+
+    @Test
+    void publishesWarmupDuration() {
+        var warmupService = createWarmupService(true);
+
+        warmupService.warmup();
+
+        var timer = meterRegistry.find(WarmupService.WARMUP_DURATION_METRIC).timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void isCompleted_ifWarmupFails() {
+        var warmupService = createWarmupService(true);
+        when(covidCertificateDtoMapperService.toVaccinationCertificateQrCode(any())).thenThrow(new IllegalStateException());
+
+        warmupService.warmup();
+
+        assertTrue(warmupService.isCompleted());
+        assertEquals(1, meterRegistry.find(WarmupService.WARMUP_DURATION_METRIC).timer().count());
+    }
+}
@@ -0,0 +1,164 @@
+package ch.admin.bag.covidcertificate.service.batch;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_CSV;
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_CSV_ROW;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CertificateBatchCsvReaderTest {
+    private static final String HEADER = "type,familyName,givenName,dateOfBirth,language";
+
+    private static CertificateBatchCsvReader reader(String csv) throws IOException {
+        return new CertificateBatchCsvReader(new StringReader(csv));
+    }
+
+    private static List<List<String>> readAll(CertificateBatchCsvReader reader) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        for (List<String> row = reader.readRow(); row != null; row = reader.readRow()) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Nested
+    class ReadRow {
+        @Test
+        void readsQuotedFieldsAndLineBreaks() throws IOException {
+            var reader = reader(HEADER + "\r\ntest,\"Muster, \"\"Hans\"\"\",Hans,1990-05-13,de\r\n\"test\",\"Line\nBreak\",,,\n");
+
+            assertEquals(List.of(
+                    List.of("test", "Muster, \"Hans\"", "Hans", "1990-05-13", "de"),
+                    List.of("test", "Line\nBreak", "", "", "")), readAll(reader));
+        }
+
+        @Test
+        void skipsByteOrderMarkAndBlankLines() throws IOException {
+            var reader = reader("\uFEFF" + HEADER + "\n\ntest,Muster,Hans,1990-05-13,de\n\n");
+
+            assertEquals(List.of(List.of("test", "Muster", "Hans", "1990-05-13", "de")), readAll(reader));
+        }
+
+        @Test
+        void throwsInvalidCsv_ifQuoteIsNotClosed() throws IOException {
+            var reader = reader(HEADER + "\ntest,\"Muster,Hans,1990-05-13,de\n");
+
+            var exception = assertThrows(CreateCertificateException.class, reader::readRow);
+            assertEquals(INVALID_CSV, exception.getError());
+        }
+
+        @Test
+        void throwsInvalidCsv_ifRowIsTooLong() throws IOException {
+            var reader = reader(HEADER + "\ntest," + "M".repeat(CertificateBatchCsvReader.MAX_ROW_LENGTH) + ",Hans,1990-05-13,de\n");
+
+            var exception = assertThrows(CreateCertificateException.class, reader::readRow);
+            assertEquals(INVALID_CSV, exception.getError());
+        }
+
+        @Test
+        void throwsInvalidCsv_ifRequiredColumnIsMissing() {
+            var exception = assertThrows(CreateCertificateException.class, () -> reader("type,familyName,givenName,language\n"));
+            assertEquals(INVALID_CSV, exception.getError());
+        }
+
+        @Test
+        void throwsInvalidCsv_ifColumnIsRepeated() {
+            var exception = assertThrows(CreateCertificateException.class, () -> reader(HEADER + ",type\n"));
+            assertEquals(INVALID_CSV, exception.getError());
+        }
+
+        @Test
+        void throwsInvalidCsv_ifInputIsEmpty() {
+            var exception = assertThrows(CreateCertificateException.class, () -> reader(""));
+            assertEquals(INVALID_CSV, exception.getError());
+        }
+    }
+
+    @Nested
+    class ToItem {
+        @Test
+        void convertsTestRow() throws IOException {
+            var reader = reader(HEADER + ",typeCode,manufacturerCode,sampleDateTime,testingCentreOrFacility,memberStateOfTest\n");
+
+            var item = reader.toItem(List.of("Test", "Muster", "Hans", "1990-05-13", "de", "LP217198-3", "1232", "2021-06-01T10:00:00+02:00", "Centre", "CH"));
+
+            assertNull(item.getVaccination());
+            assertNull(item.getRecovery());
+            assertEquals("Muster", item.getTest().getPersonData().getName().getFamilyName());
+            assertEquals(LocalDate.of(1990, 5, 13), item.getTest().getPersonData().getDateOfBirth());
+            assertEquals("de", item.getTest().getLanguage());
+            var test = item.getTest().getTestInfo().get(0);
+            assertEquals("LP217198-3", test.getTypeCode());
+            assertEquals("1232", test.getManufacturerCode());
+            assertEquals(ZonedDateTime.parse("2021-06-01T10:00:00+02:00"), test.getSampleDateTime());
+            assertEquals("Centre", test.getTestingCentreOrFacility());
+            assertEquals("CH", test.getMemberStateOfTest());
+        }
+
+        @Test
+        void convertsVaccinationRow_withColumnsInAnyOrder() throws IOException {
+            var reader = reader("countryOfVaccination,vaccinationDate,totalNumberOfDoses,numberOfDoses,medicinalProductCode," + HEADER + "\n");
+
+            var item = reader.toItem(List.of("CH", "2021-04-29", "2", "1", "EU/1/20/1507", "vaccination", "Muster", "Hans", "1990-05-13", "fr"));
+
+            assertNull(item.getTest());
+            var vaccination = item.getVaccination().getVaccinationInfo().get(0);
+            assertEquals("EU/1/20/1507", vaccination.getMedicinalProductCode());
+            assertEquals(1, vaccination.getNumberOfDoses());
+            assertEquals(2, vaccination.getTotalNumberOfDoses());
+            assertEquals(LocalDate.of(2021, 4, 29), vaccination.getVaccinationDate());
+            assertEquals("CH", vaccination.getCountryOfVaccination());
+            assertEquals("fr", item.getVaccination().getLanguage());
+        }
+
+        @Test
+        void leavesEmptyAndMissingColumnsNull() throws IOException {
+            var reader = reader(HEADER + "\n");
+
+            var item = reader.toItem(List.of("test", " ", "Hans", "", "de"));
+
+            assertNull(item.getTest().getPersonData().getName().getFamilyName());
+            assertNull(item.getTest().getPersonData().getDateOfBirth());
+            assertNull(item.getTest().getTestInfo().get(0).getSampleDateTime());
+        }
+
+        @Test
+        void throwsInvalidCsvRow_forUnknownType() throws IOException {
+            assertInvalidRow(List.of("recovery", "Muster", "Hans", "1990-05-13", "de"));
+        }
+
+        @Test
+        void throwsInvalidCsvRow_forInvalidDate() throws IOException {
+            assertInvalidRow(List.of("test", "Muster", "Hans", "13.05.1990", "de"));
+        }
+
+        @Test
+        void throwsInvalidCsvRow_forInvalidNumber() throws IOException {
+            var reader = reader(HEADER + ",numberOfDoses\n");
+
+            var exception = assertThrows(CreateCertificateException.class, () -> reader.toItem(List.of("vaccination", "Muster", "Hans", "1990-05-13", "de", "one")));
+            assertEquals(INVALID_CSV_ROW, exception.getError());
+        }
+
+        @Test
+        void throwsInvalidCsvRow_ifFieldCountDoesNotMatchHeader() throws IOException {
+            assertInvalidRow(List.of("test", "Muster", "Hans", "1990-05-13"));
+        }
+
+        private void assertInvalidRow(List<String> row) throws IOException {
+            var reader = reader(HEADER + "\n");
+
+            var exception = assertThrows(CreateCertificateException.class, () -> reader.toItem(row));
+            assertEquals(INVALID_CSV_ROW, exception.getError());
+        }
+    }
+}
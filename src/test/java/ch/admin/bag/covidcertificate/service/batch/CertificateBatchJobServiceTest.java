@@ -0,0 +1,393 @@
+package ch.admin.bag.covidcertificate.service.batch;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchCreateDto;
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchItemDto;
+import ch.admin.bag.covidcertificate.api.request.RecoveryCertificateCreateDto;
+import ch.admin.bag.covidcertificate.api.request.RecoveryCertificateDataDto;
+import ch.admin.bag.covidcertificate.api.request.TestCertificateCreateDto;
+import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateCreateDto;
+import ch.admin.bag.covidcertificate.api.response.CertificateBatchJobDto;
+import ch.admin.bag.covidcertificate.api.response.CertificateBatchJobStatus;
+import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import ch.admin.bag.covidcertificate.service.CovidCertificateGenerationService;
+import ch.admin.bag.covidcertificate.service.KpiDataService;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipInputStream;
+
+import static ch.admin.bag.covidcertificate.TestModelProvider.getCovidCertificatePersonDto;
+import static ch.admin.bag.covidcertificate.TestModelProvider.getRecoveryCertificateCreateDto;
+import static ch.admin.bag.covidcertificate.TestModelProvider.getVaccinationCertificateCreateDto;
+import static ch.admin.bag.covidcertificate.api.Constants.*;
+import static ch.admin.bag.covidcertificate.api.request.CertificateArtefact.DEFAULT_ARTEFACTS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CertificateBatchJobServiceTest {
+    private static final Instant NOW = Instant.parse("2021-06-01T10:00:00Z");
+    private static final Duration RETENTION = Duration.ofHours(24);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+    private static final String OWNER = "owner";
+    private static final String USER_EXT_ID = "user";
+    private static final int MAX_ITEMS = 3;
+    private static final int MAX_PENDING_ITEMS = 4;
+
+    @Mock
+    private CovidCertificateGenerationService covidCertificateGenerationService;
+    @Mock
+    private KpiDataService kpiDataService;
+    @Mock
+    private Clock clock;
+    @TempDir
+    Path directory;
+
+    private CertificateBatchJobStore store;
+    private QueuedExecutorService executor;
+    private CertificateBatchJobService service;
+
+    @BeforeEach
+    void init() throws IOException {
+        store = new CertificateBatchJobStore(Jackson2ObjectMapperBuilder.json().modules(new JavaTimeModule()).build(), directory);
+        executor = new QueuedExecutorService();
+        service = newService(executor);
+        lenient().when(clock.instant()).thenReturn(NOW);
+        lenient().when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        lenient().when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class), eq(DEFAULT_ARTEFACTS), eq(true)))
+                .thenAnswer(invocation -> response("urn:uvci:01:CH:V"));
+        lenient().when(covidCertificateGenerationService.generateCovidCertificate(any(RecoveryCertificateCreateDto.class), eq(DEFAULT_ARTEFACTS), eq(true)))
+                .thenAnswer(invocation -> response("urn:uvci:01:CH:R"));
+    }
+
+    private CertificateBatchJobService newService(ExecutorService executor) {
+        return new CertificateBatchJobService(covidCertificateGenerationService, kpiDataService, store, executor, clock, MAX_ITEMS, MAX_PENDING_ITEMS, RETENTION, SHUTDOWN_TIMEOUT);
+    }
+
+    private static CovidCertificateCreateResponseDto response(String uvci) {
+        return new CovidCertificateCreateResponseDto(uvci.getBytes(StandardCharsets.UTF_8), null, uvci, null);
+    }
+
+    private static CertificateBatchCreateDto batch(CertificateBatchItemDto... items) {
+        return new CertificateBatchCreateDto(List.of(items));
+    }
+
+    private static CertificateBatchItemDto vaccination() {
+        return new CertificateBatchItemDto(getVaccinationCertificateCreateDto("EU/1/20/1507"), null, null);
+    }
+
+    private static CertificateBatchItemDto recovery() {
+        return new CertificateBatchItemDto(null, null, getRecoveryCertificateCreateDto());
+    }
+
+    @Test
+    void createsCertificatesOfAllItems() throws IOException {
+        var submitted = service.submit(batch(vaccination(), recovery()), OWNER, USER_EXT_ID);
+        assertEquals(new CertificateBatchJobDto(submitted.getJobId(), CertificateBatchJobStatus.RUNNING, 2, 0, 0), submitted);
+
+        executor.runAll();
+
+        assertEquals(new CertificateBatchJobDto(submitted.getJobId(), CertificateBatchJobStatus.COMPLETED, 2, 2, 0), service.getJob(submitted.getJobId(), OWNER));
+        assertEquals("urn:uvci:01:CH:R", store.readResult(submitted.getJobId(), 1).orElseThrow().getUvci());
+        assertEquals(0, service.getPendingItems());
+        verify(kpiDataService).logCertificateCreated(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC), KPI_TYPE_VACCINATION, "urn:uvci:01:CH:V", USER_EXT_ID);
+        verify(kpiDataService).logCertificateCreated(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC), KPI_TYPE_RECOVERY, "urn:uvci:01:CH:R", USER_EXT_ID);
+    }
+
+    @Test
+    void recordsErrorOfFailedItems() throws IOException {
+        var invalid = new CertificateBatchItemDto(null, null, new RecoveryCertificateCreateDto(getCovidCertificatePersonDto(),
+                List.of(new RecoveryCertificateDataDto(LocalDate.now().plusDays(1), "CH")), "de"));
+        when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class), eq(DEFAULT_ARTEFACTS), eq(true))).thenThrow(new IOException());
+
+        var submitted = service.submit(batch(invalid, vaccination()), OWNER, USER_EXT_ID);
+        executor.runAll();
+
+        assertEquals(2, service.getJob(submitted.getJobId(), OWNER).getFailed());
+        assertEquals(INVALID_DATE_OF_FIRST_POSITIVE_TEST_RESULT.getErrorCode(), store.readResult(submitted.getJobId(), 0).orElseThrow().getErrorCode());
+        assertEquals(CREATE_BATCH_ITEM_FAILED.getErrorCode(), store.readResult(submitted.getJobId(), 1).orElseThrow().getErrorCode());
+        verifyNoInteractions(kpiDataService);
+    }
+
+    @Test
+    void logsCreationWithoutUser_withoutUserExtId() {
+        service.submit(batch(vaccination()), OWNER, null);
+        executor.runAll();
+
+        verify(kpiDataService).logCertificateCreated(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC), KPI_TYPE_VACCINATION, "urn:uvci:01:CH:V", null);
+    }
+
+    @Test
+    void rejectsBatch_ifTooManyItemsArePending() {
+        service.submit(batch(vaccination(), vaccination(), vaccination()), OWNER, USER_EXT_ID);
+
+        var exception = assertThrows(CreateCertificateException.class, () -> service.submit(batch(vaccination(), vaccination()), OWNER, USER_EXT_ID));
+        assertEquals(BATCH_JOBS_BUSY, exception.getError());
+
+        executor.runAll();
+        service.submit(batch(vaccination(), vaccination()), OWNER, USER_EXT_ID);
+    }
+
+    @Test
+    void rejectsInvalidBatch() {
+        var exception = assertThrows(CreateCertificateException.class, () -> service.submit(batch(vaccination(), vaccination(), vaccination(), vaccination()), OWNER, USER_EXT_ID));
+        assertEquals(INVALID_BATCH, exception.getError());
+        assertEquals(0, service.getPendingItems());
+    }
+
+    @Test
+    void throwsNotFound_forJobOfOtherOwner() {
+        var submitted = service.submit(batch(vaccination()), OWNER, USER_EXT_ID);
+
+        var exception = assertThrows(CreateCertificateException.class, () -> service.getJob(submitted.getJobId(), "other"));
+        assertEquals(BATCH_JOB_NOT_FOUND, exception.getError());
+    }
+
+    @Test
+    void throwsNotFound_forUnknownJob() {
+        var exception = assertThrows(CreateCertificateException.class, () -> service.getJob(UUID.randomUUID(), OWNER));
+        assertEquals(BATCH_JOB_NOT_FOUND, exception.getError());
+    }
+
+    @Test
+    void resumesItemsWithoutResult_afterRestart() throws IOException {
+        var submitted = service.submit(batch(vaccination(), vaccination(), recovery()), OWNER, USER_EXT_ID);
+        executor.runNext();
+        service.destroy();
+
+        var restartedExecutor = new QueuedExecutorService();
+        var restarted = newService(restartedExecutor);
+        restarted.resume();
+        assertEquals(2, restarted.getPendingItems());
+        restartedExecutor.runAll();
+
+        assertEquals(CertificateBatchJobStatus.COMPLETED, restarted.getJob(submitted.getJobId(), OWNER).getStatus());
+        verify(covidCertificateGenerationService, times(2)).generateCovidCertificate(any(VaccinationCertificateCreateDto.class), eq(DEFAULT_ARTEFACTS), eq(true));
+        verify(covidCertificateGenerationService, times(1)).generateCovidCertificate(any(RecoveryCertificateCreateDto.class), eq(DEFAULT_ARTEFACTS), eq(true));
+    }
+
+    @Test
+    void storesNoResult_forItemInterruptedOnShutdown() throws IOException {
+        when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class), eq(DEFAULT_ARTEFACTS), eq(true))).thenAnswer(invocation -> {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        });
+        var submitted = service.submit(batch(vaccination()), OWNER, USER_EXT_ID);
+
+        try {
+            executor.runNext();
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertFalse(store.hasResult(submitted.getJobId(), 0));
+        assertEquals(0, service.getPendingItems());
+    }
+
+    @Test
+    void writesResultsAsZipWithPdfsAndCsv() throws IOException {
+        when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class), eq(DEFAULT_ARTEFACTS), eq(true)))
+                .thenAnswer(invocation -> response("urn:uvci:01:CH:V"))
+                .thenThrow(new CreateCertificateException(INVALID_GIVEN_NAME));
+        var submitted = service.submit(batch(vaccination(), vaccination(), recovery()), OWNER, USER_EXT_ID);
+        executor.runNext();
+        executor.runNext();
+
+        var outputStream = new ByteArrayOutputStream();
+        service.writeResults(submitted.getJobId(), OWNER, outputStream);
+
+        var entries = unzip(outputStream.toByteArray());
+        assertEquals(List.of(CertificateBatchJobService.RESULTS_FILE, "0.pdf"), new ArrayList<>(entries.keySet()));
+        assertEquals("urn:uvci:01:CH:V", entries.get("0.pdf"));
+        assertEquals("index,status,uvci,errorCode,errorMessage\n" +
+                "0,SUCCEEDED,urn:uvci:01:CH:V,,\n" +
+                "1,FAILED,,458,\"" + INVALID_GIVEN_NAME.getErrorMessage() + "\"\n" +
+                "2,PENDING,,,\n", entries.get(CertificateBatchJobService.RESULTS_FILE));
+    }
+
+    @Test
+    void createsCertificatesOfCsvRows() throws IOException {
+        when(covidCertificateGenerationService.generateCovidCertificate(any(TestCertificateCreateDto.class), eq(DEFAULT_ARTEFACTS), eq(true))).thenAnswer(invocation -> response("urn:uvci:01:CH:T"));
+        var csv = "type,familyName,givenName,dateOfBirth,language,typeCode,sampleDateTime,testingCentreOrFacility,memberStateOfTest," +
+                "medicinalProductCode,numberOfDoses,totalNumberOfDoses,vaccinationDate,countryOfVaccination\n" +
+                "test,Muster,Hans,1990-05-13,de,LP217198-3,2021-06-01T08:00:00Z,Centre,CH,,,,,\n" +
+                "vaccination,Muster,Hans,1990-05-13,de,,,,,EU/1/20/1507,2,2,2021-04-29,CH\n" +
+                "vaccination,Muster,Hans,13.05.1990,de,,,,,EU/1/20/1507,2,2,2021-04-29,CH\n";
+
+        var submitted = service.submitCsv(csv(csv), OWNER, USER_EXT_ID);
+        assertEquals(new CertificateBatchJobDto(submitted.getJobId(), CertificateBatchJobStatus.RUNNING, 3, 0, 1), submitted);
+        assertEquals(2, service.getPendingItems());
+        executor.runAll();
+
+        assertEquals(new CertificateBatchJobDto(submitted.getJobId(), CertificateBatchJobStatus.COMPLETED, 3, 2, 1), service.getJob(submitted.getJobId(), OWNER));
+        assertEquals("urn:uvci:01:CH:T", store.readResult(submitted.getJobId(), 0).orElseThrow().getUvci());
+        assertEquals("urn:uvci:01:CH:V", store.readResult(submitted.getJobId(), 1).orElseThrow().getUvci());
+        assertEquals(INVALID_CSV_ROW.getErrorCode(), store.readResult(submitted.getJobId(), 2).orElseThrow().getErrorCode());
+        assertEquals(0, service.getPendingItems());
+        verify(kpiDataService).logCertificateCreated(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC), KPI_TYPE_TEST, "urn:uvci:01:CH:T", USER_EXT_ID);
+    }
+
+    @Test
+    void validatesCsvRows_whenCertificatesAreCreated() throws IOException {
+        var submitted = service.submitCsv(csv("type,familyName,givenName,dateOfBirth,language\ntest,Muster,,1990-05-13,de\n"), OWNER, USER_EXT_ID);
+        executor.runAll();
+
+        assertEquals(INVALID_GIVEN_NAME.getErrorCode(), store.readResult(submitted.getJobId(), 0).orElseThrow().getErrorCode());
+        verifyNoInteractions(covidCertificateGenerationService);
+    }
+
+    @Test
+    void rejectsCsv_withTooManyRows() throws IOException {
+        var exception = assertThrows(CreateCertificateException.class, () -> service.submitCsv(csv("type,familyName,givenName,dateOfBirth,language\n" +
+                "test,A,A,1990-05-13,de\ntest,B,B,1990-05-13,de\ntest,C,C,1990-05-13,de\ntest,D,D,1990-05-13,de\n"), OWNER, USER_EXT_ID));
+
+        assertEquals(INVALID_BATCH, exception.getError());
+        assertEquals(0, service.getPendingItems());
+        assertJobDirectories(0);
+    }
+
+    @Test
+    void rejectsCsv_withoutRows() throws IOException {
+        var exception = assertThrows(CreateCertificateException.class, () -> service.submitCsv(csv("type,familyName,givenName,dateOfBirth,language\n"), OWNER, USER_EXT_ID));
+
+        assertEquals(INVALID_BATCH, exception.getError());
+        assertJobDirectories(0);
+    }
+
+    @Test
+    void rejectsCsv_withoutHeader() throws IOException {
+        var exception = assertThrows(CreateCertificateException.class, () -> service.submitCsv(csv("test,Muster,Hans,1990-05-13,de\n"), OWNER, USER_EXT_ID));
+
+        assertEquals(INVALID_CSV, exception.getError());
+        assertJobDirectories(0);
+    }
+
+    @Test
+    void rejectsCsv_ifTooManyItemsArePending() throws IOException {
+        service.submit(batch(vaccination(), vaccination(), vaccination()), OWNER, USER_EXT_ID);
+
+        var exception = assertThrows(CreateCertificateException.class, () -> service.submitCsv(csv("type,familyName,givenName,dateOfBirth,language\n" +
+                "test,A,A,1990-05-13,de\ntest,B,B,1990-05-13,de\n"), OWNER, USER_EXT_ID));
+
+        assertEquals(BATCH_JOBS_BUSY, exception.getError());
+        assertEquals(3, service.getPendingItems());
+        assertJobDirectories(1);
+    }
+
+    private static ByteArrayInputStream csv(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void assertJobDirectories(int count) throws IOException {
+        try (var paths = Files.list(directory)) {
+            assertEquals(count, paths.count());
+        }
+    }
+
+    @Test
+    void deletesJobs_afterRetention() throws IOException {
+        var submitted = service.submit(batch(vaccination()), OWNER, USER_EXT_ID);
+        executor.runAll();
+
+        when(clock.instant()).thenReturn(NOW.plus(RETENTION));
+        service.deleteExpiredJobs();
+        assertEquals(CertificateBatchJobStatus.COMPLETED, service.getJob(submitted.getJobId(), OWNER).getStatus());
+
+        when(clock.instant()).thenReturn(NOW.plus(RETENTION).plusSeconds(1));
+        service.deleteExpiredJobs();
+        assertThrows(CreateCertificateException.class, () -> service.getJob(submitted.getJobId(), OWNER));
+    }
+
+    private static Map<String, String> unzip(byte[] zip) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (var zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (var entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+                entries.put(entry.getName(), new String(zipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Runs the submitted tasks only when asked to, in the order they were submitted.
+     */
+    private static class QueuedExecutorService extends AbstractExecutorService {
+        private final List<Runnable> tasks = new ArrayList<>();
+        private boolean shutdown;
+
+        void runNext() {
+            tasks.remove(0).run();
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                runNext();
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> remaining = new ArrayList<>(tasks);
+            tasks.clear();
+            return remaining;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && tasks.isEmpty();
+        }
+
+        /**
+         * Runs the remaining tasks, like a pool that completes its queue after being shut down.
+         */
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            runAll();
+            return isTerminated();
+        }
+    }
+}
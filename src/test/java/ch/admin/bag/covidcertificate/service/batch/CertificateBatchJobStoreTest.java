@@ -0,0 +1,165 @@
+package ch.admin.bag.covidcertificate.service.batch;
+
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchItemDto;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static ch.admin.bag.covidcertificate.TestModelProvider.getTestCertificateCreateDto;
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_GIVEN_NAME;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CertificateBatchJobStoreTest {
+    @TempDir
+    Path directory;
+
+    private CertificateBatchJobStore store;
+
+    @BeforeEach
+    void init() throws IOException {
+        store = new CertificateBatchJobStore(Jackson2ObjectMapperBuilder.json().modules(new JavaTimeModule()).build(), directory);
+    }
+
+    private static final CertificateBatchItemDto ITEM = new CertificateBatchItemDto(null, getTestCertificateCreateDto("LP6464-4", null), null);
+
+    private CertificateBatchJob job() throws IOException {
+        var job = new CertificateBatchJob(UUID.randomUUID(), "owner", "user", Instant.parse("2021-06-01T10:00:00Z"), 2);
+        var draft = store.create(job.getId());
+        draft.writeItem(0, ITEM);
+        draft.writeItem(1, ITEM);
+        draft.commit(job);
+        return job;
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void restrictsFilesToOwner() throws IOException {
+        var root = directory.resolve("jobs");
+        Files.createDirectories(root);
+        Files.setPosixFilePermissions(root, PosixFilePermissions.fromString("rwxr-xr-x"));
+        store = new CertificateBatchJobStore(Jackson2ObjectMapperBuilder.json().modules(new JavaTimeModule()).build(), root);
+
+        var job = job();
+        store.writeResult(job.getId(), CertificateBatchItemResult.succeeded(0, "urn:uvci:01:CH:T", new byte[]{1}));
+
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(root)));
+        try (var paths = Files.walk(root.resolve(job.getId().toString()))) {
+            for (var path : paths.collect(Collectors.toList())) {
+                assertEquals(Files.isDirectory(path) ? "rwx------" : "rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(path)), path.toString());
+            }
+        }
+    }
+
+    @Test
+    void readsStoredJob() throws IOException {
+        var job = job();
+
+        var stored = store.find(job.getId()).orElseThrow();
+        assertEquals(job.getOwner(), stored.getOwner());
+        assertEquals(job.getCreatedAt(), stored.getCreatedAt());
+        assertEquals(2, stored.getSize());
+        var test = ITEM.getTest().getTestInfo().get(0);
+        var storedItem = store.readItem(job.getId(), 1);
+        var storedTest = storedItem.getTest().getTestInfo().get(0);
+        assertEquals(test.getTypeCode(), storedTest.getTypeCode());
+        assertEquals(test.getSampleDateTime().toInstant(), storedTest.getSampleDateTime().toInstant());
+        assertEquals(ITEM.getTest().getPersonData().getDateOfBirth(), storedItem.getTest().getPersonData().getDateOfBirth());
+        assertNull(storedItem.getVaccination());
+        assertEquals(List.of(job.getId()), store.findAllIds());
+    }
+
+    @Test
+    void findsNoJob_untilDraftIsCommitted() throws IOException {
+        var id = UUID.randomUUID();
+        var draft = store.create(id);
+        draft.writeItem(0, ITEM);
+        draft.writeResult(CertificateBatchItemResult.failed(1, INVALID_GIVEN_NAME));
+
+        assertTrue(store.find(id).isEmpty());
+        assertEquals(List.of(), store.findAllIds());
+
+        draft.commit(new CertificateBatchJob(id, "owner", null, Instant.parse("2021-06-01T10:00:00Z"), 2));
+
+        assertTrue(store.find(id).isPresent());
+        assertTrue(store.hasResult(id, 1));
+        assertFalse(store.hasResult(id, 0));
+    }
+
+    @Test
+    void keepsOtherJobs_whenDraftIsDiscarded() throws IOException {
+        var job = job();
+        var draft = store.create(UUID.randomUUID());
+        draft.writeItem(0, ITEM);
+
+        draft.discard();
+
+        try (var names = Files.list(directory)) {
+            assertEquals(List.of(job.getId().toString()), names.map(path -> path.getFileName().toString()).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void countsResultsBySuccess() throws IOException {
+        var job = job();
+
+        store.writeResult(job.getId(), CertificateBatchItemResult.succeeded(0, "urn:uvci:01:CH:A", new byte[]{1}));
+        store.writeResult(job.getId(), CertificateBatchItemResult.failed(1, INVALID_GIVEN_NAME));
+
+        var progress = store.getProgress(job.getId());
+        assertEquals(1, progress.getSucceeded());
+        assertEquals(1, progress.getFailed());
+        assertTrue(store.hasResult(job.getId(), 1));
+        assertEquals("urn:uvci:01:CH:A", store.readResult(job.getId(), 0).orElseThrow().getUvci());
+        assertEquals(INVALID_GIVEN_NAME.getErrorMessage(), store.readResult(job.getId(), 1).orElseThrow().getErrorMessage());
+    }
+
+    @Test
+    void storesPdfApartFromResult() throws IOException {
+        var job = job();
+
+        store.writeResult(job.getId(), CertificateBatchItemResult.succeeded(0, "urn:uvci:01:CH:A", new byte[]{1}));
+        store.writeResult(job.getId(), CertificateBatchItemResult.failed(1, INVALID_GIVEN_NAME));
+
+        assertNull(store.readResult(job.getId(), 0).orElseThrow().getPdf());
+        assertTrue(store.hasPdf(job.getId(), 0));
+        assertFalse(store.hasPdf(job.getId(), 1));
+        var pdf = new ByteArrayOutputStream();
+        store.copyPdf(job.getId(), 0, pdf);
+        assertArrayEquals(new byte[]{1}, pdf.toByteArray());
+    }
+
+    @Test
+    void ignoresOtherAndIncompleteDirectories() throws IOException {
+        Files.createDirectories(directory.resolve(UUID.randomUUID() + ".tmp"));
+        Files.createDirectories(directory.resolve("other"));
+
+        assertEquals(List.of(), store.findAllIds());
+        assertTrue(store.find(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void deletesJobWithResults() throws IOException {
+        var job = job();
+        store.writeResult(job.getId(), CertificateBatchItemResult.succeeded(0, "urn:uvci:01:CH:A", null));
+
+        store.delete(job.getId());
+
+        assertTrue(store.find(job.getId()).isEmpty());
+        assertFalse(store.hasResult(job.getId(), 0));
+        assertEquals(List.of(), store.findAllIds());
+    }
+}
@@ -0,0 +1,49 @@
+package ch.admin.bag.covidcertificate.service.document;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DocumentMessagesTest {
+    private static final List<Locale> LOCALES = List.of(Locale.GERMAN, Locale.FRENCH, Locale.ITALIAN, Locale.forLanguageTag("rm"), Locale.ENGLISH);
+
+    private final DocumentMessages documentMessages = DocumentMessages.load(LOCALES);
+
+    private ResourceBundleMessageSource messageSource() {
+        var source = new ResourceBundleMessageSource();
+        source.setBasenames("templates/messages/document-messages");
+        source.setUseCodeAsDefaultMessage(true);
+        source.setDefaultEncoding("UTF-8");
+        return source;
+    }
+
+    @Test
+    void returnsSameMessagesAsResourceBundleMessageSource() {
+        var messageSource = messageSource();
+        for (Locale locale : LOCALES) {
+            for (String key : ResourceBundle.getBundle("templates/messages/document-messages", Locale.GERMAN).keySet()) {
+                assertEquals(messageSource.getMessage(key, null, locale), documentMessages.get(key, locale), key + " " + locale);
+            }
+        }
+    }
+
+    @Test
+    void formatsMessagesWithArgumentsLikeResourceBundleMessageSource() {
+        var messageSource = messageSource();
+        for (Locale locale : LOCALES) {
+            assertEquals(messageSource.getMessage("qrCode.label", new String[]{"01.06.2021", "12:00"}, locale),
+                    documentMessages.format("qrCode.label", locale, "01.06.2021", "12:00"));
+        }
+    }
+
+    @Test
+    void returnsKey_ifMessageIsUnknown() {
+        assertEquals("unknown.key", documentMessages.get("unknown.key", Locale.GERMAN));
+        assertEquals("unknown.key", documentMessages.format("unknown.key", Locale.GERMAN, "arg"));
+    }
+}
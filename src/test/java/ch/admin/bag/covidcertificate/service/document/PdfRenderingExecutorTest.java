@@ -0,0 +1,128 @@
+package ch.admin.bag.covidcertificate.service.document;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import com.flextrade.jfixture.JFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static ch.admin.bag.covidcertificate.api.Constants.PDF_RENDERING_BUSY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfRenderingExecutorTest {
+    private final JFixture fixture = new JFixture();
+
+    private SimpleMeterRegistry meterRegistry;
+    private PdfRenderingExecutor executor;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new PdfRenderingExecutor(meterRegistry, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    void rendersDocumentOnRenderingThread() {
+        var expected = fixture.create(byte[].class);
+        var renderingThread = new AtomicReference<Thread>();
+
+        byte[] document = executor.render(() -> {
+            renderingThread.set(Thread.currentThread());
+            return expected;
+        });
+
+        assertSame(expected, document);
+        assertTrue(renderingThread.get().getName().startsWith("pdf-rendering-"));
+        assertEquals(1, meterRegistry.get(PdfRenderingExecutor.WAIT_METRIC).timer().count());
+    }
+
+    @Test
+    void throwsExceptionOfRendering() {
+        var exception = new IllegalStateException();
+
+        var thrown = assertThrows(IllegalStateException.class, () -> executor.render(() -> {
+            throw exception;
+        }));
+
+        assertSame(exception, thrown);
+    }
+
+    @Test
+    void throwsPdfRenderingBusy_ifQueueIsFull() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            callers.submit(() -> executor.render(() -> {
+                started.countDown();
+                await(release);
+                return new byte[0];
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            callers.submit(() -> executor.render(() -> new byte[0]));
+            while (meterRegistry.get(PdfRenderingExecutor.QUEUE_METRIC).gauge().value() < 1) {
+                Thread.sleep(10);
+            }
+
+            var exception = assertThrows(CreateCertificateException.class, () -> executor.render(() -> new byte[0]));
+
+            assertEquals(PDF_RENDERING_BUSY, exception.getError());
+            assertEquals(1, meterRegistry.get(PdfRenderingExecutor.REJECTED_METRIC).counter().count());
+        } finally {
+            release.countDown();
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    void waitsForPlace_ifQueueIsFullAndPlaceIsAwaited() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            callers.submit(() -> executor.render(() -> {
+                started.countDown();
+                await(release);
+                return new byte[0];
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            callers.submit(() -> executor.render(() -> new byte[0]));
+            while (meterRegistry.get(PdfRenderingExecutor.QUEUE_METRIC).gauge().value() < 1) {
+                Thread.sleep(10);
+            }
+            var expected = fixture.create(byte[].class);
+
+            Future<byte[]> document = callers.submit(() -> executor.render(() -> expected, true));
+            Thread.sleep(100);
+            assertFalse(document.isDone());
+            release.countDown();
+
+            assertSame(expected, document.get(10, TimeUnit.SECONDS));
+            assertEquals(0, meterRegistry.get(PdfRenderingExecutor.REJECTED_METRIC).counter().count());
+        } finally {
+            release.countDown();
+            callers.shutdown();
+        }
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ch.admin.bag.covidcertificate.service.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileOutboxSinkTest {
+    private static final LocalDateTime CREATED_AT = LocalDateTime.parse("2021-06-01T10:00:00");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendsEventsAsJsonLines() throws IOException {
+        var path = directory.resolve("outbox.jsonl");
+        var sink = new FileOutboxSink(objectMapper, path);
+
+        sink.publish(List.of(new OutboxEvent(1, CREATED_AT, "OTP_CREATED", "{\"userExtId\":\"a\"}")));
+        sink.publish(List.of(new OutboxEvent(2, CREATED_AT, "CERTIFICATE_REVOKED", "{\"uvci\":\"b\"}")));
+
+        assertEquals(List.of(
+                "{\"id\":1,\"createdAt\":\"2021-06-01T10:00\",\"type\":\"OTP_CREATED\",\"payload\":{\"userExtId\":\"a\"}}",
+                "{\"id\":2,\"createdAt\":\"2021-06-01T10:00\",\"type\":\"CERTIFICATE_REVOKED\",\"payload\":{\"uvci\":\"b\"}}"),
+                Files.readAllLines(path));
+    }
+}
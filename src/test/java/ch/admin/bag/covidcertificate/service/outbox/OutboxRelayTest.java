@@ -0,0 +1,110 @@
+package ch.admin.bag.covidcertificate.service.outbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Relays the events of the outbox table in an in-memory H2 database.
+ */
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+    private static final int BATCH_SIZE = 2;
+    private static final LocalDateTime CREATED_AT = LocalDateTime.parse("2021-06-01T10:00:00");
+
+    @Mock
+    private OutboxSink outboxSink;
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    void createTable() {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:outbox-relay;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "sa");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("create table outbox_event (id bigserial not null primary key, created_at timestamp not null, type varchar(64) not null, payload text not null)");
+    }
+
+    @AfterEach
+    void dropTable() {
+        jdbcTemplate.execute("drop table outbox_event");
+    }
+
+    private void insert(int count) {
+        for (int i = 0; i < count; i++) {
+            jdbcTemplate.update(OutboxService.INSERT, Timestamp.valueOf(CREATED_AT), OutboxEventType.OTP_CREATED.name(), "{\"n\":" + i + "}");
+        }
+    }
+
+    private OutboxRelay relay(boolean enabled) {
+        return new OutboxRelay(jdbcTemplate, transactionManager, outboxSink, enabled, BATCH_SIZE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishesAllEventsInOrderAndDeletesThem() throws IOException {
+        insert(5);
+        List<OutboxEvent> published = new ArrayList<>();
+        doAnswer(invocation -> published.addAll(invocation.getArgument(0))).when(outboxSink).publish(any());
+
+        relay(true).relay();
+
+        verify(outboxSink, times(3)).publish(any());
+        assertEquals(List.of("{\"n\":0}", "{\"n\":1}", "{\"n\":2}", "{\"n\":3}", "{\"n\":4}"),
+                published.stream().map(OutboxEvent::getPayload).collect(Collectors.toList()));
+        assertEquals(CREATED_AT, published.get(0).getCreatedAt());
+        assertEquals(OutboxEventType.OTP_CREATED.name(), published.get(0).getType());
+        assertEquals(0, count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void keepsEvents_ifPublishingFails() throws IOException {
+        insert(1);
+        doThrow(new IOException("unavailable")).when(outboxSink).publish(any());
+
+        relay(true).relay();
+        assertEquals(1, count());
+
+        doNothing().when(outboxSink).publish(any());
+        relay(true).relay();
+
+        ArgumentCaptor<List<OutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(outboxSink, times(2)).publish(events.capture());
+        assertEquals(events.getAllValues().get(0), events.getAllValues().get(1));
+        assertEquals(0, count());
+    }
+
+    @Test
+    void publishesNothing_ifDisabled() {
+        insert(1);
+
+        relay(false).relay();
+
+        verifyNoInteractions(outboxSink);
+        assertEquals(1, count());
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("select count(*) from outbox_event", Integer.class);
+    }
+}
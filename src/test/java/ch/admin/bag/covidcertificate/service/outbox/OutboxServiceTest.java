@@ -0,0 +1,146 @@
+package ch.admin.bag.covidcertificate.service.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Writes events to the outbox table in an in-memory H2 database.
+ */
+class OutboxServiceTest {
+    private static final int BATCH_SIZE = 2;
+    private static final int BUFFER_SIZE = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Clock clock = Clock.fixed(Instant.parse("2021-06-01T10:00:00Z"), ZoneOffset.UTC);
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void createTable() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:outbox;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "sa");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table outbox_event (id bigserial not null primary key, created_at timestamp not null, type varchar(64) not null, payload text not null)");
+        outboxService = new OutboxService(jdbcTemplate, objectMapper, clock, true, BATCH_SIZE, BUFFER_SIZE);
+    }
+
+    @AfterEach
+    void dropTable() {
+        jdbcTemplate.execute("drop table outbox_event");
+    }
+
+    @Test
+    void buffersEvents_untilFlushed() {
+        outboxService.certificateCreated("v", "urn:uvci:01:CH:1", "user");
+        outboxService.otpCreated("user");
+        outboxService.certificateRevoked("urn:uvci:01:CH:2");
+        assertEquals(0, count());
+
+        outboxService.flush();
+
+        assertEquals(0, outboxService.getBuffered());
+        assertEquals(List.of("CERTIFICATE_CREATED", "OTP_CREATED", "CERTIFICATE_REVOKED"),
+                jdbcTemplate.queryForList("select type from outbox_event order by id", String.class));
+    }
+
+    @Test
+    void writesPayloadAsJson() throws Exception {
+        outboxService.certificateCreated("t", "urn:uvci:01:CH:1", null);
+        outboxService.flush();
+
+        var payload = objectMapper.readTree(jdbcTemplate.queryForObject("select payload from outbox_event", String.class));
+
+        assertEquals("t", payload.get("certificateType").asText());
+        assertEquals("urn:uvci:01:CH:1", payload.get("uvci").asText());
+        assertEquals(true, payload.get("userExtId").isNull());
+    }
+
+    @Test
+    void writesEventRightAway_withinTransaction() {
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+            outboxService.certificateRevoked("urn:uvci:01:CH:1");
+            status.setRollbackOnly();
+        });
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status ->
+                outboxService.certificateRevoked("urn:uvci:01:CH:2"));
+
+        assertEquals(0, outboxService.getBuffered());
+        assertEquals(List.of("{\"uvci\":\"urn:uvci:01:CH:2\"}"), jdbcTemplate.queryForList("select payload from outbox_event", String.class));
+    }
+
+    @Test
+    void flushesBuffer_ifBufferIsFull() {
+        for (int i = 0; i < BUFFER_SIZE + 1; i++) {
+            outboxService.otpCreated("user-" + i);
+        }
+
+        assertEquals(1, outboxService.getBuffered());
+        assertEquals(BUFFER_SIZE, count());
+        outboxService.flush();
+        assertEquals(List.of("user-0", "user-1", "user-2", "user-3", "user-4", "user-5"), userExtIds());
+    }
+
+    @Test
+    void keepsEventsBuffered_ifWritingFails() {
+        outboxService.otpCreated("user");
+        jdbcTemplate.execute("alter table outbox_event rename to outbox_event_moved");
+
+        outboxService.flush();
+        assertEquals(1, outboxService.getBuffered());
+
+        jdbcTemplate.execute("alter table outbox_event_moved rename to outbox_event");
+        outboxService.flush();
+        assertEquals(0, outboxService.getBuffered());
+        assertEquals(1, count());
+    }
+
+    @Test
+    void writesFailedBatchFirst_onNextFlush() {
+        outboxService.otpCreated("user-0");
+        outboxService.otpCreated("user-1");
+        jdbcTemplate.execute("alter table outbox_event rename to outbox_event_moved");
+        outboxService.flush();
+        outboxService.otpCreated("user-2");
+        jdbcTemplate.execute("alter table outbox_event_moved rename to outbox_event");
+
+        outboxService.flush();
+
+        assertEquals(0, outboxService.getBuffered());
+        assertEquals(List.of("user-0", "user-1", "user-2"), userExtIds());
+    }
+
+    @Test
+    void writesNothing_ifDisabled() {
+        outboxService = new OutboxService(jdbcTemplate, objectMapper, clock, false, BATCH_SIZE, BUFFER_SIZE);
+
+        outboxService.otpCreated("user");
+        outboxService.flush();
+
+        assertEquals(0, count());
+    }
+
+    private List<String> userExtIds() {
+        return jdbcTemplate.queryForList("select payload from outbox_event order by id", String.class).stream()
+                .map(payload -> payload.replaceAll(".*\"userExtId\":\"([^\"]*)\".*", "$1"))
+                .collect(Collectors.toList());
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("select count(*) from outbox_event", Integer.class);
+    }
+}
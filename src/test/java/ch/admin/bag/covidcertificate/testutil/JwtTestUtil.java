@@ -23,6 +23,10 @@ public class JwtTestUtil {
     private static final String ISSUER = "http://localhost:8180";
 
     public static String getJwtTestToken(String privateKey, LocalDateTime expiration, String userRole) throws Exception {
+        return getJwtTestToken(privateKey, expiration, userRole, Collections.emptyMap());
+    }
+
+    public static String getJwtTestToken(String privateKey, LocalDateTime expiration, String userRole, Map<String, Object> additionalClaims) throws Exception {
         KeySpec keySpec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKey));
         KeyFactory kf = KeyFactory.getInstance(CRYPTO_ALGORITHM);
         PrivateKey privateKeyToSignWith = kf.generatePrivate(keySpec);
@@ -41,6 +45,7 @@ public class JwtTestUtil {
         claims.put("exp", convertToDateViaInstant(expiration));
         claims.put("family_name", LAST_NAME);
         claims.put("jti", UUID.randomUUID().toString());
+        claims.putAll(additionalClaims);
 
         return Jwts.builder()
                 .setId(UUID.randomUUID().toString())
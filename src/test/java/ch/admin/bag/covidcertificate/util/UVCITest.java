@@ -1,14 +1,24 @@
 package ch.admin.bag.covidcertificate.util;
 
 import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateDataDto;
+import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 
+@Slf4j
 class UVCITest {
 
     private final VaccinationCertificateDataDto vaccineDataDto = mock(VaccinationCertificateDataDto.class);
@@ -64,4 +74,85 @@ class UVCITest {
         assertEquals("CH", results[3]);
         assertEquals(24, results[4].length());
     }
+
+    @Test
+    void testComponents_ofBinaryEncodedFields() {
+        String uvci = UVCI.generateUVCI("EU/1/20/1528", 2, null, LocalDate.of(2021, 5, 1), ZonedDateTime.now(), "CH".repeat(200));
+        String[] results = uvci.split(":");
+
+        assertEquals(39, uvci.length());
+        assertEquals("CH", results[3]);
+        assertTrue(results[4].matches("[0-9A-F]{24}"));
+    }
+
+    @Test
+    void testOpaqueString() {
+        String uvci = UVCI.generateUVCI(vaccineDataDto.toString());
+
+        assertEquals(uvci.split(":")[4], UVCI.getOpaqueString(uvci));
+    }
+
+    @Test
+    void testOpaqueBytes() {
+        String uvci = UVCI.generateUVCI(vaccineDataDto.toString());
+
+        byte[] opaque = UVCI.getOpaqueBytes(uvci);
+
+        assertEquals(12, opaque.length);
+        assertEquals(uvci, UVCI.fromOpaqueBytes(opaque));
+    }
+
+    @Test
+    void testOpaqueBytes_ofIdentifierOfAnotherForm() {
+        assertNull(UVCI.getOpaqueBytes("urn:uvci:01:CH:97DAB5E31B589AF3CAE2F53Z"));
+        assertNull(UVCI.getOpaqueBytes("urn:uvci:01:AT:97DAB5E31B589AF3CAE2F53E"));
+        assertNull(UVCI.getOpaqueBytes("urn:uvci:01:CH:97DAB5E31B589AF3CAE2F53"));
+    }
+
+    @Test
+    void testUniqueness_ifGeneratedConcurrently() throws InterruptedException {
+        int numberOfThreads = 8;
+        int numberOfRunsPerThread = 50000;
+        Set<String> uvcis = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < numberOfThreads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < numberOfRunsPerThread; i++) {
+                    uvcis.add(UVCI.generateUVCI("EU/1/20/1528", 2, 2, LocalDate.of(2021, 5, 1), "CH"));
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(numberOfThreads * numberOfRunsPerThread, uvcis.size());
+    }
+
+    /**
+     * Rough throughput figure, run with -Dbenchmark=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark() {
+        LocalDate vaccinationDate = LocalDate.of(2021, 5, 1);
+        int warmupRuns = 200000;
+        int measuredRuns = 1000000;
+        for (int i = 0; i < warmupRuns; i++) {
+            UVCI.generateUVCI("EU/1/20/1528", 2, 2, vaccinationDate, "CH");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredRuns; i++) {
+            UVCI.generateUVCI("EU/1/20/1528", 2, 2, vaccinationDate, "CH");
+        }
+        long duration = System.nanoTime() - start;
+        log.info("UVCI: {} ns/op, {} ops/s", duration / measuredRuns, measuredRuns * TimeUnit.SECONDS.toNanos(1) / duration);
+    }
 }
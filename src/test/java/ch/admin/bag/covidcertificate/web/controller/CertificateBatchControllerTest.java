@@ -0,0 +1,237 @@
+package ch.admin.bag.covidcertificate.web.controller;
+
+import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchCreateDto;
+import ch.admin.bag.covidcertificate.api.request.CertificateBatchItemDto;
+import ch.admin.bag.covidcertificate.api.response.CertificateBatchJobDto;
+import ch.admin.bag.covidcertificate.api.response.CertificateBatchJobStatus;
+import ch.admin.bag.covidcertificate.config.security.authentication.JeapAuthenticationToken;
+import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
+import ch.admin.bag.covidcertificate.service.batch.CertificateBatchJobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.flextrade.jfixture.JFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static ch.admin.bag.covidcertificate.TestModelProvider.getVaccinationCertificateCreateDto;
+import static ch.admin.bag.covidcertificate.api.Constants.BATCH_JOBS_BUSY;
+import static ch.admin.bag.covidcertificate.api.Constants.BATCH_JOB_NOT_FOUND;
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_CSV;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@ExtendWith(MockitoExtension.class)
+class CertificateBatchControllerTest {
+    @InjectMocks
+    private CertificateBatchController controller;
+    @Mock
+    private SecurityHelper securityHelper;
+    @Mock
+    private ServletJeapAuthorization jeapAuthorization;
+    @Mock
+    private CertificateBatchJobService certificateBatchJobService;
+
+    private MockMvc mockMvc;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().modules(new JavaTimeModule()).build();
+
+    private static final String URL = "/api/v1/covidcertificate/batch";
+    private static final UUID JOB_ID = UUID.randomUUID();
+    private static final CertificateBatchJobDto JOB = new CertificateBatchJobDto(JOB_ID, CertificateBatchJobStatus.RUNNING, 1, 0, 0);
+
+    private static final JFixture fixture = new JFixture();
+
+    @BeforeEach
+    void setupMocks() {
+        this.mockMvc = standaloneSetup(controller, new ResponseStatusExceptionHandler()).build();
+        lenient().when(jeapAuthorization.getJeapAuthenticationToken()).thenReturn(fixture.create(JeapAuthenticationToken.class));
+    }
+
+    @Nested
+    class Submit {
+        private final CertificateBatchCreateDto batchDto = new CertificateBatchCreateDto(List.of(new CertificateBatchItemDto(getVaccinationCertificateCreateDto("EU/1/20/1507"), null, null)));
+
+        @Test
+        void returnsJobWithAcceptedStatus() throws Exception {
+            when(certificateBatchJobService.submit(any(CertificateBatchCreateDto.class), any(), any())).thenReturn(JOB);
+
+            MvcResult result = mockMvc.perform(post(URL)
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(batchDto)))
+                    .andExpect(status().isAccepted())
+                    .andReturn();
+
+            assertEquals(JOB, mapper.readValue(result.getResponse().getContentAsString(), CertificateBatchJobDto.class));
+        }
+
+        @Test
+        void returns503WithRetryAfter_ifTooManyItemsArePending() throws Exception {
+            when(certificateBatchJobService.submit(any(CertificateBatchCreateDto.class), any(), any())).thenThrow(new CreateCertificateException(BATCH_JOBS_BUSY));
+
+            mockMvc.perform(post(URL)
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(batchDto)))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        }
+
+        @Test
+        void returns403StatusCode_ifAccessDeniedExceptionWasThrown() throws Exception {
+            when(securityHelper.authorizeUser(any(HttpServletRequest.class))).thenThrow(fixture.create(AccessDeniedException.class));
+
+            mockMvc.perform(post(URL)
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(batchDto)))
+                    .andExpect(status().is(HttpStatus.FORBIDDEN.value()));
+            verifyNoInteractions(certificateBatchJobService);
+        }
+    }
+
+    @Nested
+    class SubmitCsv {
+        private static final String CSV = "type,familyName,givenName,dateOfBirth,language\n";
+
+        @Test
+        void passesRequestBodyToService() throws Exception {
+            when(certificateBatchJobService.submitCsv(any(InputStream.class), any(), any())).thenAnswer(invocation -> {
+                assertEquals(CSV, new String(invocation.getArgument(0, InputStream.class).readAllBytes(), StandardCharsets.UTF_8));
+                return JOB;
+            });
+
+            MvcResult result = mockMvc.perform(post(URL + "/csv")
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(CertificateBatchController.CSV_MEDIA_TYPE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(CSV))
+                    .andExpect(status().isAccepted())
+                    .andReturn();
+
+            assertEquals(JOB, mapper.readValue(result.getResponse().getContentAsString(), CertificateBatchJobDto.class));
+        }
+
+        @Test
+        void returns400_ifCsvIsInvalid() throws Exception {
+            when(certificateBatchJobService.submitCsv(any(InputStream.class), any(), any())).thenThrow(new CreateCertificateException(INVALID_CSV));
+
+            mockMvc.perform(post(URL + "/csv")
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(CertificateBatchController.CSV_MEDIA_TYPE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(CSV))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void returns403StatusCode_ifAccessDeniedExceptionWasThrown() throws Exception {
+            when(securityHelper.authorizeUser(any(HttpServletRequest.class))).thenThrow(fixture.create(AccessDeniedException.class));
+
+            mockMvc.perform(post(URL + "/csv")
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(CertificateBatchController.CSV_MEDIA_TYPE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(CSV))
+                    .andExpect(status().is(HttpStatus.FORBIDDEN.value()));
+            verifyNoInteractions(certificateBatchJobService);
+        }
+    }
+
+    @Nested
+    class GetJob {
+        @Test
+        void returnsJob() throws Exception {
+            when(certificateBatchJobService.getJob(JOB_ID, "")).thenReturn(JOB);
+
+            MvcResult result = mockMvc.perform(get(URL + "/" + JOB_ID)
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            assertEquals(JOB, mapper.readValue(result.getResponse().getContentAsString(), CertificateBatchJobDto.class));
+        }
+
+        @Test
+        void returns404_ifJobIdIsNoUUID() throws Exception {
+            mockMvc.perform(get(URL + "/../other")
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class)))
+                    .andExpect(status().isNotFound());
+            mockMvc.perform(get(URL + "/job")
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class)))
+                    .andExpect(status().is(BATCH_JOB_NOT_FOUND.getHttpStatus().value()));
+            verifyNoInteractions(certificateBatchJobService);
+        }
+    }
+
+    @Nested
+    class GetResults {
+        @Test
+        void streamsResultsAsZip() throws Exception {
+            var zip = fixture.create(byte[].class);
+            when(certificateBatchJobService.getJob(JOB_ID, "")).thenReturn(JOB);
+            doAnswer(invocation -> {
+                invocation.getArgument(2, OutputStream.class).write(zip);
+                return null;
+            }).when(certificateBatchJobService).writeResults(eq(JOB_ID), eq(""), any(OutputStream.class));
+
+            MvcResult asyncResult = mockMvc.perform(get(URL + "/" + JOB_ID + "/results")
+                    .accept(CertificateBatchController.ZIP_MEDIA_TYPE)
+                    .header("Authorization", fixture.create(String.class)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, CertificateBatchController.ZIP_MEDIA_TYPE))
+                    .andReturn();
+
+            assertArrayEquals(zip, result.getResponse().getContentAsByteArray());
+        }
+
+        @Test
+        void returns404_ifJobIsNotFound() throws Exception {
+            when(certificateBatchJobService.getJob(JOB_ID, "")).thenThrow(new CreateCertificateException(BATCH_JOB_NOT_FOUND));
+
+            mockMvc.perform(get(URL + "/" + JOB_ID + "/results")
+                    .accept(CertificateBatchController.ZIP_MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class)))
+                    .andExpect(status().isNotFound());
+        }
+    }
+}
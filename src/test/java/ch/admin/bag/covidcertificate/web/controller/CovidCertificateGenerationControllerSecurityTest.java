@@ -4,10 +4,13 @@ import ch.admin.bag.covidcertificate.api.request.RecoveryCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.TestCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import ch.admin.bag.covidcertificate.config.TimeConfig;
 import ch.admin.bag.covidcertificate.config.security.OAuth2SecuredWebConfiguration;
 import ch.admin.bag.covidcertificate.config.security.authentication.JeapAuthenticationToken;
 import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
+import ch.admin.bag.covidcertificate.service.CertificateExecutionService;
 import ch.admin.bag.covidcertificate.service.CovidCertificateGenerationService;
+import ch.admin.bag.covidcertificate.service.IdempotencyService;
 import ch.admin.bag.covidcertificate.service.KpiDataService;
 import ch.admin.bag.covidcertificate.testutil.JwtTestUtil;
 import ch.admin.bag.covidcertificate.testutil.KeyPairTestUtil;
@@ -29,6 +32,7 @@ import org.springframework.test.web.servlet.ResultMatcher;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 
 
 import static ch.admin.bag.covidcertificate.FixtureCustomization.*;
@@ -40,7 +44,7 @@ import static org.mockito.Mockito.times;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(value = {CovidCertificateGenerationController.class, OAuth2SecuredWebConfiguration.class},
+@WebMvcTest(value = {CovidCertificateGenerationController.class, OAuth2SecuredWebConfiguration.class, TimeConfig.class},
             properties="jeap.security.oauth2.resourceserver.authorization-server.jwk-set-uri=http://localhost:8182/.well-known/jwks.json")  // Avoid port 8180, see below
 @ActiveProfiles("local")
 class CovidCertificateGenerationControllerSecurityTest {
@@ -51,7 +55,11 @@ class CovidCertificateGenerationControllerSecurityTest {
     @MockBean
     private ServletJeapAuthorization jeapAuthorization;
     @MockBean
+    private IdempotencyService idempotencyService;
+    @MockBean
     private KpiDataService kpiDataService;
+    @MockBean
+    private CertificateExecutionService certificateExecutionService;
     @Autowired
     private MockMvc mockMvc;
 
@@ -91,6 +99,8 @@ class CovidCertificateGenerationControllerSecurityTest {
         lenient().when(covidCertificateGenerationService.generateCovidCertificate(any(TestCertificateCreateDto.class))).thenReturn(fixture.create(CovidCertificateCreateResponseDto.class));
         lenient().when(covidCertificateGenerationService.generateCovidCertificate(any(RecoveryCertificateCreateDto.class))).thenReturn(fixture.create(CovidCertificateCreateResponseDto.class));
         lenient().when(jeapAuthorization.getJeapAuthenticationToken()).thenReturn(fixture.create(JeapAuthenticationToken.class));
+        lenient().doAnswer(invocation -> invocation.getArgument(3, IdempotencyService.CertificateCreation.class).create()).when(idempotencyService).execute(any(), any(), any(), any());
+        lenient().doAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0, IdempotencyService.CertificateCreation.class).create())).when(certificateExecutionService).execute(any());
     }
     @AfterAll
     static void teardown() {
@@ -1,40 +1,68 @@
 package ch.admin.bag.covidcertificate.web.controller;
 
+import brave.propagation.ThreadLocalCurrentTraceContext;
 import ch.admin.bag.covidcertificate.api.exception.CreateCertificateException;
+import ch.admin.bag.covidcertificate.api.request.CertificateArtefact;
 import ch.admin.bag.covidcertificate.api.request.RecoveryCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.TestCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.request.VaccinationCertificateCreateDto;
 import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
 import ch.admin.bag.covidcertificate.config.security.authentication.JeapAuthenticationToken;
 import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
+import ch.admin.bag.covidcertificate.service.CertificateExecutionService;
 import ch.admin.bag.covidcertificate.service.CovidCertificateGenerationService;
+import ch.admin.bag.covidcertificate.service.IdempotencyService;
+import ch.admin.bag.covidcertificate.service.KpiDataService;
+import ch.admin.bag.covidcertificate.web.converter.CovidCertificateMultipartHttpMessageConverter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.flextrade.jfixture.JFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
 
 import static ch.admin.bag.covidcertificate.FixtureCustomization.*;
+import static ch.admin.bag.covidcertificate.api.Constants.IDEMPOTENCY_KEY_HEADER;
+import static ch.admin.bag.covidcertificate.api.Constants.KPI_TYPE_VACCINATION;
+import static ch.admin.bag.covidcertificate.api.Constants.PDF_RENDERING_BUSY;
+import static ch.admin.bag.covidcertificate.api.Constants.RETRY_AFTER_SECONDS;
+import static ch.admin.bag.covidcertificate.web.converter.CovidCertificateMultipartHttpMessageConverter.UVCI_HEADER;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
 
@@ -48,6 +76,12 @@ class CovidCertificateGenerationControllerTest {
     private CovidCertificateGenerationService covidCertificateGenerationService;
     @Mock
     private ServletJeapAuthorization jeapAuthorization;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private KpiDataService kpiDataService;
+    @Spy
+    private CertificateExecutionService certificateExecutionService = new CertificateExecutionService(new SimpleMeterRegistry(), ThreadLocalCurrentTraceContext.create(), false, 1, 1, Duration.ofSeconds(30));
 
     private MockMvc mockMvc;
 
@@ -71,6 +105,14 @@ class CovidCertificateGenerationControllerTest {
         lenient().when(covidCertificateGenerationService.generateCovidCertificate(any(TestCertificateCreateDto.class))).thenReturn(fixture.create(CovidCertificateCreateResponseDto.class));
         lenient().when(covidCertificateGenerationService.generateCovidCertificate(any(RecoveryCertificateCreateDto.class))).thenReturn(fixture.create(CovidCertificateCreateResponseDto.class));
         lenient().when(jeapAuthorization.getJeapAuthenticationToken()).thenReturn(fixture.create(JeapAuthenticationToken.class));
+        lenient().doAnswer(invocation -> invocation.getArgument(3, IdempotencyService.CertificateCreation.class).create()).when(idempotencyService).execute(any(), any(), any(), any());
+    }
+
+    private ResultActions performAsync(MockMvc mockMvc, RequestBuilder requestBuilder) throws Exception {
+        MvcResult asyncResult = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(asyncResult));
     }
 
     @Nested
@@ -82,7 +124,43 @@ class CovidCertificateGenerationControllerTest {
             var responseDto = fixture.create(CovidCertificateCreateResponseDto.class);
             when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class))).thenReturn(responseDto);
 
-            MvcResult result = mockMvc.perform(post(URL)
+            MvcResult result = performAsync(mockMvc, post(URL)
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(createDto)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            CovidCertificateCreateResponseDto expectedDto = mapper.readValue(result.getResponse().getContentAsString(), CovidCertificateCreateResponseDto.class);
+            assertEquals(responseDto, expectedDto);
+        }
+
+        @Test
+        void logsCreatedCertificate() throws Exception {
+            var createDto = fixture.create(VaccinationCertificateCreateDto.class);
+            var responseDto = fixture.create(CovidCertificateCreateResponseDto.class);
+            when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class))).thenReturn(responseDto);
+
+            performAsync(mockMvc, post(URL)
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(createDto)))
+                    .andExpect(status().isOk());
+
+            verify(kpiDataService).logCertificateCreated(any(), eq(KPI_TYPE_VACCINATION), eq(responseDto.getUvci()), any());
+        }
+
+        @Test
+        void passesRequestedArtefactsToService() throws Exception {
+            var createDto = fixture.create(VaccinationCertificateCreateDto.class);
+            var responseDto = fixture.create(CovidCertificateCreateResponseDto.class);
+            var artefacts = EnumSet.of(CertificateArtefact.PAYLOAD, CertificateArtefact.QR_CODE);
+            when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class), eq(artefacts))).thenReturn(responseDto);
+
+            MvcResult result = performAsync(mockMvc, post(URL)
+                    .param("artefacts", "PAYLOAD,QR_CODE")
                     .accept(MediaType.APPLICATION_JSON_VALUE)
                     .contentType(MediaType.APPLICATION_JSON_VALUE)
                     .header("Authorization", fixture.create(String.class))
@@ -94,6 +172,65 @@ class CovidCertificateGenerationControllerTest {
             assertEquals(responseDto, expectedDto);
         }
 
+        @Test
+        void passesIdempotencyKeyToIdempotencyService() throws Exception {
+            var createDto = fixture.create(VaccinationCertificateCreateDto.class);
+            var idempotencyKey = fixture.create(String.class);
+
+            mockMvc.perform(post(URL)
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .header(IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                    .content(mapper.writeValueAsString(createDto)))
+                    .andExpect(status().isOk());
+
+            verify(idempotencyService).execute(eq(idempotencyKey), any(), any(), any());
+        }
+
+        @Test
+        void passesSameRequestToIdempotencyService_forArtefactsInAnyOrder() throws Exception {
+            var createDto = fixture.create(VaccinationCertificateCreateDto.class);
+            var idempotencyKey = fixture.create(String.class);
+            when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class), any())).thenReturn(fixture.create(CovidCertificateCreateResponseDto.class));
+
+            for (String artefacts : List.of("QR_CODE,PDF", "PDF,QR_CODE")) {
+                mockMvc.perform(post(URL)
+                        .param("artefacts", artefacts)
+                        .accept(MediaType.APPLICATION_JSON_VALUE)
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .header("Authorization", fixture.create(String.class))
+                        .header(IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .content(mapper.writeValueAsString(createDto)))
+                        .andExpect(status().isOk());
+            }
+
+            var requests = ArgumentCaptor.forClass(Object.class);
+            verify(idempotencyService, times(2)).execute(eq(idempotencyKey), any(), requests.capture(), any());
+            assertEquals(requests.getAllValues().get(0).toString(), requests.getAllValues().get(1).toString());
+        }
+
+        @Test
+        void returnsCertificateAsMultipart_ifMultipartMixedIsAccepted() throws Exception {
+            var createDto = fixture.create(VaccinationCertificateCreateDto.class);
+            var responseDto = fixture.create(CovidCertificateCreateResponseDto.class);
+            when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class))).thenReturn(responseDto);
+            var multipartMockMvc = standaloneSetup(controller, new ResponseStatusExceptionHandler())
+                    .setMessageConverters(new MappingJackson2HttpMessageConverter(mapper), new CovidCertificateMultipartHttpMessageConverter())
+                    .build();
+
+            MvcResult result = performAsync(multipartMockMvc, post(URL)
+                    .accept(MediaType.MULTIPART_MIXED_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(createDto)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            assertTrue(MediaType.MULTIPART_MIXED.includes(MediaType.parseMediaType(result.getResponse().getContentType())));
+            assertEquals(responseDto.getUvci(), result.getResponse().getHeader(UVCI_HEADER));
+        }
+
         @Test
         void returnsStatusCodeOfCreateCertificateException_ifOneWasThrown() throws Exception {
             var createDto = fixture.create(VaccinationCertificateCreateDto.class);
@@ -108,6 +245,20 @@ class CovidCertificateGenerationControllerTest {
                     .andExpect(status().is(exception.getError().getHttpStatus().value()));
         }
 
+        @Test
+        void returns503StatusCodeWithRetryAfter_ifPdfRenderingIsBusy() throws Exception {
+            var createDto = fixture.create(VaccinationCertificateCreateDto.class);
+            when(covidCertificateGenerationService.generateCovidCertificate(any(VaccinationCertificateCreateDto.class))).thenThrow(new CreateCertificateException(PDF_RENDERING_BUSY));
+
+            mockMvc.perform(post(URL)
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(createDto)))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS)));
+        }
+
         @Test
         void returns403StatusCode_ifAccessDeniedExceptionWasThrown() throws Exception {
             var createDto = fixture.create(VaccinationCertificateCreateDto.class);
@@ -131,7 +282,7 @@ class CovidCertificateGenerationControllerTest {
             var responseDto = fixture.create(CovidCertificateCreateResponseDto.class);
             lenient().when(covidCertificateGenerationService.generateCovidCertificate(any(TestCertificateCreateDto.class))).thenReturn(responseDto);
 
-            MvcResult result = mockMvc.perform(post(URL)
+            MvcResult result = performAsync(mockMvc, post(URL)
                     .accept(MediaType.APPLICATION_JSON_VALUE)
                     .contentType(MediaType.APPLICATION_JSON_VALUE)
                     .header("Authorization", fixture.create(String.class))
@@ -180,7 +331,7 @@ class CovidCertificateGenerationControllerTest {
             var responseDto = fixture.create(CovidCertificateCreateResponseDto.class);
             when(covidCertificateGenerationService.generateCovidCertificate(any(RecoveryCertificateCreateDto.class))).thenReturn(responseDto);
 
-            MvcResult result = mockMvc.perform(post(URL)
+            MvcResult result = performAsync(mockMvc, post(URL)
                     .accept(MediaType.APPLICATION_JSON_VALUE)
                     .contentType(MediaType.APPLICATION_JSON_VALUE)
                     .header("Authorization", fixture.create(String.class))
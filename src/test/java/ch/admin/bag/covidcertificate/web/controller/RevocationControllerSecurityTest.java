@@ -1,6 +1,8 @@
 package ch.admin.bag.covidcertificate.web.controller;
 
 import ch.admin.bag.covidcertificate.api.request.RevocationDto;
+import ch.admin.bag.covidcertificate.api.request.RevocationStatusRequestDto;
+import ch.admin.bag.covidcertificate.config.TimeConfig;
 import ch.admin.bag.covidcertificate.config.security.OAuth2SecuredWebConfiguration;
 import ch.admin.bag.covidcertificate.config.security.authentication.JeapAuthenticationToken;
 import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
@@ -38,7 +40,7 @@ import static org.mockito.Mockito.times;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(value = {RevocationController.class, OAuth2SecuredWebConfiguration.class},
+@WebMvcTest(value = {RevocationController.class, OAuth2SecuredWebConfiguration.class, TimeConfig.class},
         properties = "jeap.security.oauth2.resourceserver.authorization-server.jwk-set-uri=http://localhost:8182/.well-known/jwks.json")
 // Avoid port 8180, see below
 @ActiveProfiles("local")
@@ -113,6 +115,32 @@ class RevocationControllerSecurityTest {
         }
     }
 
+    @Nested
+    class Status {
+        @Test
+        void returnsOKIfAuthorizationTokenValid() throws Exception {
+            callGetStatusWithToken(VALID_USER_ROLE, HttpStatus.OK);
+            Mockito.verify(revocationService, times(1)).getRevocationStatus(any());
+        }
+
+        @Test
+        void returnsForbiddenIfAuthorizationTokenWithInvalidUserRole() throws Exception {
+            callGetStatusWithToken(INVALID_USER_ROLE, HttpStatus.FORBIDDEN);
+            Mockito.verify(revocationService, times(0)).getRevocationStatus(any());
+        }
+    }
+
+    private void callGetStatusWithToken(String userRole, HttpStatus status) throws Exception {
+        var statusRequestDto = new RevocationStatusRequestDto(List.of(fixture.create(RevocationDto.class).getUvci()));
+        String token = JwtTestUtil.getJwtTestToken(PRIVATE_KEY, EXPIRED_IN_FUTURE, userRole);
+        mockMvc.perform(post(URL + "/status")
+                .accept(MediaType.APPLICATION_JSON_VALUE)
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .header("Authorization", "Bearer " + token)
+                .content(mapper.writeValueAsString(statusRequestDto)))
+                .andExpect(getResultMatcher(status));
+    }
+
     private void callGetValueSetsWithToken(LocalDateTime tokenExpiration, String userRole, HttpStatus status) throws Exception {
         var createDto = fixture.create(RevocationDto.class);
         String token = JwtTestUtil.getJwtTestToken(PRIVATE_KEY, tokenExpiration, userRole);
@@ -126,6 +154,8 @@ class RevocationControllerSecurityTest {
 
     private ResultMatcher getResultMatcher(HttpStatus status) {
         switch(status) {
+            case OK:
+                return status().isOk();
             case CREATED:
                 return status().isCreated();
             case FORBIDDEN:
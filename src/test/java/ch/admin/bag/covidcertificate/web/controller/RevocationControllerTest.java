@@ -2,6 +2,8 @@ package ch.admin.bag.covidcertificate.web.controller;
 
 import ch.admin.bag.covidcertificate.api.exception.RevocationException;
 import ch.admin.bag.covidcertificate.api.request.RevocationDto;
+import ch.admin.bag.covidcertificate.api.request.RevocationStatusRequestDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationStatusDto;
 import ch.admin.bag.covidcertificate.config.security.authentication.JeapAuthenticationToken;
 import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
 import ch.admin.bag.covidcertificate.service.RevocationService;
@@ -22,6 +24,7 @@ import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
@@ -51,6 +54,7 @@ class RevocationControllerTest {
     private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().modules(new JavaTimeModule()).build();
 
     private static final String URL = "/api/v1/revocation";
+    private static final int MAX_STATUS_UVCIS = 3;
 
     private static final JFixture fixture = new JFixture();
 
@@ -61,6 +65,7 @@ class RevocationControllerTest {
 
     @BeforeEach
     void setupMocks() {
+        ReflectionTestUtils.setField(controller, "maxStatusUvcis", MAX_STATUS_UVCIS);
         this.mockMvc = standaloneSetup(controller, new ResponseStatusExceptionHandler()).build();
         lenient().when(revocationService.getRevocations()).thenReturn(fixture.collections().createCollection(List.class, String.class));
         lenient().doNothing().when(revocationService).createRevocation(any(RevocationDto.class));
@@ -110,4 +115,50 @@ class RevocationControllerTest {
                     .andExpect(status().is(HttpStatus.FORBIDDEN.value()));
         }
     }
+
+    @Nested
+    class Status {
+        @Test
+        void returnsStatusPerUvci() throws Exception {
+            var uvcis = List.of(fixture.create(RevocationDto.class).getUvci(), fixture.create(RevocationDto.class).getUvci());
+            var statuses = List.of(new RevocationStatusDto(uvcis.get(0), true), new RevocationStatusDto(uvcis.get(1), false));
+            when(revocationService.getRevocationStatus(uvcis)).thenReturn(statuses);
+
+            MvcResult result = mockMvc.perform(post(URL + "/status")
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(new RevocationStatusRequestDto(uvcis))))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            assertEquals(mapper.writeValueAsString(statuses), result.getResponse().getContentAsString());
+        }
+
+        @Test
+        void returnsBadRequest_ifTooManyUvcisAreGiven() throws Exception {
+            var uvcis = fixture.collections().createCollection(List.class, String.class, MAX_STATUS_UVCIS + 1);
+
+            mockMvc.perform(post(URL + "/status")
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(new RevocationStatusRequestDto(uvcis))))
+                    .andExpect(status().isBadRequest());
+
+            verify(revocationService, never()).getRevocationStatus(any());
+        }
+
+        @Test
+        void returns403StatusCode_ifAccessDeniedExceptionWasThrown() throws Exception {
+            when(securityHelper.authorizeUser(any(HttpServletRequest.class))).thenThrow(fixture.create(AccessDeniedException.class));
+
+            mockMvc.perform(post(URL + "/status")
+                    .accept(MediaType.APPLICATION_JSON_VALUE)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .header("Authorization", fixture.create(String.class))
+                    .content(mapper.writeValueAsString(new RevocationStatusRequestDto(List.of(fixture.create(String.class))))))
+                    .andExpect(status().is(HttpStatus.FORBIDDEN.value()));
+        }
+    }
 }
@@ -1,8 +1,13 @@
 package ch.admin.bag.covidcertificate.web.controller;
 
+import ch.admin.bag.covidcertificate.api.exception.RevocationException;
 import ch.admin.bag.covidcertificate.api.request.RevocationDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationListBucketDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationListBucketVersionDto;
+import ch.admin.bag.covidcertificate.api.response.RevocationListManifestDto;
 import ch.admin.bag.covidcertificate.config.security.authentication.JeapAuthenticationToken;
 import ch.admin.bag.covidcertificate.config.security.authentication.ServletJeapAuthorization;
+import ch.admin.bag.covidcertificate.service.RevocationListSigner;
 import ch.admin.bag.covidcertificate.service.RevocationService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -15,6 +20,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
@@ -23,11 +29,17 @@ import org.springframework.test.web.servlet.MvcResult;
 import java.util.List;
 
 import static ch.admin.bag.covidcertificate.FixtureCustomization.customizeRevocationDto;
+import static ch.admin.bag.covidcertificate.api.Constants.INVALID_REVOCATION_LIST_BUCKET;
+import static ch.admin.bag.covidcertificate.api.Constants.RETRY_AFTER_SECONDS;
+import static ch.admin.bag.covidcertificate.api.Constants.SIGNED_REVOCATION_LIST_UNAVAILABLE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
 
@@ -78,4 +90,100 @@ class RevocationListControllerTest {
         }
     }
 
+    @Nested
+    class GetManifest {
+        @Test
+        void returnsBucketVersionsWithETag() throws Exception {
+            var manifest = new RevocationListManifestDto(1, "1-00000000000000ab",
+                    List.of(new RevocationListBucketVersionDto(0, "0-0000000000000000", 0), new RevocationListBucketVersionDto(1, "1-00000000000000ab", 1)));
+            when(revocationService.getRevocationListManifest()).thenReturn(manifest);
+
+            MvcResult result = mockMvc.perform(get(URL + "/buckets"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"1-00000000000000ab\""))
+                    .andReturn();
+
+            assertEquals(mapper.writeValueAsString(manifest), result.getResponse().getContentAsString());
+        }
+
+        @Test
+        void returnsNotModified_ifVersionIsUnchanged() throws Exception {
+            when(revocationService.getRevocationListManifest()).thenReturn(new RevocationListManifestDto(0, "0-0000000000000000", List.of()));
+
+            mockMvc.perform(get(URL + "/buckets").header("If-None-Match", "\"0-0000000000000000\""))
+                    .andExpect(status().isNotModified());
+        }
+    }
+
+    @Nested
+    class GetBucket {
+        @Test
+        void returnsUvcisOfBucketWithETag() throws Exception {
+            var bucket = new RevocationListBucketDto(3, "1-00000000000000ab", fixture.collections().createCollection(List.class, String.class));
+            when(revocationService.getRevocationListBucket(3)).thenReturn(bucket);
+
+            MvcResult result = mockMvc.perform(get(URL + "/buckets/3"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"1-00000000000000ab\""))
+                    .andReturn();
+
+            assertEquals(mapper.writeValueAsString(bucket), result.getResponse().getContentAsString());
+        }
+
+        @Test
+        void returnsNotModified_ifVersionIsUnchanged() throws Exception {
+            when(revocationService.getRevocationListBucket(3)).thenReturn(new RevocationListBucketDto(3, "1-00000000000000ab", List.of()));
+
+            mockMvc.perform(get(URL + "/buckets/3").header("If-None-Match", "\"1-00000000000000ab\""))
+                    .andExpect(status().isNotModified());
+        }
+
+        @Test
+        void returnsBadRequest_ifIndexIsOutOfRange() throws Exception {
+            when(revocationService.getRevocationListBucket(16)).thenThrow(new RevocationException(INVALID_REVOCATION_LIST_BUCKET));
+
+            mockMvc.perform(get(URL + "/buckets/16"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    class GetSigned {
+        @Test
+        void returnsSignedDocumentWithETag() throws Exception {
+            var document = fixture.create(byte[].class);
+            var signed = mock(RevocationListSigner.SignedRevocationList.class);
+            when(signed.getVersion()).thenReturn("1-00000000000000ab");
+            when(signed.getDocument()).thenReturn(document);
+            when(revocationService.getSignedRevocationList()).thenReturn(signed);
+
+            MvcResult result = mockMvc.perform(get(URL + "/signed"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "W/\"1-00000000000000ab\""))
+                    .andExpect(header().string("Content-Type", RevocationListController.COSE_MEDIA_TYPE))
+                    .andReturn();
+
+            assertArrayEquals(document, result.getResponse().getContentAsByteArray());
+        }
+
+        @Test
+        void returnsNotModified_ifVersionIsUnchanged() throws Exception {
+            var signed = mock(RevocationListSigner.SignedRevocationList.class);
+            when(signed.getVersion()).thenReturn("1-00000000000000ab");
+            when(signed.getDocument()).thenReturn(fixture.create(byte[].class));
+            when(revocationService.getSignedRevocationList()).thenReturn(signed);
+
+            mockMvc.perform(get(URL + "/signed").header("If-None-Match", "W/\"1-00000000000000ab\""))
+                    .andExpect(status().isNotModified());
+        }
+
+        @Test
+        void returnsServiceUnavailable_ifNotSignedYet() throws Exception {
+            when(revocationService.getSignedRevocationList()).thenThrow(new RevocationException(SIGNED_REVOCATION_LIST_UNAVAILABLE));
+
+            mockMvc.perform(get(URL + "/signed"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS)));
+        }
+    }
 }
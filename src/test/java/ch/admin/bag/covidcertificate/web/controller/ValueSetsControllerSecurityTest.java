@@ -1,6 +1,7 @@
 package ch.admin.bag.covidcertificate.web.controller;
 
 import ch.admin.bag.covidcertificate.api.valueset.ValueSetsDto;
+import ch.admin.bag.covidcertificate.config.TimeConfig;
 import ch.admin.bag.covidcertificate.config.security.OAuth2SecuredWebConfiguration;
 import ch.admin.bag.covidcertificate.service.ValueSetsService;
 import ch.admin.bag.covidcertificate.testutil.JwtTestUtil;
@@ -34,7 +35,7 @@ import static org.mockito.Mockito.times;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(value = {ValueSetsController.class, OAuth2SecuredWebConfiguration.class},
+@WebMvcTest(value = {ValueSetsController.class, OAuth2SecuredWebConfiguration.class, TimeConfig.class},
         properties = "jeap.security.oauth2.resourceserver.authorization-server.jwk-set-uri=http://localhost:8182/.well-known/jwks.json")
 // Avoid port 8180, see below
 @ActiveProfiles("local")
@@ -0,0 +1,69 @@
+package ch.admin.bag.covidcertificate.web.converter;
+
+import ch.admin.bag.covidcertificate.api.response.CovidCertificateCreateResponseDto;
+import com.flextrade.jfixture.JFixture;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static ch.admin.bag.covidcertificate.web.converter.CovidCertificateMultipartHttpMessageConverter.UVCI_HEADER;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CovidCertificateMultipartHttpMessageConverterTest {
+    private final CovidCertificateMultipartHttpMessageConverter converter = new CovidCertificateMultipartHttpMessageConverter();
+
+    private final JFixture fixture = new JFixture();
+
+    @Test
+    void canWriteResponseDtoAsMultipartMixed() {
+        assertTrue(converter.canWrite(CovidCertificateCreateResponseDto.class, MediaType.MULTIPART_MIXED));
+        assertFalse(converter.canWrite(CovidCertificateCreateResponseDto.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(String.class, MediaType.MULTIPART_MIXED));
+    }
+
+    @Test
+    void cannotRead() {
+        assertFalse(converter.canRead(CovidCertificateCreateResponseDto.class, MediaType.MULTIPART_MIXED));
+    }
+
+    @Test
+    void writesMultipartWithBoundary() throws IOException {
+        var responseDto = fixture.create(CovidCertificateCreateResponseDto.class);
+        var outputMessage = new MockHttpOutputMessage();
+
+        converter.write(responseDto, MediaType.MULTIPART_MIXED, outputMessage);
+
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        assertNotNull(contentType);
+        assertTrue(MediaType.MULTIPART_MIXED.includes(contentType));
+        assertNotNull(contentType.getParameter("boundary"));
+    }
+
+    @Test
+    void writesUvciAsHeaderAndPart() throws IOException {
+        var responseDto = fixture.create(CovidCertificateCreateResponseDto.class);
+        var outputMessage = new MockHttpOutputMessage();
+
+        converter.write(responseDto, MediaType.MULTIPART_MIXED, outputMessage);
+
+        assertEquals(responseDto.getUvci(), outputMessage.getHeaders().getFirst(UVCI_HEADER));
+        assertTrue(outputMessage.getBodyAsString(StandardCharsets.ISO_8859_1).contains(responseDto.getUvci()));
+    }
+
+    @Test
+    void writesPdfAndQrCodeAsRawBinaryParts() throws IOException {
+        var responseDto = fixture.create(CovidCertificateCreateResponseDto.class);
+        var outputMessage = new MockHttpOutputMessage();
+
+        converter.write(responseDto, MediaType.MULTIPART_MIXED, outputMessage);
+
+        String body = outputMessage.getBodyAsString(StandardCharsets.ISO_8859_1);
+        assertTrue(body.contains(new String(responseDto.getPdf(), StandardCharsets.ISO_8859_1)));
+        assertTrue(body.contains(new String(responseDto.getQrCode(), StandardCharsets.ISO_8859_1)));
+        assertTrue(body.contains(MediaType.APPLICATION_PDF_VALUE));
+        assertTrue(body.contains(MediaType.IMAGE_PNG_VALUE));
+    }
+}
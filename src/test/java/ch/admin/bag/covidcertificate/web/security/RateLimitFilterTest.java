@@ -0,0 +1,191 @@
+package ch.admin.bag.covidcertificate.web.security;
+
+import ch.admin.bag.covidcertificate.testutil.JeapAuthenticationTestTokenBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ch.admin.bag.covidcertificate.api.Constants.USER_EXT_ID_CLAIM_KEY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+    private static final String CREATION_URL = "/api/v1/covidcertificate/vaccination";
+    private static final String BATCH_URL = "/api/v1/covidcertificate/batch";
+    private static final String SUPERUSER = "bag-cc-superuser";
+
+    private final AtomicLong now = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void init() {
+        var properties = new RateLimitProperties();
+        properties.setEnabled(true);
+        properties.setLimits(Map.of(
+                "creation", Map.of(
+                        RateLimitFilter.DEFAULT_LIMIT, limit(1, 1),
+                        SUPERUSER, limit(2, 10)),
+                "batch", Map.of(RateLimitFilter.DEFAULT_LIMIT, limit(1, 1)),
+                "revocation", Map.of(RateLimitFilter.DEFAULT_LIMIT, limit(1, 1))));
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(properties, meterRegistry, new ObjectMapper(), now::get);
+        authenticate("user-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Nested
+    class Throttling {
+        @Test
+        void passesRequest_ifTokenIsAvailable() throws Exception {
+            var response = filter(CREATION_URL);
+
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+        }
+
+        @Test
+        void returns429WithRetryAfter_ifLimitIsExceeded() throws Exception {
+            filter(CREATION_URL);
+
+            var response = filter(CREATION_URL);
+
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+            assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+            assertTrue(response.getContentAsString().contains("473"));
+            assertEquals(1, meterRegistry.get(RateLimitFilter.THROTTLED_METRIC)
+                    .tag("group", "creation").tag("limit", RateLimitFilter.DEFAULT_LIMIT).counter().count());
+        }
+
+        @Test
+        void passesRequest_afterRefill() throws Exception {
+            filter(CREATION_URL);
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+            var response = filter(CREATION_URL);
+
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+        }
+
+        @Test
+        void limitsEachCallerSeparately() throws Exception {
+            filter(CREATION_URL);
+            authenticate("user-2");
+
+            var response = filter(CREATION_URL);
+
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+        }
+
+        @Test
+        void limitsEachEndpointGroupSeparately() throws Exception {
+            filter(CREATION_URL);
+
+            var response = filter("/api/v1/revocation");
+
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+        }
+
+        @Test
+        void limitsBatchSubmissionsApartFromCreations() throws Exception {
+            filter(BATCH_URL);
+
+            assertEquals(HttpStatus.OK.value(), filter(CREATION_URL).getStatus());
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), filter(BATCH_URL + "/csv").getStatus());
+            assertEquals(1, meterRegistry.get(RateLimitFilter.THROTTLED_METRIC)
+                    .tag("group", "batch").tag("limit", RateLimitFilter.DEFAULT_LIMIT).counter().count());
+        }
+
+        @Test
+        void countsBatchPollingAsCreation() throws Exception {
+            filter(BATCH_URL);
+
+            var response = filter("GET", BATCH_URL + "/" + UUID.randomUUID());
+
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), filter(CREATION_URL).getStatus());
+        }
+
+        @Test
+        void appliesLimitOfRole() throws Exception {
+            authenticate("user-1", SUPERUSER);
+            filter(CREATION_URL);
+
+            var response = filter(CREATION_URL);
+
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+        }
+    }
+
+    @Nested
+    class Unlimited {
+        @Test
+        void passesRequests_ofGroupWithoutLimits() throws Exception {
+            filter("/api/v1/otp");
+
+            var response = filter("/api/v1/otp");
+
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+        }
+
+        @Test
+        void passesRequests_ofOtherEndpoints() throws Exception {
+            filter("/api/v1/revocation-list");
+
+            var response = filter("/api/v1/revocation-list");
+
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+        }
+
+        @Test
+        void passesRequests_withoutAuthentication() throws Exception {
+            SecurityContextHolder.clearContext();
+            filter(CREATION_URL);
+
+            var response = filter(CREATION_URL);
+
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+        }
+    }
+
+    private MockHttpServletResponse filter(String uri) throws Exception {
+        return filter("POST", uri);
+    }
+
+    private MockHttpServletResponse filter(String method, String uri) throws Exception {
+        var request = new MockHttpServletRequest(method, uri);
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private void authenticate(String userExtId, String... roles) {
+        SecurityContextHolder.getContext().setAuthentication(JeapAuthenticationTestTokenBuilder.create()
+                .withClaim(USER_EXT_ID_CLAIM_KEY, userExtId)
+                .withUserRoles(roles)
+                .build());
+    }
+
+    private static RateLimitProperties.Limit limit(long capacity, double refillPerSecond) {
+        var limit = new RateLimitProperties.Limit();
+        limit.setCapacity(capacity);
+        limit.setRefillPerSecond(refillPerSecond);
+        return limit;
+    }
+}
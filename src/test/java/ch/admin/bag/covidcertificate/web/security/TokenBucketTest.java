@@ -0,0 +1,81 @@
+package ch.admin.bag.covidcertificate.web.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstOfCapacity() {
+        var bucket = new TokenBucket(3, 1, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+    }
+
+    @Test
+    void refillsAtConfiguredRate() {
+        var bucket = new TokenBucket(1, 2, 0);
+        bucket.tryAcquire(0);
+
+        assertEquals(SECOND / 4, bucket.tryAcquire(SECOND / 4));
+        assertEquals(0, bucket.tryAcquire(SECOND / 2));
+    }
+
+    @Test
+    void doesNotRefillAboveCapacity() {
+        var bucket = new TokenBucket(2, 1, 0);
+
+        assertEquals(0, bucket.tryAcquire(100 * SECOND));
+        assertEquals(0, bucket.tryAcquire(100 * SECOND));
+        assertNotEquals(0, bucket.tryAcquire(100 * SECOND));
+    }
+
+    @Test
+    void throwsIllegalArgumentException_ifCapacityIsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1, 0));
+    }
+
+    @Test
+    void grantsExactlyCapacity_toConcurrentCallers() throws Exception {
+        var bucket = new TokenBucket(1000, 0.001, 0);
+        var start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> granted = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                granted.add(callers.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (int j = 0; j < 500; j++) {
+                        if (bucket.tryAcquire(0) == 0) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+
+            int total = 0;
+            for (Future<Integer> future : granted) {
+                total += future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(1000, total);
+        } finally {
+            callers.shutdown();
+        }
+    }
+}